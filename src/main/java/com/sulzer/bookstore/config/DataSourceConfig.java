@@ -0,0 +1,98 @@
+package com.sulzer.bookstore.config;
+
+import com.sulzer.bookstore.routing.DataSourceRouting;
+import com.sulzer.bookstore.routing.ReadYourWritesFilter;
+import com.sulzer.bookstore.routing.ReplicaRoutingDataSource;
+import com.sulzer.bookstore.routing.ReplicaSelection;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datasource of the primary database in spring.datasource and of the read replicas in
+ * bookstore.datasource.replica-urls, which share the username and password of the primary.
+ * The pool of the primary is configured by spring.datasource.hikari and the pools of the replicas by
+ * bookstore.datasource.replica-hikari.
+ * Only used if replicas are configured, Spring Boot creates the single datasource otherwise.
+ */
+@Configuration
+@ConditionalOnExpression("!'${bookstore.datasource.replica-urls:}'.trim().isEmpty()")
+public class DataSourceConfig {
+
+    private static final String REPLICA_HIKARI = "bookstore.datasource.replica-hikari";
+
+    /**
+     * Pool of the primary, bound to spring.datasource.hikari like the datasource of Spring Boot.
+     *
+     * @param properties
+     * @return
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Route the reads run in DataSourceRouting.onReplica to the replicas and everything else to the primary.
+     *
+     * @param primaryDataSource
+     * @param properties
+     * @param environment
+     * @param routing
+     * @param replicaUrls
+     * @param selection
+     * @return
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                 Environment environment, DataSourceRouting routing,
+                                 @Value("${bookstore.datasource.replica-urls}") List<String> replicaUrls,
+                                 @Value("${bookstore.datasource.replica-selection:round-robin}") String selection) {
+        Binder binder = Binder.get(environment);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url.trim()).build();
+            binder.bind(REPLICA_HIKARI, Bindable.ofInstance(replica));
+            //The replicas share their settings, the pool name tells them apart in the logs
+            if (!StringUtils.hasText(replica.getPoolName())) {
+                replica.setPoolName("replica-" + (replicas.size() + 1));
+            }
+            replicas.add(replica);
+        }
+        //The connection is taken at the first statement, once the query is known to be a read for a replica
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicas, ReplicaSelection.of(selection), routing));
+    }
+
+    /**
+     * Send the requests of a client to the primary for a while after its writes.
+     *
+     * @param routing
+     * @param clientHeader
+     * @param windowMillis
+     * @return
+     */
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(DataSourceRouting routing,
+                                                     @Value("${bookstore.datasource.client-header:X-Client-Id}") String clientHeader,
+                                                     @Value("${bookstore.datasource.read-your-writes-window:2000}") long windowMillis) {
+        return new ReadYourWritesFilter(routing, clientHeader, windowMillis);
+    }
+}
@@ -0,0 +1,73 @@
+package com.sulzer.bookstore.config;
+
+import com.sulzer.bookstore.metrics.RepositoryMetricsInterceptor;
+import com.sulzer.bookstore.metrics.StatementCountFilter;
+import com.sulzer.bookstore.metrics.StatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+
+/**
+ * Metrics added to the ones of Spring Boot actuator, which already times every endpoint in http.server.requests.
+ * Everything is exposed in the prometheus format on /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Time every method of the repositories in bookstore.repository.
+     *
+     * @param meterRegistry
+     * @return
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof Repository && bean instanceof Advised) {
+                    Advised repository = (Advised) bean;
+                    String name = Arrays.stream(repository.getProxiedInterfaces())
+                            .filter(Repository.class::isAssignableFrom)
+                            .filter(type -> !type.getName().startsWith("org.springframework."))
+                            .map(Class::getSimpleName)
+                            .findFirst()
+                            .orElse(beanName);
+                    //First advice, so the time includes the transaction opened by the repository
+                    repository.addAdvice(0, new RepositoryMetricsInterceptor(meterRegistry::getObject, name));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Count the statements of Hibernate on each thread.
+     *
+     * @return
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new StatementCounter());
+    }
+
+    /**
+     * Record the number of statements of each request in bookstore.request.statements.
+     *
+     * @param meterRegistry
+     * @return
+     */
+    @Bean
+    public StatementCountFilter statementCountFilter(MeterRegistry meterRegistry) {
+        return new StatementCountFilter(meterRegistry);
+    }
+}
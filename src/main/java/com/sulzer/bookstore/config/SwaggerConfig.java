@@ -1,5 +1,6 @@
 package com.sulzer.bookstore.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -11,14 +12,19 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 import static springfox.documentation.builders.PathSelectors.regex;
 
+/**
+ * Swagger documentation of the endpoints of the controller package, built on startup.
+ * Disabled with bookstore.swagger.enabled=false, as in the prod profile.
+ */
 @Configuration
 @EnableSwagger2
+@ConditionalOnProperty(name = "bookstore.swagger.enabled", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig {
     @Bean
     public Docket productApi() {
         return new Docket(DocumentationType.SWAGGER_2)
                 .select()
-                .apis(RequestHandlerSelectors.any())
+                .apis(RequestHandlerSelectors.basePackage("com.sulzer.bookstore.controller"))
                 .paths(regex("/api.*"))
                 .build()
                 .apiInfo(metaInfo());
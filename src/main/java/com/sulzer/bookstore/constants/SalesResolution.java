@@ -0,0 +1,32 @@
+package com.sulzer.bookstore.constants;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Length of the buckets of the sales history, buckets start at whole minutes, hours and days in UTC
+ */
+public enum SalesResolution {
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1)),
+    DAY(TimeUnit.DAYS.toMillis(1));
+
+    private final long millis;
+
+    SalesResolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Start of the bucket of a time
+     *
+     * @param epochMillis
+     * @return epoch milliseconds of the start of the bucket
+     */
+    public long bucketStart(long epochMillis) {
+        return Math.floorDiv(epochMillis, millis) * millis;
+    }
+}
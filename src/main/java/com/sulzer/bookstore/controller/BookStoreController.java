@@ -1,9 +1,22 @@
 package com.sulzer.bookstore.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
 import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
 import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.BookSearchDto;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
 import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.importer.ImportFormat;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -11,8 +24,16 @@ import io.swagger.annotations.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -27,17 +48,35 @@ import java.util.List;
  * 7)sell a list of books
  * 8)get book(s) by category/keywords
  * 9)get number of books sold per category/keyword
+ * Additional:
+ * 10)get sales and stock statistics per category
+ * 11)get all books page by page or as a stream
+ * 12)get statistics of the caches
+ * 13)import a catalog of books
+ * 14)search books by keyword with the matches of every category
+ * 15)suggest the best selling books for the beginning of a title or author
+ * 16)get books of several ids at once
+ * 17)get the best selling books, overall or per category
+ * 18)get the sales per minute, hour or day of a book, of a category or of every category
+ * The books, the list of books and the pages of books are returned with an ETag. A request with If-None-Match
+ * is answered with 304 Not Modified without reading the books while no book is changed.
  */
 @RestController
 @RequestMapping("/api")
 @Api(value = "Bookstore Controller", description = "Bookstore REST Endpoints.")
 public class BookStoreController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final BookStoreService bookStoreService;
 
+    private final ObjectWriter bookDtoWriter;
+
     @Autowired
-    public BookStoreController(BookStoreService bookStoreService) {
+    public BookStoreController(BookStoreService bookStoreService, ObjectMapper objectMapper) {
         this.bookStoreService = bookStoreService;
+        this.bookDtoWriter = objectMapper.writerFor(BookDto.class);
     }
 
     /**
@@ -53,6 +92,34 @@ public class BookStoreController {
         bookStoreService.addNewBook(bookDto);
     }
 
+    /**
+     * 13) Import a catalog of books as CSV with a header row naming the columns.
+     * The file is read while it is uploaded, the rows that cannot be registered are listed in the report.
+     *
+     * @param inputStream
+     * @return ImportReportDto
+     * @throws IOException
+     */
+    @ApiOperation(value = "Import Books from CSV")
+    @PostMapping(value = "/import-books", consumes = TEXT_CSV_VALUE)
+    public ImportReportDto importCsvBooks(InputStream inputStream) throws IOException {
+        return bookStoreService.importBooks(inputStream, ImportFormat.CSV);
+    }
+
+    /**
+     * 13) Import a catalog of books as newline delimited JSON, one book per line.
+     * The file is read while it is uploaded, the rows that cannot be registered are listed in the report.
+     *
+     * @param inputStream
+     * @return ImportReportDto
+     * @throws IOException
+     */
+    @ApiOperation(value = "Import Books from NDJSON")
+    @PostMapping(value = "/import-books", consumes = APPLICATION_NDJSON_VALUE)
+    public ImportReportDto importNdjsonBooks(InputStream inputStream) throws IOException {
+        return bookStoreService.importBooks(inputStream, ImportFormat.NDJSON);
+    }
+
     /**
      * AC: 1)Add a book
      * This method add quantity of book to the books which are already registered.
@@ -72,35 +139,103 @@ public class BookStoreController {
      * AC: 2)get books by id
      *
      * @param id
-     * @return bookDto
+     * @param webRequest
+     * @return bookDto, or null if the book is not modified
      */
     @ApiOperation(value = "Get Book By Id")
     @GetMapping("/book/{id}")
-    public BookDto getBookById(@PathVariable Long id) {
+    public BookDto getBookById(@PathVariable Long id, WebRequest webRequest) {
+        //The version is read before the book, so the ETag is never newer than the book
+        if (webRequest.checkNotModified(bookStoreService.getBookVersion(id))) {
+            return null;
+        }
         return bookStoreService.getBookById(id);
     }
 
+    /**
+     * 16) Get the books and the number of books in store of several ids at once, for a cart or a wishlist.
+     * Ids which are not found are listed in missingIds.
+     *
+     * @param ids comma separated ids, at most 100
+     * @return BookBatchDto
+     */
+    @ApiOperation(value = "Get Books By Ids")
+    @GetMapping("/books-by-id")
+    public BookBatchDto getBooksById(@RequestParam List<Long> ids) {
+        return bookStoreService.getBooksById(ids);
+    }
+
 
     /**
      * AC: 3)Get All Books
      *
-     * @return List<BookDto>
+     * @param webRequest
+     * @return List<BookDto>, or null if no book is modified
      */
     @ApiOperation(value = "Get All Books")
     @GetMapping("/book-list")
-    public List<BookDto> getAllBooks() {
+    public List<BookDto> getAllBooks(WebRequest webRequest) {
+        if (webRequest.checkNotModified(bookStoreService.getCatalogVersion())) {
+            return null;
+        }
         return bookStoreService.getAllBooks();
     }
 
+    /**
+     * 11) Get all books as newline delimited JSON, one book per line.
+     * The books are written while they are read from the database.
+     *
+     * @return StreamingResponseBody
+     */
+    @ApiOperation(value = "Stream All Books")
+    @GetMapping(value = "/book-stream", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllBooks() {
+        return outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            bookStoreService.streamAllBooks(bookDto -> {
+                try {
+                    out.write(bookDtoWriter.writeValueAsBytes(bookDto));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+    }
+
+    /**
+     * 11) Get all books page by page
+     *
+     * @param after cursor of the page, nextCursor of the previous page
+     * @param size  number of books in the page
+     * @param webRequest
+     * @return BookPageDto, or null if no book is modified
+     */
+    @ApiOperation(value = "Get a Page of All Books")
+    @GetMapping("/book-page")
+    public BookPageDto getBookPage(@RequestParam(required = false) Long after,
+                                   @RequestParam(defaultValue = "100") int size,
+                                   WebRequest webRequest) {
+        if (webRequest.checkNotModified(bookStoreService.getCatalogVersion())) {
+            return null;
+        }
+        return bookStoreService.getBooksAfter(after, size);
+    }
+
     /**
      * AC: 4) Get number of books available by id.
      *
      * @param id
-     * @return
+     * @param webRequest
+     * @return number of books, or null if the book is not modified
      */
     @ApiOperation(value = "Get Number of books by Id")
     @GetMapping("/number-of-books/{id}")
-    public int getNumberOfBooksById(@PathVariable Long id) {
+    public Integer getNumberOfBooksById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(bookStoreService.getBookVersion(id))) {
+            return null;
+        }
         return bookStoreService.getNumberOfBooksById(id);
     }
 
@@ -168,4 +303,107 @@ public class BookStoreController {
         return bookStoreService.getNumberOfBooksSoldByCategoryAndKeyword(keyword, category);
     }
 
+    /**
+     * 14) Search books by keyword page by page, with the number of matching books and copies sold of every category.
+     * Same match as 8) and 9), for every category at once.
+     *
+     * @param keyword
+     * @param category category of the books of the page, every category if it is not given
+     * @param after    cursor of the page, nextCursor of the previous page
+     * @param size     number of books in the page
+     * @return BookSearchDto
+     */
+    @ApiOperation(value = "Search Books by Keyword with Counts per Category")
+    @GetMapping("/book-search")
+    public BookSearchDto searchBooks(@RequestParam String keyword,
+                                     @RequestParam(required = false) Category category,
+                                     @RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "100") int size) {
+        return bookStoreService.searchBooks(keyword, category, after, size);
+    }
+
+    /**
+     * 15) Suggest the best selling books whose title or author starts with the prefix, for a search box.
+     *
+     * @param prefix
+     * @param category category of the books, every category if it is not given
+     * @param size     maximum number of books
+     * @return List<BookSuggestionDto>
+     */
+    @ApiOperation(value = "Suggest Books by Prefix of Title or Author")
+    @GetMapping("/book-suggestions")
+    public List<BookSuggestionDto> suggestBooks(@RequestParam String prefix,
+                                                @RequestParam(required = false) Category category,
+                                                @RequestParam(defaultValue = "10") int size) {
+        return bookStoreService.suggestBooks(prefix, category, size);
+    }
+
+    /**
+     * 17) Get the best selling books, ranked in memory as they are sold.
+     *
+     * @param category category of the books, every category if it is not given
+     * @param size     maximum number of books
+     * @return List<BestsellerDto>
+     */
+    @ApiOperation(value = "Get the Best Selling Books")
+    @GetMapping("/bestsellers")
+    public List<BestsellerDto> getBestsellers(@RequestParam(required = false) Category category,
+                                              @RequestParam(defaultValue = "10") int size) {
+        return bookStoreService.getBestsellers(category, size);
+    }
+
+    /**
+     * 18) Get the sales in minute, hour or day buckets, for example the units sold per category per hour.
+     *
+     * @param resolution MINUTE, HOUR or DAY
+     * @param from       ISO-8601 instant, the bucket of from is the first bucket
+     * @param to         ISO-8601 instant, buckets starting at or after to are left out
+     * @param category   category of the books, every category if neither category nor bookId is given
+     * @param bookId     book, instead of a category
+     * @return List<SalesBucketDto>
+     */
+    @ApiOperation(value = "Get the Sales per Minute, Hour or Day")
+    @GetMapping("/sales-history")
+    public List<SalesBucketDto> getSalesHistory(@RequestParam SalesResolution resolution,
+                                                @RequestParam Instant from,
+                                                @RequestParam Instant to,
+                                                @RequestParam(required = false) Category category,
+                                                @RequestParam(required = false) Long bookId) {
+        return bookStoreService.getSalesHistory(resolution, from, to, category, bookId);
+    }
+
+    /**
+     * 10) Get sales and stock statistics of every category
+     *
+     * @return List<CategoryStatisticsDto>
+     */
+    @ApiOperation(value = "Get Sales and Stock Statistics of every Category")
+    @GetMapping("/statistics")
+    public List<CategoryStatisticsDto> getAllCategoryStatistics() {
+        return bookStoreService.getAllCategoryStatistics();
+    }
+
+    /**
+     * 10) Get sales and stock statistics of a category
+     *
+     * @param category
+     * @return
+     */
+    @ApiOperation(value = "Get Sales and Stock Statistics of a Category")
+    @GetMapping("/statistics/{category}")
+    public CategoryStatisticsDto getCategoryStatistics(@PathVariable Category category) {
+        return bookStoreService.getCategoryStatistics(category);
+    }
+
+    /**
+     * 12) Get hit, miss and eviction statistics of the caches
+     *
+     * @return List<CacheStatisticsDto>
+     */
+    @ApiOperation(value = "Get Cache Statistics")
+    @GetMapping("/cache-statistics")
+    public List<CacheStatisticsDto> getCacheStatistics() {
+        return bookStoreService.getCacheStatistics();
+    }
+
 }
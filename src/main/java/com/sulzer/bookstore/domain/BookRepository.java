@@ -1,15 +1,19 @@
 package com.sulzer.bookstore.domain;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     @Query(value = "Select * from book b where " +
             "(b.title like %?1% OR CAST(b.id as CHAR) like %?1% OR LOWER(b.author) like %?1%) " +
-            "AND b.category=?2",
+            "AND b.category=?2 ORDER BY b.id",
             nativeQuery = true)
     List<Book> findAllBookByCategoryAndKeyword(String keyword, int category);
 
@@ -19,4 +23,82 @@ public interface BookRepository extends JpaRepository<Book, Long> {
             nativeQuery = true)
     long countNumberOfBooksSold(String keyword, int category);
 
+    /**
+     * Same match as findAllBookByCategoryAndKeyword over every category in one scan
+     *
+     * @param keyword
+     * @return rows of id, category and sold count ordered by id
+     */
+    @Query(value = "Select b.id, b.category, b.sold from book b where " +
+            "(b.title like %?1% OR CAST(b.id as CHAR) like %?1% OR LOWER(b.author) like %?1%) " +
+            "AND b.category IS NOT NULL ORDER BY b.id",
+            nativeQuery = true)
+    List<Object[]> findAllMatchesByKeyword(String keyword);
+
+    /**
+     * @param ids
+     * @return rows of id, category and sold count of the books present, like findAllMatchesByKeyword
+     */
+    @Query(value = "Select b.id, b.category, b.sold from book b where b.id in ?1 AND b.category IS NOT NULL",
+            nativeQuery = true)
+    List<Object[]> findAllMatchesById(Collection<Long> ids);
+
+    /**
+     * Decrease the total count and increase the sold count of the book in one statement,
+     * only if there are enough books in store. The version is incremented like by any update of the entity.
+     *
+     * @param id
+     * @param quantity
+     * @return number of updated rows, 0 if the book is not present or there are not enough books
+     */
+    @Modifying
+    @Query("update Book b set b.totalCount = b.totalCount - ?2, b.sold = b.sold + ?2, b.version = b.version + 1 " +
+            "where b.id = ?1 and b.totalCount >= ?2")
+    int sell(Long id, int quantity);
+
+    /**
+     * Total count of a book without loading it.
+     *
+     * @param id
+     * @return total count, empty if the book is not present
+     */
+    @Query("select b.totalCount from Book b where b.id = ?1")
+    Optional<Integer> findTotalCountById(Long id);
+
+    /**
+     * @param ids
+     * @return rows of id, category and price of the books present
+     */
+    @Query("select b.id, b.category, b.price from Book b where b.id in ?1")
+    List<Object[]> findCategoryAndPriceById(Collection<Long> ids);
+
+    /**
+     * Ids of the given ones that are already registered, checked in one query.
+     *
+     * @param ids
+     * @return
+     */
+    @Query("select b.id from Book b where b.id in ?1")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * Keyset page of books: the books with id greater than the given id, ordered by id.
+     *
+     * @param id       last id of the previous page
+     * @param pageable only the page size is used
+     * @return
+     */
+    List<Book> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    /**
+     * Keyword for the LIKE queries, with the wildcards % and _ escaped by the default escape character \ of MySQL
+     * and H2, so the keyword is matched literally like in the search index.
+     *
+     * @param keyword
+     * @return
+     */
+    static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.sulzer.bookstore.domain;
+
+import java.util.function.Consumer;
+
+/**
+ * Repository methods which cannot be expressed as query methods, implemented by {@link BookRepositoryImpl}.
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Read all the books ordered by id with a JDBC fetch size and pass them one by one to the action.
+     * Each book is detached once the action returns, so the persistence context does not grow with the catalog.
+     * Must be called inside a transaction.
+     *
+     * @param fetchSize rows fetched from the database at a time
+     * @param action
+     */
+    void forEachBook(int fetchSize, Consumer<Book> action);
+}
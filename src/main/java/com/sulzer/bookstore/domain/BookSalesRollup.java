@@ -0,0 +1,60 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.SalesResolution;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Representation of BookSalesRollup Table
+ * Copies of a book sold in one bucket of the sales history, the unique key is also the index of the range queries.
+ **/
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"resolution", "book_id", "bucket_start"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * length of the bucket
+     */
+    @Column(name = "resolution", nullable = false)
+    private SalesResolution resolution;
+
+    /**
+     * book the sales belong to
+     */
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    /**
+     * epoch milliseconds of the start of the bucket
+     */
+    @Column(name = "bucket_start", nullable = false)
+    private long bucketStart;
+
+    /**
+     * Copies of the book sold in the bucket
+     */
+    private long unitsSold;
+
+    /**
+     * Price of the sold copies
+     */
+    private double revenue;
+}
@@ -0,0 +1,28 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.SalesResolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface BookSalesRollupRepository extends JpaRepository<BookSalesRollup, Long> {
+
+    /**
+     * Buckets of a book starting in [from, to), ordered by start
+     *
+     * @param resolution
+     * @param bookId
+     * @param from       epoch milliseconds, inclusive
+     * @param to         epoch milliseconds, exclusive
+     * @return
+     */
+    @Query("select r from BookSalesRollup r where r.resolution = ?1 and r.bookId = ?2 " +
+            "and r.bucketStart >= ?3 and r.bucketStart < ?4 order by r.bucketStart")
+    List<BookSalesRollup> findBuckets(SalesResolution resolution, Long bookId, long from, long to);
+
+    @Modifying
+    @Query("delete from BookSalesRollup r where r.resolution = ?1 and r.bucketStart < ?2")
+    int deleteOlderThan(SalesResolution resolution, long bucketStart);
+}
@@ -0,0 +1,64 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Representation of CategorySalesRollup Table
+ * Copies of the books of a category sold in one bucket of the sales history, so the history of a category
+ * is read without adding up the rows of its books. The second index serves the history of every category.
+ **/
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"resolution", "category", "bucket_start"}),
+        indexes = @Index(columnList = "resolution, bucket_start"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategorySalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * length of the bucket
+     */
+    @Column(name = "resolution", nullable = false)
+    private SalesResolution resolution;
+
+    /**
+     * category of the books when their sales were added
+     */
+    @Column(name = "category", nullable = false)
+    private Category category;
+
+    /**
+     * epoch milliseconds of the start of the bucket
+     */
+    @Column(name = "bucket_start", nullable = false)
+    private long bucketStart;
+
+    /**
+     * Copies of the books of the category sold in the bucket
+     */
+    private long unitsSold;
+
+    /**
+     * Price of the sold copies
+     */
+    private double revenue;
+}
@@ -0,0 +1,42 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CategorySalesRollupRepository extends JpaRepository<CategorySalesRollup, Long> {
+
+    /**
+     * Buckets of a category starting in [from, to), ordered by start
+     *
+     * @param resolution
+     * @param category
+     * @param from       epoch milliseconds, inclusive
+     * @param to         epoch milliseconds, exclusive
+     * @return
+     */
+    @Query("select r from CategorySalesRollup r where r.resolution = ?1 and r.category = ?2 " +
+            "and r.bucketStart >= ?3 and r.bucketStart < ?4 order by r.bucketStart")
+    List<CategorySalesRollup> findBuckets(SalesResolution resolution, Category category, long from, long to);
+
+    /**
+     * Buckets of every category added up, starting in [from, to)
+     *
+     * @param resolution
+     * @param from       epoch milliseconds, inclusive
+     * @param to         epoch milliseconds, exclusive
+     * @return rows of bucket start, units sold and revenue ordered by bucket start
+     */
+    @Query("select r.bucketStart, sum(r.unitsSold), sum(r.revenue) from CategorySalesRollup r " +
+            "where r.resolution = ?1 and r.bucketStart >= ?2 and r.bucketStart < ?3 " +
+            "group by r.bucketStart order by r.bucketStart")
+    List<Object[]> sumBuckets(SalesResolution resolution, long from, long to);
+
+    @Modifying
+    @Query("delete from CategorySalesRollup r where r.resolution = ?1 and r.bucketStart < ?2")
+    int deleteOlderThan(SalesResolution resolution, long bucketStart);
+}
@@ -0,0 +1,53 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.Category;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Representation of CategoryStatistics Table
+ * The totals of a category are split over several slots so that concurrent sells
+ * of different books do not all wait for the lock of the same row.
+ **/
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryStatistics {
+    /**
+     * category value * number of slots + slot
+     */
+    @Id
+    private int id;
+
+    /**
+     * category the totals belong to
+     */
+    private Category category;
+
+    /**
+     * Number of registered books
+     */
+    private long books;
+
+    /**
+     * Copies of the books available in store
+     */
+    private long unitsInStock;
+
+    /**
+     * Copies of the books sold
+     */
+    private long unitsSold;
+
+    /**
+     * Price of the sold copies
+     */
+    private double revenue;
+}
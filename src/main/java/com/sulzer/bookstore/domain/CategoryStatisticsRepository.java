@@ -0,0 +1,49 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.constants.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface CategoryStatisticsRepository extends JpaRepository<CategoryStatistics, Integer> {
+
+    /**
+     * Number of rows per category
+     */
+    int SLOTS = 8;
+
+    List<CategoryStatistics> findAllByCategory(Category category);
+
+    @Modifying
+    @Query("update CategoryStatistics s set s.books = s.books + ?2, s.unitsInStock = s.unitsInStock + ?3, " +
+            "s.unitsSold = s.unitsSold + ?4, s.revenue = s.revenue + ?5 where s.id = ?1")
+    int add(int id, long books, long unitsInStock, long unitsSold, double revenue);
+
+    /**
+     * Add to the stock and sold counts of the category of a book without loading the book.
+     * The revenue changes by the sold count at the price of the book.
+     * Must run after the book itself is updated, in the same transaction.
+     *
+     * @param bookId
+     * @param stockDelta change of the total count of the book
+     * @param soldDelta  change of the sold count of the book
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query(value = "update category_statistics s set s.units_in_stock = s.units_in_stock + ?2, " +
+            "s.units_sold = s.units_sold + ?3, s.revenue = s.revenue + ?3 * (select b.price from book b where b.id = ?1) " +
+            "where s.id = (select b.category * " + SLOTS + " + ABS(MOD(b.id, " + SLOTS + ")) from book b where b.id = ?1)",
+            nativeQuery = true)
+    int addCounts(Long bookId, long stockDelta, long soldDelta);
+
+    /**
+     * Totals of every category computed from the book table
+     *
+     * @return rows of category, books, units in stock, units sold and revenue
+     */
+    @Query("select b.category, count(b), sum(b.totalCount), sum(b.sold), sum(b.price * b.sold) " +
+            "from Book b where b.category is not null group by b.category")
+    List<Object[]> summarizeBooks();
+}
@@ -0,0 +1,42 @@
+package com.sulzer.bookstore.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets one in rate messages of a logger through, for a logger too verbose to log every message, like
+ * org.hibernate.SQL with every statement. A rate of 1 lets every message through and 0 none.
+ * It is called before the event is created, so a dropped message is not formatted or queued.
+ * Checks of the level have no message and are not sampled, so every message is only counted once.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong messages = new AtomicLong();
+
+    private String loggerName;
+    private long rate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || !logger.getName().equals(loggerName)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (rate > 0 && messages.getAndIncrement() % rate == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setRate(long rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.sulzer.bookstore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times every method of a repository.
+ * The timers of successful calls are looked up by method, so a call does not build tags.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    static final String METRIC = "bookstore.repository";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    private final String repository;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry supplied on the first call, repositories are created before the registry
+     * @param repository    name of the repository tag
+     */
+    public RepositoryMetricsInterceptor(Supplier<MeterRegistry> meterRegistry, String repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            timers.computeIfAbsent(invocation.getMethod(), method -> timer(method, "none"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(invocation.getMethod(), e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(Method method, String exception) {
+        return Timer.builder(METRIC)
+                .description("Latency of the repository methods")
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .register(meterRegistry.get());
+    }
+}
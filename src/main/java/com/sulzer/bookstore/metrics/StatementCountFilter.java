@@ -0,0 +1,82 @@
+package com.sulzer.bookstore.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the number of SQL statements of a request, tagged like http.server.requests.
+ * Statements run on other threads, like the writes of /api/book-stream, are not counted.
+ * The summaries are looked up by method, uri and status, so a request does not build tags.
+ */
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    static final String METRIC = "bookstore.request.statements";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public StatementCountFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int before = StatementCounter.current();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Key key = new Key(request.getMethod(), pattern == null ? "UNKNOWN" : pattern.toString(),
+                    response.getStatus());
+            summaries.computeIfAbsent(key, this::summary).record(StatementCounter.current() - before);
+        }
+    }
+
+    private DistributionSummary summary(Key key) {
+        return DistributionSummary.builder(METRIC)
+                .description("SQL statements prepared by Hibernate per request")
+                .tag("method", key.method)
+                .tag("uri", key.uri)
+                .tag("status", Integer.toString(key.status))
+                .register(meterRegistry);
+    }
+
+    private static final class Key {
+        private final String method;
+        private final String uri;
+        private final int status;
+
+        Key(String method, String uri, int status) {
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return status == key.status && method.equals(key.method) && uri.equals(key.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, uri, status);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.sulzer.bookstore.reactive;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Connection pool of the reactive stack on bookstore.r2dbc.url.
+ * A request waiting for a connection is queued in the pool without holding a thread.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+public class R2dbcConfig {
+
+    /**
+     * @param url         R2DBC url of the database, the driver is chosen by its protocol
+     * @param username
+     * @param password
+     * @param initialSize connections opened on startup
+     * @param maxSize     maximum connections, as spring.datasource.hikari.maximum-pool-size for the servlet stack
+     * @return
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionPool(@Value("${bookstore.r2dbc.url}") String url,
+                                         @Value("${bookstore.r2dbc.username:}") String username,
+                                         @Value("${bookstore.r2dbc.password:}") String password,
+                                         @Value("${bookstore.r2dbc.pool.initial-size:10}") int initialSize,
+                                         @Value("${bookstore.r2dbc.pool.max-size:10}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    /**
+     * Connections in use and requests waiting for one, like the hikaricp.connections gauges of the servlet stack.
+     *
+     * @param connectionPool
+     * @return
+     */
+    @Bean
+    public MeterBinder connectionPoolMetrics(ConnectionPool connectionPool) {
+        return registry -> {
+            gauge(registry, connectionPool, "r2dbc.pool.acquired", PoolMetrics::acquiredSize);
+            gauge(registry, connectionPool, "r2dbc.pool.idle", PoolMetrics::idleSize);
+            gauge(registry, connectionPool, "r2dbc.pool.pending", PoolMetrics::pendingAcquireSize);
+        };
+    }
+
+    private static void gauge(MeterRegistry registry, ConnectionPool connectionPool,
+                              String name, ToIntFunction<PoolMetrics> value) {
+        Gauge.builder(name, connectionPool, pool -> pool.getMetrics().map(value::applyAsInt).orElse(0))
+                .register(registry);
+    }
+}
@@ -0,0 +1,208 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Statements on the book table for the reactive stack, the same as the queries of BookRepository.
+ * Every method runs on the connection of the caller, so several of them can share a transaction.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveBookRepository {
+
+    private static final String COLUMNS = "id, title, author, category, price, total_count, sold, version";
+
+    public Mono<Book> findById(Connection connection, Long id) {
+        return query(connection, "select " + COLUMNS + " from book where id = ?", id).next();
+    }
+
+    /**
+     * The book with a write lock, held until the end of the transaction
+     *
+     * @param connection
+     * @param id
+     * @return
+     */
+    public Mono<Book> findByIdForUpdate(Connection connection, Long id) {
+        return query(connection, "select " + COLUMNS + " from book where id = ? for update", id).next();
+    }
+
+    public Flux<Book> findAllById(Connection connection, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        String markers = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return query(connection, "select " + COLUMNS + " from book where id in (" + markers + ")", ids.toArray());
+    }
+
+    public Mono<Boolean> existsById(Connection connection, Long id) {
+        return Flux.from(connection.createStatement("select 1 from book where id = ?").bind(0, id).execute())
+                .flatMap(result -> result.map((row, metadata) -> true))
+                .next()
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * All the books ordered by id, emitted while they are read
+     *
+     * @param connection
+     * @return
+     */
+    public Flux<Book> findAll(Connection connection) {
+        return query(connection, "select " + COLUMNS + " from book order by id");
+    }
+
+    public Flux<Book> findByIdGreaterThanOrderById(Connection connection, Long id, int size) {
+        return query(connection, "select " + COLUMNS + " from book where id > ? order by id limit ?", id, size);
+    }
+
+    /**
+     * Same match and order as BookRepository.findAllBookByCategoryAndKeyword, the keyword is escaped
+     * with BookRepository.escapeLike
+     *
+     * @param connection
+     * @param keyword
+     * @param category
+     * @return
+     */
+    public Flux<Book> findAllBookByCategoryAndKeyword(Connection connection, String keyword, int category) {
+        String escaped = BookRepository.escapeLike(keyword);
+        return query(connection, "select " + COLUMNS + " from book b where " +
+                "(b.title like concat('%', ?, '%') OR CAST(b.id as CHAR) like concat('%', ?, '%') " +
+                "OR LOWER(b.author) like concat('%', ?, '%')) AND b.category = ? order by b.id",
+                escaped, escaped, escaped, category);
+    }
+
+    /**
+     * Same match as BookRepository.countNumberOfBooksSold, the keyword is escaped with BookRepository.escapeLike
+     *
+     * @param connection
+     * @param keyword
+     * @param category
+     * @return
+     */
+    public Mono<Long> countNumberOfBooksSold(Connection connection, String keyword, int category) {
+        String escaped = BookRepository.escapeLike(keyword);
+        Statement statement = connection.createStatement("select sum(b.sold) from book b where " +
+                "(b.title like concat('%', ?, '%') OR CAST(b.id as CHAR) like concat('%', ?, '%') " +
+                "OR LOWER(b.author) like concat('%', ?, '%')) AND b.category = ? AND b.sold > 0")
+                .bind(0, escaped).bind(1, escaped).bind(2, escaped).bind(3, category);
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map((row, metadata) -> {
+                    Number sold = (Number) row.get(0);
+                    return sold == null ? 0L : sold.longValue();
+                }))
+                .next();
+    }
+
+    public Mono<Integer> insert(Connection connection, Book book) {
+        Statement statement = connection.createStatement("insert into book " +
+                "(id, title, author, category, price, total_count, sold, version) values (?, ?, ?, ?, ?, ?, ?, ?)")
+                .bind(0, book.getId());
+        bindNullable(statement, 1, book.getTitle(), String.class);
+        bindNullable(statement, 2, book.getAuthor(), String.class);
+        bindNullable(statement, 3, categoryValue(book), Integer.class);
+        statement.bind(4, book.getPrice()).bind(5, book.getTotalCount()).bind(6, book.getSold())
+                .bind(7, book.getVersion());
+        return rowsUpdated(statement);
+    }
+
+    /**
+     * Replace title, author, category, price and total count of a book, sold is kept
+     *
+     * @param connection
+     * @param book
+     * @return number of updated rows
+     */
+    public Mono<Integer> update(Connection connection, Book book) {
+        Statement statement = connection.createStatement("update book set title = ?, author = ?, category = ?, " +
+                "price = ?, total_count = ?, version = version + 1 where id = ?");
+        bindNullable(statement, 0, book.getTitle(), String.class);
+        bindNullable(statement, 1, book.getAuthor(), String.class);
+        bindNullable(statement, 2, categoryValue(book), Integer.class);
+        statement.bind(3, book.getPrice()).bind(4, book.getTotalCount()).bind(5, book.getId());
+        return rowsUpdated(statement);
+    }
+
+    /**
+     * Add copies to the stock without loading the book, the total count cannot become negative
+     *
+     * @param connection
+     * @param id
+     * @param quantity
+     * @return number of updated rows, 0 if the book is missing or the total count would be negative
+     */
+    public Mono<Integer> addStock(Connection connection, Long id, int quantity) {
+        return rowsUpdated(connection.createStatement("update book set total_count = total_count + ?, " +
+                "version = version + 1 where id = ? and total_count + ? >= 0")
+                .bind(0, quantity).bind(1, id).bind(2, quantity));
+    }
+
+    /**
+     * Same conditional update as BookRepository.sell
+     *
+     * @param connection
+     * @param id
+     * @param quantity
+     * @return number of updated rows, 0 if the book is missing or there are not enough copies in store
+     */
+    public Mono<Integer> sell(Connection connection, Long id, int quantity) {
+        return rowsUpdated(connection.createStatement("update book set total_count = total_count - ?, " +
+                "sold = sold + ?, version = version + 1 where id = ? and total_count >= ?")
+                .bind(0, quantity).bind(1, quantity).bind(2, id).bind(3, quantity));
+    }
+
+    static Mono<Integer> rowsUpdated(Statement statement) {
+        return Flux.from(statement.execute())
+                .flatMap(Result::getRowsUpdated)
+                .reduce(0, Integer::sum);
+    }
+
+    static void bindNullable(Statement statement, int index, Object value, Class<?> type) {
+        if (value == null) {
+            statement.bindNull(index, type);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static Flux<Book> query(Connection connection, String sql, Object... parameters) {
+        Statement statement = connection.createStatement(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.bind(i, parameters[i]);
+        }
+        return Flux.from(statement.execute()).flatMap(result -> result.map(ReactiveBookRepository::toBook));
+    }
+
+    private static Book toBook(Row row, RowMetadata metadata) {
+        Number category = (Number) row.get("category");
+        return Book.builder()
+                .id(((Number) row.get("id")).longValue())
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .category(category == null ? null : Category.valueOf(category.intValue()))
+                .price(((Number) row.get("price")).floatValue())
+                .totalCount(((Number) row.get("total_count")).intValue())
+                .sold(((Number) row.get("sold")).intValue())
+                .version(((Number) row.get("version")).longValue())
+                .build();
+    }
+
+    private static Integer categoryValue(Book book) {
+        return book.getCategory() == null ? null : book.getCategory().getValue();
+    }
+}
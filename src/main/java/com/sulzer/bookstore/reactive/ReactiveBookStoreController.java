@@ -0,0 +1,141 @@
+package com.sulzer.bookstore.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The endpoints of BookStoreController that only depend on the database, with the same paths, parameters and bodies:
+ * 1) to 11) and 16). The responses are written when the database has answered, without holding a thread
+ * while waiting for it. Books are not returned with an ETag, the import, the keyword search with counts,
+ * the suggestions, the bestsellers, the sales history and the cache statistics are only served by the servlet stack.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api")
+public class ReactiveBookStoreController {
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ReactiveBookStoreService bookStoreService;
+
+    private final ObjectWriter bookDtoWriter;
+
+    @Autowired
+    public ReactiveBookStoreController(ReactiveBookStoreService bookStoreService, ObjectMapper objectMapper) {
+        this.bookStoreService = bookStoreService;
+        this.bookDtoWriter = objectMapper.writerFor(BookDto.class);
+    }
+
+    @PostMapping("/add-new-book")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> addNewBook(@Valid @RequestBody BookDto bookDto) {
+        return bookStoreService.addNewBook(bookDto);
+    }
+
+    @PutMapping("/add-book/{id}/{quantityToAdd}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> addBook(@PathVariable Long id,
+                              @PathVariable int quantityToAdd) {
+        return bookStoreService.addBook(id, quantityToAdd);
+    }
+
+    @GetMapping("/book/{id}")
+    public Mono<BookDto> getBookById(@PathVariable Long id) {
+        return bookStoreService.getBookById(id);
+    }
+
+    @GetMapping("/books-by-id")
+    public Mono<BookBatchDto> getBooksById(@RequestParam List<Long> ids) {
+        return bookStoreService.getBooksById(ids);
+    }
+
+    @GetMapping("/book-list")
+    public Flux<BookDto> getAllBooks() {
+        return bookStoreService.getAllBooks();
+    }
+
+    /**
+     * Newline delimited JSON, one book per line, written while the books are read
+     *
+     * @return
+     */
+    @GetMapping(value = "/book-stream", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<String> streamAllBooks() {
+        return bookStoreService.getAllBooks().map(bookDto -> {
+            try {
+                return bookDtoWriter.writeValueAsString(bookDto) + "\n";
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @GetMapping("/book-page")
+    public Mono<BookPageDto> getBookPage(@RequestParam(required = false) Long after,
+                                         @RequestParam(defaultValue = "100") int size) {
+        return bookStoreService.getBooksAfter(after, size);
+    }
+
+    @GetMapping("/number-of-books/{id}")
+    public Mono<Integer> getNumberOfBooksById(@PathVariable Long id) {
+        return bookStoreService.getNumberOfBooksById(id);
+    }
+
+    @PutMapping("/books/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> updateBook(@PathVariable Long id,
+                                 @Valid @RequestBody BookDto bookDto) {
+        return bookStoreService.updateBook(id, bookDto);
+    }
+
+    @PutMapping("/sell-book/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> sellBook(@PathVariable Long id) {
+        return bookStoreService.sellBook(id);
+    }
+
+    @PutMapping("/sell-books")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> sellBooks(@Valid @RequestBody List<SellDto> sellDto) {
+        return bookStoreService.sellBooks(sellDto);
+    }
+
+    @GetMapping("/books")
+    public Flux<BookDto> getBookByCategoryKeyWord(@RequestParam String keyword,
+                                                  @RequestParam Category category) {
+        return bookStoreService.getBookByCategoryKeyWord(keyword, category);
+    }
+
+    @GetMapping("/number-of-books")
+    public Mono<Integer> getNumberOfBooksSoldByCategoryAndKeyword(@RequestParam String keyword,
+                                                                  @RequestParam Category category) {
+        return bookStoreService.getNumberOfBooksSoldByCategoryAndKeyword(keyword, category);
+    }
+
+    @GetMapping("/statistics")
+    public Flux<CategoryStatisticsDto> getAllCategoryStatistics() {
+        return bookStoreService.getAllCategoryStatistics();
+    }
+
+    @GetMapping("/statistics/{category}")
+    public Mono<CategoryStatisticsDto> getCategoryStatistics(@PathVariable Category category) {
+        return bookStoreService.getCategoryStatistics(category);
+    }
+}
@@ -0,0 +1,45 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Same operations as BookStoreService, completed when the database has answered
+ */
+public interface ReactiveBookStoreService {
+    Mono<Void> addNewBook(BookDto bookDto);
+
+    Mono<Void> addBook(Long id, int quantityToAdd);
+
+    Mono<BookDto> getBookById(Long id);
+
+    Mono<BookBatchDto> getBooksById(List<Long> ids);
+
+    Flux<BookDto> getAllBooks();
+
+    Mono<BookPageDto> getBooksAfter(Long afterId, int size);
+
+    Mono<Integer> getNumberOfBooksById(Long id);
+
+    Mono<Void> updateBook(Long id, BookDto bookDto);
+
+    Mono<Void> sellBook(Long id);
+
+    Mono<Void> sellBooks(List<SellDto> sellDtos);
+
+    Flux<BookDto> getBookByCategoryKeyWord(String keyword, Category category);
+
+    Mono<Integer> getNumberOfBooksSoldByCategoryAndKeyword(String keyword, Category category);
+
+    Mono<CategoryStatisticsDto> getCategoryStatistics(Category category);
+
+    Flux<CategoryStatisticsDto> getAllCategoryStatistics();
+}
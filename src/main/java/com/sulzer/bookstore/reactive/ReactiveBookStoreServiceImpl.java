@@ -0,0 +1,285 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.exceptions.DuplicateResourceException;
+import com.sulzer.bookstore.service.mapper.BookMapper;
+import io.r2dbc.spi.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Same semantics and errors as BookStoreServiceImpl with the database inventory and search, without its caches
+ * and in-memory indexes. Books are changed with conditional updates, or under the row lock of the book,
+ * so no change is retried.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+class ReactiveBookStoreServiceImpl implements ReactiveBookStoreService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveBookStoreServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final ReactiveTransactions transactions;
+
+    private final ReactiveBookRepository bookRepository;
+
+    private final ReactiveCategoryStatisticsStore categoryStatisticsStore;
+
+    private final BookMapper bookMapper;
+
+    @Autowired
+    public ReactiveBookStoreServiceImpl(ReactiveTransactions transactions, ReactiveBookRepository bookRepository,
+                                        ReactiveCategoryStatisticsStore categoryStatisticsStore,
+                                        BookMapper bookMapper) {
+        this.transactions = transactions;
+        this.bookRepository = bookRepository;
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.bookMapper = bookMapper;
+    }
+
+    /**
+     * Register new book with new identifier, with the statistics of its category
+     *
+     * @param bookDto
+     * @return
+     */
+    @Override
+    public Mono<Void> addNewBook(BookDto bookDto) {
+        Book book = bookMapper.toBook(bookDto);
+        return transactions.inTransaction(connection -> bookRepository.existsById(connection, book.getId())
+                .flatMap(exists -> {
+                    if (exists) {
+                        return Mono.error(new DuplicateResourceException("Book with same id present. " +
+                                "Either use update methods to update the book counts or use addBook(Long id, int quantityToAdd) methods"));
+                    }
+                    LOGGER.debug("No duplicate of book {} is found.", book.getId());
+                    return bookRepository.insert(connection, book)
+                            .then(categoryStatisticsStore.recordAdded(connection, book));
+                }));
+    }
+
+    /**
+     * Add copies of a registered book with one conditional update
+     *
+     * @param id
+     * @param quantityToAdd
+     * @return
+     */
+    @Override
+    public Mono<Void> addBook(Long id, int quantityToAdd) {
+        return transactions.inTransaction(connection -> bookRepository.addStock(connection, id, quantityToAdd)
+                .flatMap(updated -> updated > 0
+                        ? categoryStatisticsStore.recordCountsChanged(connection, id, quantityToAdd, 0)
+                        : failedUpdate(connection, id,
+                        new BookNotFoundException("Book with id:" + id + " is not registered. Use addNewBook to register."),
+                        new BadRequestException("TotalCount cannot be negative."))));
+    }
+
+    @Override
+    public Mono<BookDto> getBookById(Long id) {
+        return transactions.read(connection -> bookRepository.findById(connection, id).flux())
+                .next()
+                .switchIfEmpty(Mono.error(() -> new BookNotFoundException("Book with id:" + id + " is not found.")))
+                .map(bookMapper::toDto);
+    }
+
+    /**
+     * Get the books of several ids with one query, ids of books which are not found are reported
+     *
+     * @param ids
+     * @return books in the order of the ids and the ids which are not found
+     */
+    @Override
+    public Mono<BookBatchDto> getBooksById(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            return Mono.error(new BadRequestException("Number of ids should be between 1 and " + MAX_BATCH_SIZE + "."));
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        return transactions.read(connection -> bookRepository.findAllById(connection, distinctIds))
+                .collectMap(Book::getId)
+                .map(bookById -> {
+                    List<BookDto> books = new ArrayList<>(bookById.size());
+                    List<Long> missingIds = new ArrayList<>();
+                    for (Long id : distinctIds) {
+                        Book book = bookById.get(id);
+                        if (book == null) {
+                            missingIds.add(id);
+                        } else {
+                            books.add(bookMapper.toDto(book));
+                        }
+                    }
+                    return BookBatchDto.builder().books(books).missingIds(missingIds).build();
+                });
+    }
+
+    /**
+     * All the books ordered by id, emitted while they are read from the database
+     *
+     * @return
+     */
+    @Override
+    public Flux<BookDto> getAllBooks() {
+        return transactions.read(bookRepository::findAll).map(bookMapper::toDto);
+    }
+
+    /**
+     * One page of all the books ordered by id, starting after the given cursor
+     *
+     * @param afterId cursor returned with the previous page, null for the first page
+     * @param size    number of books in the page
+     * @return
+     */
+    @Override
+    public Mono<BookPageDto> getBooksAfter(Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.error(new BadRequestException("Page size should be between 1 and " + MAX_PAGE_SIZE + "."));
+        }
+        return transactions.read(connection -> bookRepository.findByIdGreaterThanOrderById(connection,
+                afterId == null ? Long.MIN_VALUE : afterId, size))
+                .collectList()
+                .map(books -> BookPageDto.builder()
+                        .books(bookMapper.toDtoList(books))
+                        .nextCursor(books.size() < size ? null : books.get(books.size() - 1).getId())
+                        .build());
+    }
+
+    @Override
+    public Mono<Integer> getNumberOfBooksById(Long id) {
+        return transactions.read(connection -> bookRepository.findById(connection, id).flux())
+                .next()
+                .map(Book::getTotalCount)
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * Update a book under its row lock, sold is kept
+     *
+     * @param id
+     * @param bookDto
+     * @return
+     */
+    @Override
+    public Mono<Void> updateBook(Long id, BookDto bookDto) {
+        if (bookDto.getId() != null && !bookDto.getId().equals(id)) {
+            return Mono.error(new BadRequestException("Id cannot be updated."));
+        }
+        return transactions.inTransaction(connection -> bookRepository.findByIdForUpdate(connection, id)
+                .switchIfEmpty(Mono.error(() -> new BookNotFoundException("Book with id:" + id + " is not found.")))
+                .flatMap(previous -> {
+                    Book book = bookMapper.toBook(bookDto);
+                    book.setId(id);
+                    book.setSold(previous.getSold());
+                    LOGGER.debug("Book {} is mapped and ready to be saved.", id);
+                    return bookRepository.update(connection, book)
+                            .then(categoryStatisticsStore.recordUpdated(connection, previous, book));
+                }));
+    }
+
+    /**
+     * Sell one copy with one conditional update
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public Mono<Void> sellBook(Long id) {
+        LOGGER.debug("Selling one copy of book {}.", id);
+        return transactions.inTransaction(connection -> sell(connection, id, 1)
+                .then(categoryStatisticsStore.recordCountsChanged(connection, id, -1, 1)));
+    }
+
+    /**
+     * Sell a list of books in one transaction, in id order.
+     * Quantities of the same book are merged and the whole order is sold or none of it.
+     *
+     * @param sellDtos
+     * @return
+     */
+    @Override
+    public Mono<Void> sellBooks(List<SellDto> sellDtos) {
+        Map<Long, Integer> quantityById = new TreeMap<>();
+        sellDtos.forEach(sellDto -> quantityById.merge(sellDto.getBookId(), sellDto.getQuantity(), Integer::sum));
+        if (quantityById.isEmpty()) {
+            return Mono.empty();
+        }
+        return transactions.inTransaction(connection -> Flux.fromIterable(quantityById.entrySet())
+                .concatMap(sale -> sell(connection, sale.getKey(), sale.getValue()))
+                .thenMany(bookRepository.findAllById(connection, quantityById.keySet()))
+                .collectList()
+                .flatMap(books -> categoryStatisticsStore.recordSales(connection, books, quantityById)));
+    }
+
+    /**
+     * Same match as BookStoreServiceImpl.getBookByCategoryKeyWord with the database search engine
+     *
+     * @param keyword
+     * @param category
+     * @return
+     */
+    @Override
+    public Flux<BookDto> getBookByCategoryKeyWord(String keyword, Category category) {
+        LOGGER.debug("Fetch all the books by category {} and keyword {}.", category, keyword);
+        String key = keyword.toLowerCase(Locale.ROOT);
+        return transactions.read(connection -> bookRepository.findAllBookByCategoryAndKeyword(connection, key,
+                category.getValue()))
+                .map(bookMapper::toDto);
+    }
+
+    @Override
+    public Mono<Integer> getNumberOfBooksSoldByCategoryAndKeyword(String keyword, Category category) {
+        LOGGER.debug("Total number of books sold by category {} and keyword {}.", category, keyword);
+        String key = keyword.toLowerCase(Locale.ROOT);
+        return transactions.read(connection -> bookRepository.countNumberOfBooksSold(connection, key,
+                category.getValue()).flux())
+                .next()
+                .map(Long::intValue);
+    }
+
+    @Override
+    public Mono<CategoryStatisticsDto> getCategoryStatistics(Category category) {
+        return categoryStatisticsStore.getStatistics(category);
+    }
+
+    @Override
+    public Flux<CategoryStatisticsDto> getAllCategoryStatistics() {
+        return categoryStatisticsStore.getAllStatistics();
+    }
+
+    //Nothing is sold if the book is missing or there are not enough copies in store
+    private Mono<Void> sell(Connection connection, Long id, int quantity) {
+        return bookRepository.sell(connection, id, quantity)
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : failedUpdate(connection, id,
+                        new BookNotFoundException("Book with id: " + id + " is not found."),
+                        new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.")));
+    }
+
+    //A conditional update changed nothing, either the book is missing or the condition does not hold
+    private Mono<Void> failedUpdate(Connection connection, Long id, RuntimeException notFound,
+                                    RuntimeException conditionFailed) {
+        return bookRepository.existsById(connection, id)
+                .flatMap(exists -> Mono.error(exists ? conditionFailed : notFound));
+    }
+}
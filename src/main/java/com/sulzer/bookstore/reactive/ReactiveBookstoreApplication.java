@@ -0,0 +1,48 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.service.mapper.BookMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Reactive stack of the bookstore: the /api endpoints on Netty, with the database read and written through R2DBC.
+ * No request holds a thread or a connection while it waits for the database, so a slow database fills
+ * the queue of the connection pool instead of the threads of the server.
+ * It runs on the tables of BookstoreApplication and has neither JPA nor a JDBC datasource.
+ * The customizer of the server for server.max-http-header-size and server.use-forward-headers is excluded,
+ * it is built for the Reactor Netty of Spring Boot, which is older than the one of the R2DBC drivers.
+ * <p>
+ * The reactive stack is only compiled with the reactive maven profile. Its components are conditional on a reactive
+ * web application, so BookstoreApplication, which scans their package too, skips them.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@SpringBootApplication(scanBasePackageClasses = {ReactiveBookstoreApplication.class, BookMapper.class},
+        exclude = {DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+                HibernateJpaAutoConfiguration.class, EmbeddedWebServerFactoryCustomizerAutoConfiguration.class})
+public class ReactiveBookstoreApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactiveBookstoreApplication.class);
+        //Spring MVC is on the classpath too, it would be chosen otherwise
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.run(args);
+    }
+
+    /**
+     * Netty, Spring Boot would choose Tomcat, which is on the classpath for the servlet stack
+     *
+     * @return
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,109 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.CategoryStatistics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.sulzer.bookstore.domain.CategoryStatisticsRepository.SLOTS;
+
+/**
+ * Statements on the category_statistics table for the reactive stack, the same as CategoryStatisticsRepository.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveCategoryStatisticsRepository {
+
+    private static final String COLUMNS = "id, category, books, units_in_stock, units_sold, revenue";
+
+    public Flux<CategoryStatistics> findAll(Connection connection) {
+        return query(connection.createStatement("select " + COLUMNS + " from category_statistics"));
+    }
+
+    public Flux<CategoryStatistics> findAllByCategory(Connection connection, Category category) {
+        return query(connection.createStatement("select " + COLUMNS + " from category_statistics where category = ?")
+                .bind(0, category.getValue()));
+    }
+
+    public Mono<Long> count(Connection connection) {
+        return Flux.from(connection.createStatement("select count(*) from category_statistics").execute())
+                .flatMap(result -> result.map((row, metadata) -> ((Number) row.get(0)).longValue()))
+                .next();
+    }
+
+    public Mono<Integer> add(Connection connection, int id, long books, long unitsInStock, long unitsSold,
+                             double revenue) {
+        return ReactiveBookRepository.rowsUpdated(connection.createStatement("update category_statistics set " +
+                "books = books + ?, units_in_stock = units_in_stock + ?, units_sold = units_sold + ?, " +
+                "revenue = revenue + ? where id = ?")
+                .bind(0, books).bind(1, unitsInStock).bind(2, unitsSold).bind(3, revenue).bind(4, id));
+    }
+
+    /**
+     * Same as CategoryStatisticsRepository.addCounts, must run after the book is updated, in the same transaction
+     *
+     * @param connection
+     * @param bookId
+     * @param stockDelta
+     * @param soldDelta
+     * @return
+     */
+    public Mono<Integer> addCounts(Connection connection, Long bookId, long stockDelta, long soldDelta) {
+        return ReactiveBookRepository.rowsUpdated(connection.createStatement("update category_statistics s set " +
+                "s.units_in_stock = s.units_in_stock + ?, s.units_sold = s.units_sold + ?, " +
+                "s.revenue = s.revenue + ? * (select b.price from book b where b.id = ?) " +
+                "where s.id = (select b.category * " + SLOTS + " + ABS(MOD(b.id, " + SLOTS + ")) from book b where b.id = ?)")
+                .bind(0, stockDelta).bind(1, soldDelta).bind(2, soldDelta).bind(3, bookId).bind(4, bookId));
+    }
+
+    /**
+     * Replace the rows with the totals computed from the book table, in the first slot of every category
+     *
+     * @param connection
+     * @return
+     */
+    public Mono<Void> rebuild(Connection connection) {
+        Statement insert = connection.createStatement("insert into category_statistics " +
+                "(id, category, books, units_in_stock, units_sold, revenue) values (?, ?, 0, 0, 0, 0)");
+        for (Category category : Category.values()) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (category.ordinal() > 0 || slot > 0) {
+                    insert.add();
+                }
+                insert.bind(0, category.getValue() * SLOTS + slot).bind(1, category.getValue());
+            }
+        }
+        Statement summarize = connection.createStatement("update category_statistics s set " +
+                "s.books = (select count(*) from book b where b.category = s.category), " +
+                "s.units_in_stock = (select coalesce(sum(b.total_count), 0) from book b where b.category = s.category), " +
+                "s.units_sold = (select coalesce(sum(b.sold), 0) from book b where b.category = s.category), " +
+                "s.revenue = (select coalesce(sum(b.price * b.sold), 0) from book b where b.category = s.category) " +
+                "where MOD(s.id, " + SLOTS + ") = 0");
+        return ReactiveBookRepository.rowsUpdated(connection.createStatement("delete from category_statistics"))
+                .then(ReactiveBookRepository.rowsUpdated(insert))
+                .then(ReactiveBookRepository.rowsUpdated(summarize))
+                .then();
+    }
+
+    private static Flux<CategoryStatistics> query(Statement statement) {
+        return Flux.from(statement.execute())
+                .flatMap(result -> result.map(ReactiveCategoryStatisticsRepository::toCategoryStatistics));
+    }
+
+    private static CategoryStatistics toCategoryStatistics(Row row, RowMetadata metadata) {
+        return CategoryStatistics.builder()
+                .id(((Number) row.get("id")).intValue())
+                .category(Category.valueOf(((Number) row.get("category")).intValue()))
+                .books(((Number) row.get("books")).longValue())
+                .unitsInStock(((Number) row.get("units_in_stock")).longValue())
+                .unitsSold(((Number) row.get("units_sold")).longValue())
+                .revenue(((Number) row.get("revenue")).doubleValue())
+                .build();
+    }
+}
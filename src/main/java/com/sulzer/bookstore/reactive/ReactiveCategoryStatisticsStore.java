@@ -0,0 +1,172 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.CategoryStatistics;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import io.r2dbc.spi.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.sulzer.bookstore.domain.CategoryStatisticsRepository.SLOTS;
+
+/**
+ * Per category totals of the reactive stack, kept as CategoryStatisticsStore keeps them,
+ * so both stacks can run on the same tables.
+ * The record methods must run on the connection of the transaction that changes the book.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveCategoryStatisticsStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveCategoryStatisticsStore.class);
+
+    private final ReactiveCategoryStatisticsRepository categoryStatisticsRepository;
+
+    private final ReactiveTransactions transactions;
+
+    @Autowired
+    public ReactiveCategoryStatisticsStore(ReactiveCategoryStatisticsRepository categoryStatisticsRepository,
+                                           ReactiveTransactions transactions) {
+        this.categoryStatisticsRepository = categoryStatisticsRepository;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Build the totals from the book table if they are not stored yet, before the server accepts requests.
+     */
+    @PostConstruct
+    public void initialize() {
+        transactions.inTransaction(connection -> categoryStatisticsRepository.count(connection)
+                .filter(rows -> rows != Category.values().length * SLOTS)
+                .flatMap(rows -> categoryStatisticsRepository.rebuild(connection)
+                        .doOnSuccess(done -> LOGGER.info("Category statistics are rebuilt from the book table."))))
+                .block();
+    }
+
+    /**
+     * Totals of one category
+     *
+     * @param category
+     * @return
+     */
+    public Mono<CategoryStatisticsDto> getStatistics(Category category) {
+        return transactions.read(connection -> categoryStatisticsRepository.findAllByCategory(connection, category))
+                .reduce(CategoryStatisticsDto.builder().category(category).build(),
+                        ReactiveCategoryStatisticsStore::add);
+    }
+
+    /**
+     * Totals of every category, ordered by category
+     *
+     * @return
+     */
+    public Flux<CategoryStatisticsDto> getAllStatistics() {
+        return transactions.read(categoryStatisticsRepository::findAll)
+                .collect(() -> {
+                    Map<Category, CategoryStatisticsDto> statistics = new EnumMap<>(Category.class);
+                    for (Category category : Category.values()) {
+                        statistics.put(category, CategoryStatisticsDto.builder().category(category).build());
+                    }
+                    return statistics;
+                }, (statistics, row) -> add(statistics.get(row.getCategory()), row))
+                .flatMapIterable(Map::values);
+    }
+
+    public Mono<Void> recordAdded(Connection connection, Book book) {
+        if (book.getCategory() == null) {
+            return Mono.empty();
+        }
+        return categoryStatisticsRepository.add(connection, slotId(book), 1, book.getTotalCount(), book.getSold(),
+                revenue(book)).then();
+    }
+
+    /**
+     * A book is replaced by its new version, possibly in another category
+     *
+     * @param connection
+     * @param previous   book as it was before the update
+     * @param book       book as it is saved
+     * @return
+     */
+    public Mono<Void> recordUpdated(Connection connection, Book previous, Book book) {
+        //Rows are updated in id order so that two updates moving books in opposite directions cannot deadlock
+        if (previous.getCategory() != null && book.getCategory() != null && slotId(previous) > slotId(book)) {
+            return recordAdded(connection, book).then(recordRemoved(connection, previous));
+        }
+        return recordRemoved(connection, previous).then(recordAdded(connection, book));
+    }
+
+    /**
+     * The total count and sold count of a book are changed, the book row must already be updated
+     *
+     * @param connection
+     * @param bookId
+     * @param stockDelta
+     * @param soldDelta
+     * @return
+     */
+    public Mono<Void> recordCountsChanged(Connection connection, Long bookId, long stockDelta, long soldDelta) {
+        return categoryStatisticsRepository.addCounts(connection, bookId, stockDelta, soldDelta).then();
+    }
+
+    /**
+     * Copies of several books are sold, the rows are updated in id order like the books
+     *
+     * @param connection
+     * @param books
+     * @param quantityById
+     * @return
+     */
+    public Mono<Void> recordSales(Connection connection, List<Book> books, Map<Long, Integer> quantityById) {
+        Map<Integer, CategoryStatistics> deltas = new TreeMap<>();
+        books.stream().filter(book -> book.getCategory() != null).forEach(book -> {
+            int quantity = quantityById.get(book.getId());
+            CategoryStatistics delta = deltas.computeIfAbsent(slotId(book), id -> new CategoryStatistics());
+            delta.setUnitsInStock(delta.getUnitsInStock() - quantity);
+            delta.setUnitsSold(delta.getUnitsSold() + quantity);
+            delta.setRevenue(delta.getRevenue() + (double) book.getPrice() * quantity);
+        });
+        return Flux.fromIterable(deltas.entrySet())
+                .concatMap(delta -> categoryStatisticsRepository.add(connection, delta.getKey(), 0,
+                        delta.getValue().getUnitsInStock(), delta.getValue().getUnitsSold(),
+                        delta.getValue().getRevenue()))
+                .then();
+    }
+
+    private Mono<Void> recordRemoved(Connection connection, Book book) {
+        if (book.getCategory() == null) {
+            return Mono.empty();
+        }
+        return categoryStatisticsRepository.add(connection, slotId(book), -1, -book.getTotalCount(), -book.getSold(),
+                -revenue(book)).then();
+    }
+
+    //Same slot as CategoryStatisticsStore
+    private static int slotId(Book book) {
+        return book.getCategory().getValue() * SLOTS + (int) Math.abs(book.getId() % SLOTS);
+    }
+
+    private static double revenue(Book book) {
+        return (double) book.getPrice() * book.getSold();
+    }
+
+    private static CategoryStatisticsDto add(CategoryStatisticsDto statistics, CategoryStatistics row) {
+        statistics.setBooks(statistics.getBooks() + row.getBooks());
+        statistics.setUnitsInStock(statistics.getUnitsInStock() + row.getUnitsInStock());
+        statistics.setUnitsSold(statistics.getUnitsSold() + row.getUnitsSold());
+        statistics.setRevenue(statistics.getRevenue() + row.getRevenue());
+        return statistics;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sulzer.bookstore.reactive;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Runs statements on a connection of the pool, which is released when the result completes, fails or is cancelled.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+public class ReactiveTransactions {
+
+    private final ConnectionFactory connectionFactory;
+
+    @Autowired
+    public ReactiveTransactions(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Run reads in auto-commit, the rows are emitted while they are read.
+     *
+     * @param work
+     * @param <T>
+     * @return
+     */
+    public <T> Flux<T> read(Function<Connection, Flux<T>> work) {
+        return Flux.usingWhen(connectionFactory.create(), work,
+                Connection::close, (connection, error) -> connection.close(), Connection::close);
+    }
+
+    /**
+     * Run changes in one transaction, committed when the result completes and rolled back if it fails or is cancelled.
+     *
+     * @param work
+     * @param <T>
+     * @return
+     */
+    public <T> Mono<T> inTransaction(Function<Connection, Mono<T>> work) {
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> Mono.usingWhen(Mono.from(connection.beginTransaction()).thenReturn(connection), work,
+                        Connection::commitTransaction, (c, error) -> c.rollbackTransaction(),
+                        Connection::rollbackTransaction),
+                Connection::close, (connection, error) -> connection.close(), Connection::close);
+    }
+}
@@ -0,0 +1,60 @@
+package com.sulzer.bookstore.routing;
+
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Chooses between the primary database and the read replicas for the queries of the current thread.
+ * Queries go to the primary, except the ones run in onReplica while the thread is not pinned to the primary.
+ * The thread of a request is pinned while its client reads its own writes, see ReadYourWritesFilter.
+ * Without bookstore.datasource.replica-urls every query goes to the primary.
+ */
+@Component
+public class DataSourceRouting {
+
+    private final ThreadLocal<Boolean> replicaRead = ThreadLocal.withInitial(() -> false);
+
+    private final ThreadLocal<Boolean> pinnedToPrimary = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Run a read which may see a replica behind the primary.
+     * The connection is chosen at the first statement, so a read joining a transaction already on the primary
+     * stays on it.
+     *
+     * @param read
+     * @param <T>
+     * @return result of the read
+     */
+    public <T> T onReplica(Supplier<T> read) {
+        boolean previous = replicaRead.get();
+        replicaRead.set(true);
+        try {
+            return read.get();
+        } finally {
+            replicaRead.set(previous);
+        }
+    }
+
+    /**
+     * Send every query of the current thread to the primary, or stop doing so.
+     *
+     * @param pinned
+     */
+    public void setPinnedToPrimary(boolean pinned) {
+        pinnedToPrimary.set(pinned);
+    }
+
+    public boolean isPinnedToPrimary() {
+        return pinnedToPrimary.get();
+    }
+
+    /**
+     * True if the next connection of the current thread may be taken from a replica
+     *
+     * @return
+     */
+    boolean isReplicaRead() {
+        return replicaRead.get() && !pinnedToPrimary.get();
+    }
+}
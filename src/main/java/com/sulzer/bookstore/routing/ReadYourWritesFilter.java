@@ -0,0 +1,74 @@
+package com.sulzer.bookstore.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins the requests of a client to the primary for a window after each of its writes, like a sale,
+ * so the client reads its own writes even if the replicas are behind.
+ * A write is any request which is not a GET, HEAD or OPTIONS. The client is identified by a header,
+ * or by its remote address without the header. The recent writers are only known to this instance.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS"));
+    private static final long MAXIMUM_WRITERS = 100_000;
+
+    private final DataSourceRouting routing;
+
+    private final String clientHeader;
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(DataSourceRouting routing, String clientHeader, long windowMillis) {
+        this(routing, clientHeader, windowMillis, Ticker.systemTicker());
+    }
+
+    ReadYourWritesFilter(DataSourceRouting routing, String clientHeader, long windowMillis, Ticker ticker) {
+        this.routing = routing;
+        this.clientHeader = clientHeader;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_WRITERS)
+                .expireAfterWrite(windowMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String client = client(request);
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (write) {
+            recentWriters.put(client, Boolean.TRUE);
+        }
+        routing.setPinnedToPrimary(recentWriters.getIfPresent(client) != null);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            routing.setPinnedToPrimary(false);
+            if (write) {
+                //The window starts again once the write is committed
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isEmpty() ? request.getRemoteAddr() : client;
+    }
+}
@@ -0,0 +1,115 @@
+package com.sulzer.bookstore.routing;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Gives connections of the primary, or of a replica for the reads allowed on a replica by DataSourceRouting.
+ * The routing is decided when the connection is taken, so it must be wrapped in a LazyConnectionDataSourceProxy
+ * for the decision to be made at the first statement of a transaction instead of at its start.
+ * The connections of each replica in use are counted for the least loaded selection.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final ReplicaSelection selection;
+
+    private final DataSourceRouting routing;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicIntegerArray connectionsInUse;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaSelection selection,
+                                    DataSourceRouting routing) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.selection = selection;
+        this.routing = routing;
+        this.connectionsInUse = new AtomicIntegerArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routing.isReplicaRead()) {
+            return primary.getConnection();
+        }
+        int replica = selectReplica();
+        return counted(replica, replicas.get(replica).getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!routing.isReplicaRead()) {
+            return primary.getConnection(username, password);
+        }
+        int replica = selectReplica();
+        return counted(replica, replicas.get(replica).getConnection(username, password));
+    }
+
+    private int selectReplica() {
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return first;
+        }
+        //Starting from the next replica in turn, so equally loaded replicas share the reads
+        int selected = first;
+        for (int i = 1; i < replicas.size(); i++) {
+            int replica = (first + i) % replicas.size();
+            if (connectionsInUse.get(replica) < connectionsInUse.get(selected)) {
+                selected = replica;
+            }
+        }
+        return selected;
+    }
+
+    //Connection counted in use until it is closed
+    private Connection counted(int replica, Connection connection) {
+        connectionsInUse.incrementAndGet(replica);
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        connectionsInUse.decrementAndGet(replica);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * Connections of a replica in use
+     *
+     * @param replica index of the replica
+     * @return
+     */
+    int getConnectionsInUse(int replica) {
+        return connectionsInUse.get(replica);
+    }
+
+    /**
+     * Datasource of a replica
+     *
+     * @param replica index of the replica
+     * @return
+     */
+    DataSource getReplica(int replica) {
+        return replicas.get(replica);
+    }
+}
@@ -0,0 +1,21 @@
+package com.sulzer.bookstore.routing;
+
+/**
+ * How the replica of a read is chosen
+ */
+public enum ReplicaSelection {
+    //Each replica in turn
+    ROUND_ROBIN,
+    //Replica with the fewest connections in use
+    LEAST_LOADED;
+
+    /**
+     * Selection of a property value like round-robin or least-loaded
+     *
+     * @param value
+     * @return
+     */
+    public static ReplicaSelection of(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -1,22 +1,49 @@
 package com.sulzer.bookstore.service;
 
 import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
 import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.BookSearchDto;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
 import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.importer.ImportFormat;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookStoreService {
     void addNewBook(BookDto bookDto);
 
+    ImportReportDto importBooks(InputStream inputStream, ImportFormat format) throws IOException;
+
     void addBook(Long id, int quantityToAdd);
 
     BookDto getBookById(Long id);
 
+    BookBatchDto getBooksById(List<Long> ids);
+
     List<BookDto> getAllBooks();
 
+    BookPageDto getBooksAfter(Long afterId, int size);
+
+    void streamAllBooks(Consumer<BookDto> consumer);
+
     int getNumberOfBooksById(Long id);
 
+    String getBookVersion(Long id);
+
+    String getCatalogVersion();
+
     void updateBook(Long id, BookDto bookDto);
 
     void sellBook(Long id);
@@ -27,4 +54,19 @@ public interface BookStoreService {
 
     int getNumberOfBooksSoldByCategoryAndKeyword(String keyword, Category category);
 
+    BookSearchDto searchBooks(String keyword, Category category, Long afterId, int size);
+
+    List<BookSuggestionDto> suggestBooks(String prefix, Category category, int size);
+
+    List<BestsellerDto> getBestsellers(Category category, int size);
+
+    List<SalesBucketDto> getSalesHistory(SalesResolution resolution, Instant from, Instant to, Category category,
+                                         Long bookId);
+
+    CategoryStatisticsDto getCategoryStatistics(Category category);
+
+    List<CategoryStatisticsDto> getAllCategoryStatistics();
+
+    List<CacheStatisticsDto> getCacheStatistics();
+
 }
@@ -1,36 +1,127 @@
 package com.sulzer.bookstore.service;
 
 import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
 import com.sulzer.bookstore.domain.Book;
 import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.routing.DataSourceRouting;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
 import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.BookSearchDto;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import com.sulzer.bookstore.service.dto.CategoryFacetDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
 import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.cache.BookCache;
+import com.sulzer.bookstore.service.cache.SearchCache;
 import com.sulzer.bookstore.service.exceptions.BadRequestException;
 import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
 import com.sulzer.bookstore.service.exceptions.DuplicateResourceException;
-import org.modelmapper.ModelMapper;
+import com.sulzer.bookstore.service.history.SalesHistory;
+import com.sulzer.bookstore.service.importer.BookImporter;
+import com.sulzer.bookstore.service.importer.ImportFormat;
+import com.sulzer.bookstore.service.inventory.InventoryEngine;
+import com.sulzer.bookstore.service.journal.SalesJournal;
+import com.sulzer.bookstore.service.leaderboard.BestsellerLeaderboard;
+import com.sulzer.bookstore.service.mapper.BookMapper;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.search.BookMatch;
+import com.sulzer.bookstore.service.search.BookSearchEngine;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 class BookStoreServiceImpl implements BookStoreService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BookStoreServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_BESTSELLERS = 100;
+    private static final int MAX_HISTORY_BUCKETS = 10_000;
+    private static final int MAX_BATCH_SIZE = 100;
     private final BookRepository bookRepository;
 
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+
+    private final BookSearchEngine bookSearchEngine;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final BookCache bookCache;
+
+    private final InventoryEngine inventoryEngine;
+
+    private final SalesJournal salesJournal;
+
+    private final OptimisticRetry optimisticRetry;
+
+    private final BookImporter bookImporter;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    private final BestsellerLeaderboard bestsellerLeaderboard;
+
+    private final SalesHistory salesHistory;
+
+    private final SearchCache searchCache;
+
+    private final DataSourceRouting dataSourceRouting;
 
     @Autowired
-    public BookStoreServiceImpl(BookRepository bookRepository, ModelMapper modelMapper) {
+    public BookStoreServiceImpl(BookRepository bookRepository, BookMapper bookMapper,
+                                BookSearchEngine bookSearchEngine, CategoryStatisticsStore categoryStatisticsStore,
+                                BookCache bookCache, InventoryEngine inventoryEngine,
+                                SalesJournal salesJournal, OptimisticRetry optimisticRetry,
+                                BookImporter bookImporter, AutocompleteIndex autocompleteIndex,
+                                BestsellerLeaderboard bestsellerLeaderboard, SalesHistory salesHistory,
+                                SearchCache searchCache, DataSourceRouting dataSourceRouting) {
         this.bookRepository = bookRepository;
-        this.modelMapper = modelMapper;
+        this.bookMapper = bookMapper;
+        this.bookSearchEngine = bookSearchEngine;
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.bookCache = bookCache;
+        this.inventoryEngine = inventoryEngine;
+        this.salesJournal = salesJournal;
+        this.optimisticRetry = optimisticRetry;
+        this.bookImporter = bookImporter;
+        this.autocompleteIndex = autocompleteIndex;
+        this.bestsellerLeaderboard = bestsellerLeaderboard;
+        this.salesHistory = salesHistory;
+        this.searchCache = searchCache;
+        this.dataSourceRouting = dataSourceRouting;
     }
 
     /**
@@ -50,17 +141,41 @@ class BookStoreServiceImpl implements BookStoreService {
                     "Either use update methods to update the book counts or use addBook(Long id, int quantityToAdd) methods");
         });
         if (!bookById.isPresent()) {
-            LOGGER.info("No Duplicates found.");
+            LOGGER.debug("No duplicate of book {} is found.", bookDto.getId());
             //Map bookDto to book
-            Book book = modelMapper.map(bookDto, Book.class);
+            Book book = bookMapper.toBook(bookDto);
             //Set the status to available
-            LOGGER.info("The data are mapped and ready to save.");
+            LOGGER.debug("The data are mapped and ready to save.");
 
             //Save to book
             bookRepository.save(book);
+            categoryStatisticsStore.recordAdded(book);
+            evictAfterCompletion(Collections.singleton(book.getId()));
+            afterCommit(() -> {
+                inventoryEngine.saved(book);
+                salesJournal.recordSaved(book);
+                bookSearchEngine.index(book);
+                autocompleteIndex.index(book);
+                bestsellerLeaderboard.index(book);
+                searchCache.evictAll(Collections.singleton(book.getCategory()));
+            });
         }
     }
 
+    /**
+     * Register the books of a catalog file, streamed in chunks.
+     * Rows that are not valid or already registered are reported, the other rows are registered.
+     *
+     * @param inputStream
+     * @param format
+     * @return report of the registered and rejected rows
+     * @throws IOException
+     */
+    @Override
+    public ImportReportDto importBooks(InputStream inputStream, ImportFormat format) throws IOException {
+        return bookImporter.importBooks(inputStream, format);
+    }
+
     /**
      * This method adds the quantity of book if the book with given id is already registered.
      *
@@ -69,15 +184,10 @@ class BookStoreServiceImpl implements BookStoreService {
      */
     @Override
     public void addBook(Long id, int quantityToAdd) {
-        //Get the book by id
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new BookNotFoundException("Book with id:" + id + " is not registered. Use addNewBook to register."));
-        LOGGER.info("The book with id " + id + " is registered");
-
-        int totalCountAfterAdd = book.getTotalCount() + quantityToAdd;
-        book.setTotalCount(totalCountAfterAdd);
-
-        bookRepository.save(book);
+        inventoryEngine.addStock(id, quantityToAdd);
+        salesJournal.recordStockAdded(id, quantityToAdd);
+        evictSearchesAfterCommit(Collections.singleton(id));
+        evictAfterCompletion(Collections.singleton(id));
     }
 
     /**
@@ -88,23 +198,86 @@ class BookStoreServiceImpl implements BookStoreService {
      */
     @Override
     public BookDto getBookById(Long id) {
-        //Get the book from repo
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new BookNotFoundException("Book with id:" + id + " is not found."));
+        //Get the book from cache or repo
+        BookDto bookDto = bookCache.get(id, this::loadBook);
+        if (bookDto == null) {
+            throw new BookNotFoundException("Book with id:" + id + " is not found.");
+        }
+        return withCurrentTotalCount(id, bookDto);
+    }
 
-        return modelMapper.map(book, BookDto.class);
+    /**
+     * Get the books of several ids, the books missing from the cache are read with one query.
+     * Ids of books which are not found are reported instead of failing the whole batch.
+     *
+     * @param ids
+     * @return books in the order of the ids and the ids which are not found
+     */
+    @Override
+    public BookBatchDto getBooksById(List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            throw new BadRequestException("Number of ids should be between 1 and " + MAX_BATCH_SIZE + ".");
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        Map<Long, BookDto> bookById = bookCache.getAll(distinctIds, this::loadBooks);
+        List<BookDto> books = new ArrayList<>(bookById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            BookDto bookDto = bookById.get(id);
+            if (bookDto == null) {
+                missingIds.add(id);
+            } else {
+                books.add(withCurrentTotalCount(id, bookDto));
+            }
+        }
+        return BookBatchDto.builder().books(books).missingIds(missingIds).build();
     }
 
 
     /**
-     * List all the books
+     * List all the books, with the current counts of the inventory
      *
      * @return List<BookDto>
      */
     @Override
     public List<BookDto> getAllBooks() {
         List<Book> books = bookRepository.findAll();
-        return mapBookListToBooDtoList(books);
+        return withCurrentTotalCounts(bookMapper.toDtoList(books));
+    }
+
+    /**
+     * One page of all the books ordered by id, with the current counts of the inventory.
+     * The page starts after the given cursor, so reading a page does not depend on the pages before it.
+     *
+     * @param afterId cursor returned with the previous page, null for the first page
+     * @param size    number of books in the page
+     * @return BookPageDto
+     */
+    @Override
+    public BookPageDto getBooksAfter(Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size should be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        List<Book> books = bookRepository.findByIdGreaterThanOrderById(afterId == null ? Long.MIN_VALUE : afterId,
+                PageRequest.of(0, size));
+        Long nextCursor = books.size() < size ? null : books.get(books.size() - 1).getId();
+        return BookPageDto.builder().books(withCurrentTotalCounts(bookMapper.toDtoList(books))).nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Pass all the books ordered by id one by one to the consumer, without holding the list in memory.
+     *
+     * @param consumer
+     */
+    @Override
+    @Transactional
+    public void streamAllBooks(Consumer<BookDto> consumer) {
+        bookRepository.forEachBook(STREAM_FETCH_SIZE, book -> {
+            BookDto bookDto = bookMapper.toDto(book);
+            consumer.accept(withCurrentTotalCount(bookDto.getId(), bookDto));
+        });
     }
 
     /**
@@ -115,10 +288,33 @@ class BookStoreServiceImpl implements BookStoreService {
      */
     @Override
     public int getNumberOfBooksById(Long id) {
-        Optional<Book> book = bookRepository.findById(id);
+        BookDto bookDto = bookCache.get(id, this::loadBook);
 
         //If book is present get Total Count else return 0
-        return book.isPresent() ? book.get().getTotalCount() : 0;
+        return bookDto != null ? inventoryEngine.getTotalCount(id, bookDto.getTotalCount()) : 0;
+    }
+
+    /**
+     * Version of a book, changed once a transaction changing the book is completed.
+     * Read it before the book, so the book returned with it is at least as new as the version.
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public String getBookVersion(Long id) {
+        return bookCache.getBookVersion(id);
+    }
+
+    /**
+     * Version of all the books, changed once a transaction changing any book is completed.
+     * Read it before the books, so the books returned with it are at least as new as the version.
+     *
+     * @return
+     */
+    @Override
+    public String getCatalogVersion() {
+        return bookCache.getCatalogVersion();
     }
 
     /**
@@ -128,70 +324,93 @@ class BookStoreServiceImpl implements BookStoreService {
      * @param bookDto
      */
     @Override
-    @Transactional
     public void updateBook(Long id, BookDto bookDto) {
-        Book book = modelMapper.map(bookDto, Book.class);
         if (bookDto.getId() != null) {
             if (!bookDto.getId().equals(id)) {
                 throw new BadRequestException("Id cannot be updated.");
             }
         }
-        //Set sold
-        book.setSold(bookRepository.getOne(id).getSold());
-        //If id is removed from bookDto, it still sets the id from pathvariable
-        book.setId(id);
-        LOGGER.info("BookDto are mapped to Book and ready to be saved.");
-        bookRepository.save(book);
+        //Retried if the book is sold or updated between the read and the commit, so no sale is overwritten
+        optimisticRetry.inTransaction("updateBook", () -> {
+            Book book = bookMapper.toBook(bookDto);
+            //Copy the stored values before save overwrites them, they are needed for the statistics
+            inventoryEngine.beforeUpdate(id);
+            Book stored = bookRepository.getOne(id);
+            Book previous = Book.builder().id(id).category(stored.getCategory()).price(stored.getPrice())
+                    .totalCount(stored.getTotalCount()).sold(stored.getSold()).build();
+            //Set sold and the version it is read from
+            book.setSold(previous.getSold());
+            book.setVersion(stored.getVersion());
+            //If id is removed from bookDto, it still sets the id from pathvariable
+            book.setId(id);
+            LOGGER.debug("Book {} is mapped and ready to be saved.", id);
+            bookRepository.save(book);
+            categoryStatisticsStore.recordUpdated(previous, book);
+            evictAfterCompletion(Collections.singleton(id));
+            afterCommit(() -> {
+                inventoryEngine.saved(book);
+                salesJournal.recordSaved(book);
+                bookSearchEngine.index(book);
+                autocompleteIndex.index(book);
+                bestsellerLeaderboard.index(book);
+                //The book may have moved to another category
+                searchCache.evictAll(Arrays.asList(previous.getCategory(), book.getCategory()));
+            });
+        });
     }
 
     /**
      * Sell book of given id
+     * The sale is written to the sales journal once the inventory accepted it.
      *
      * @param id
      */
     @Override
-    @Transactional
     public void sellBook(Long id) {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new BookNotFoundException("Book with id: " + id + " is not found."));
         //Selling one book decreases the amount of book in the store and increases the amount of book sold.
-        int totalCount = book.getTotalCount() - 1;
-        if (totalCount < 0) {
-            throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
-        }
-        int sold = book.getSold() + 1;
-        LOGGER.info("Setting total amount less by 1 and setting sold to increase by 1.");
-        book.setTotalCount(totalCount);
-        book.setSold(sold);
-        bookRepository.save(book);
+        LOGGER.debug("Selling one copy of book {}.", id);
+        inventoryEngine.sell(id, 1);
+        salesJournal.recordSale(id, 1);
+        evictSearchesAfterCommit(Collections.singleton(id));
+        evictAfterCompletion(Collections.singleton(id));
+        afterCommit(() -> {
+            autocompleteIndex.recordSale(id, 1);
+            bestsellerLeaderboard.recordSale(id, 1);
+            salesHistory.recordSale(id, 1);
+        });
     }
 
     /**
+     * Sell a list of books in one transaction.
+     * Quantities of the same book are merged and the whole order is sold or none of it.
+     *
      * @param sellDtos
      */
     @Override
-    @Transactional
     public void sellBooks(List<SellDto> sellDtos) {
-        sellDtos.forEach(sellDto -> {
-            Book book = bookRepository.findById(sellDto.getBookId())
-                    .orElseThrow(() -> new BookNotFoundException("Book with id: " + sellDto.getBookId() + " is not found."));
-            //Selling book decreases the amount of book in the store and increases the amount of book sold.
-            int totalCount = book.getTotalCount() - sellDto.getQuantity();
-            if (totalCount < 0) {
-                throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
-            }
-            int sold = book.getSold() + sellDto.getQuantity();
-            LOGGER.info("Total amount is decreased and sold amount increased.");
-            book.setTotalCount(totalCount);
-            book.setSold(sold);
-            bookRepository.save(book);
-        });
+        //Merge the quantities of the same book, ordered by id
+        Map<Long, Integer> quantityById = new TreeMap<>();
+        sellDtos.forEach(sellDto -> quantityById.merge(sellDto.getBookId(), sellDto.getQuantity(), Integer::sum));
+        if (quantityById.isEmpty()) {
+            return;
+        }
+
+        inventoryEngine.sellAll(quantityById);
+        salesJournal.recordSales(quantityById);
+        evictSearchesAfterCommit(quantityById.keySet());
+        evictAfterCompletion(quantityById.keySet());
+        afterCommit(() -> quantityById.forEach((id, quantity) -> {
+            autocompleteIndex.recordSale(id, quantity);
+            bestsellerLeaderboard.recordSale(id, quantity);
+            salesHistory.recordSale(id, quantity);
+        }));
     }
 
 
     /**
      * Get the list of books according to category and keyword
      * Keyword is assumed to be any words in id, title and author field of the book
+     * The result is cached until a book of the category is changed or sold, and read from a replica
      *
      * @param category
      * @param keyword
@@ -202,13 +421,19 @@ class BookStoreServiceImpl implements BookStoreService {
                                                   Category category) {
 
         //if the status is Available, gives list of books which are available
-        LOGGER.info("Fetch all the books by category and keyword.");
-        List<Book> book = bookRepository.findAllBookByCategoryAndKeyword(keyword.toLowerCase(), category.getValue());
-        return mapBookListToBooDtoList(book);
+        LOGGER.debug("Fetch all the books by category {} and keyword {}.", category, keyword);
+        String key = keyword.toLowerCase(Locale.ROOT);
+        Supplier<List<BookDto>> search = () -> bookMapper.toDtoList(bookSearchEngine.search(key, category));
+        if (dataSourceRouting.isPinnedToPrimary()) {
+            //A cached result may be read from a replica before the writes of this client
+            return withCurrentTotalCounts(search.get());
+        }
+        return withCurrentTotalCounts(searchCache.getBooks(key, category, () -> dataSourceRouting.onReplica(search)));
     }
 
     /**
      * Getting the number of books by category and keyword
+     * The result is cached until a book of the category is changed or sold, and read from a replica
      *
      * @param category
      * @param keyword
@@ -217,15 +442,220 @@ class BookStoreServiceImpl implements BookStoreService {
     @Override
     public int getNumberOfBooksSoldByCategoryAndKeyword(String keyword,
                                                         Category category) {
-        LOGGER.info("Total number of books which are sold");
-        return (int) bookRepository.countNumberOfBooksSold(keyword.toLowerCase(), category.getValue());
+        LOGGER.debug("Total number of books sold by category {} and keyword {}.", category, keyword);
+        String key = keyword.toLowerCase(Locale.ROOT);
+        Supplier<Integer> count = () -> (int) bookRepository.countNumberOfBooksSold(BookRepository.escapeLike(key),
+                category.getValue());
+        if (dataSourceRouting.isPinnedToPrimary()) {
+            //A cached count may be read from a replica before the writes of this client
+            return count.get();
+        }
+        return searchCache.getNumberOfBooksSold(key, category, () -> dataSourceRouting.onReplica(count));
     }
 
-    //Convert List of books to List of bookDto
-    private List<BookDto> mapBookListToBooDtoList(List<Book> books) {
-        return books.stream()
-                .map(book -> modelMapper.map(book, BookDto.class))
+    /**
+     * Books matching the keyword page by page, with the number of matching books and copies sold of every category.
+     * The books and the counts come from one search over every category, with the same match as
+     * getBookByCategoryKeyWord and getNumberOfBooksSoldByCategoryAndKeyword. Both are read from a replica.
+     *
+     * @param keyword
+     * @param category category of the books of the page, null for every category
+     * @param afterId  cursor returned with the previous page, null for the first page
+     * @param size     number of books in the page
+     * @return BookSearchDto
+     */
+    @Override
+    public BookSearchDto searchBooks(String keyword, Category category, Long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size should be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        long after = afterId == null ? Long.MIN_VALUE : afterId;
+        long[] books = new long[Category.values().length];
+        long[] unitsSold = new long[Category.values().length];
+        List<Long> pageIds = new ArrayList<>();
+        List<BookMatch> matches = dataSourceRouting.onReplica(() -> bookSearchEngine.match(keyword.toLowerCase(Locale.ROOT)));
+        for (BookMatch match : matches) {
+            books[match.getCategory().getValue()]++;
+            unitsSold[match.getCategory().getValue()] += match.getSold();
+            if (pageIds.size() < size && match.getId() > after && (category == null || match.getCategory() == category)) {
+                pageIds.add(match.getId());
+            }
+        }
+        List<CategoryFacetDto> categories = new ArrayList<>();
+        for (Category facet : Category.values()) {
+            categories.add(CategoryFacetDto.builder().category(facet)
+                    .books(books[facet.getValue()]).unitsSold(unitsSold[facet.getValue()]).build());
+        }
+        List<Book> page = dataSourceRouting.onReplica(() -> bookRepository.findAllById(pageIds));
+        page.sort(Comparator.comparing(Book::getId));
+        Long nextCursor = pageIds.size() < size ? null : pageIds.get(pageIds.size() - 1);
+        return BookSearchDto.builder().books(withCurrentTotalCounts(bookMapper.toDtoList(page)))
+                .nextCursor(nextCursor).categories(categories).build();
+    }
+
+    /**
+     * Best selling books whose title or author starts with the prefix, from the autocomplete index
+     *
+     * @param prefix
+     * @param category category of the books, null for every category
+     * @param size     maximum number of books
+     * @return books ordered by copies sold
+     */
+    @Override
+    public List<BookSuggestionDto> suggestBooks(String prefix, Category category, int size) {
+        if (size < 1 || size > MAX_SUGGESTIONS) {
+            throw new BadRequestException("Number of suggestions should be between 1 and " + MAX_SUGGESTIONS + ".");
+        }
+        return autocompleteIndex.suggest(prefix, category, size);
+    }
+
+    /**
+     * Best selling books from the leaderboard, without reading the book table
+     *
+     * @param category category of the books, null for every category
+     * @param size     maximum number of books
+     * @return books ordered by copies sold
+     */
+    @Override
+    public List<BestsellerDto> getBestsellers(Category category, int size) {
+        if (size < 1 || size > MAX_BESTSELLERS) {
+            throw new BadRequestException("Number of bestsellers should be between 1 and " + MAX_BESTSELLERS + ".");
+        }
+        return bestsellerLeaderboard.top(category, size);
+    }
+
+    /**
+     * Sales in minute, hour or day buckets of a book, of a category or of every category, read from a replica.
+     * Sales are added to the history in batches, so the last second of sales may be missing.
+     *
+     * @param resolution length of the buckets
+     * @param from       the bucket of from is the first bucket
+     * @param to         buckets starting at or after to are left out
+     * @param category   category of the books, null for every category
+     * @param bookId     book, null for the sales of a category
+     * @return buckets with sales ordered by start
+     */
+    @Override
+    public List<SalesBucketDto> getSalesHistory(SalesResolution resolution, Instant from, Instant to,
+                                                Category category, Long bookId) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("From should be before to.");
+        }
+        long millis = to.toEpochMilli() - resolution.bucketStart(from.toEpochMilli());
+        if ((millis + resolution.getMillis() - 1) / resolution.getMillis() > MAX_HISTORY_BUCKETS) {
+            throw new BadRequestException("Number of buckets should be at most " + MAX_HISTORY_BUCKETS + ".");
+        }
+        if (bookId != null && category != null) {
+            throw new BadRequestException("Either a book or a category can be given, not both.");
+        }
+        if (bookId != null) {
+            return dataSourceRouting.onReplica(() -> salesHistory.getBookSales(bookId, resolution, from, to));
+        }
+        return dataSourceRouting.onReplica(() -> salesHistory.getCategorySales(category, resolution, from, to));
+    }
+
+    /**
+     * Sales and stock totals of a category, read from a replica
+     *
+     * @param category
+     * @return
+     */
+    @Override
+    public CategoryStatisticsDto getCategoryStatistics(Category category) {
+        return dataSourceRouting.onReplica(() -> categoryStatisticsStore.getStatistics(category));
+    }
+
+    /**
+     * Sales and stock totals of every category, read from a replica
+     *
+     * @return
+     */
+    @Override
+    public List<CategoryStatisticsDto> getAllCategoryStatistics() {
+        return dataSourceRouting.onReplica(categoryStatisticsStore::getAllStatistics);
+    }
+
+    /**
+     * Statistics of the in-process caches
+     *
+     * @return
+     */
+    @Override
+    public List<CacheStatisticsDto> getCacheStatistics() {
+        return Arrays.asList(bookCache.getStatistics(), searchCache.getStatistics());
+    }
+
+    private BookDto loadBook(Long id) {
+        return bookRepository.findById(id).map(bookMapper::toDto).orElse(null);
+    }
+
+    private Map<Long, BookDto> loadBooks(List<Long> ids) {
+        return bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, bookMapper::toDto));
+    }
+
+    //The rows of the book table lag behind an in-memory inventory until it is flushed, which does not change
+    //the catalog version, so the lists carry the current counts like the books read by id
+    private List<BookDto> withCurrentTotalCounts(List<BookDto> bookDtos) {
+        return bookDtos.stream().map(bookDto -> withCurrentTotalCount(bookDto.getId(), bookDto))
                 .collect(Collectors.toList());
     }
 
+    //Cached dto is shared, the current count of the inventory is set on a copy
+    private BookDto withCurrentTotalCount(Long id, BookDto bookDto) {
+        int totalCount = inventoryEngine.getTotalCount(id, bookDto.getTotalCount());
+        if (totalCount != bookDto.getTotalCount()) {
+            return BookDto.builder().id(bookDto.getId()).title(bookDto.getTitle()).author(bookDto.getAuthor())
+                    .category(bookDto.getCategory()).price(bookDto.getPrice()).totalCount(totalCount).build();
+        }
+        return bookDto;
+    }
+
+    //Evict the books from the cache and change their versions once the transaction is completed,
+    //or right away if there is no transaction
+    private void evictAfterCompletion(Collection<Long> ids) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    bookCache.evictAll(ids);
+                }
+            });
+        } else {
+            bookCache.evictAll(ids);
+        }
+    }
+
+    //Evict the searches of the categories of the books once the transaction is committed.
+    //The categories are taken from the autocomplete index so the books are not read,
+    //the searches of every category are evicted if a book is not indexed
+    private void evictSearchesAfterCommit(Collection<Long> ids) {
+        afterCommit(() -> {
+            List<Category> categories = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Category category = autocompleteIndex.categoryOf(id);
+                if (category == null) {
+                    searchCache.evictAll();
+                    return;
+                }
+                categories.add(category);
+            }
+            searchCache.evictAll(categories);
+        });
+    }
+
+    //Run the action once the transaction is committed, or right away if there is no transaction
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
 }
@@ -0,0 +1,215 @@
+package com.sulzer.bookstore.service.autocomplete;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.autocomplete.PrefixTree.Entry;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over the title and author of the books, ranking the books by copies sold.
+ * Each partition (one per category) is a prefix tree of the lower case titles and authors.
+ * The index is loaded from the database at startup and kept in sync by the service on every write and sale,
+ * so the ranking follows the sales of this instance only.
+ */
+@Component
+public class AutocompleteIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AutocompleteIndex.class);
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PrefixTree[] partitions = new PrefixTree[Category.values().length];
+    private final Map<Long, Entry> entryById = new HashMap<>();
+
+    @Autowired
+    public AutocompleteIndex(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new PrefixTree();
+        }
+    }
+
+    /**
+     * Load all the books from the database into the index.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new PrefixTree();
+            }
+            entryById.clear();
+            Page<Book> page = bookRepository.findAll(PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id")));
+            page.forEach(book -> add(book, book.getSold(), false));
+            while (page.hasNext()) {
+                page = bookRepository.findAll(page.nextPageable());
+                page.forEach(book -> add(book, book.getSold(), false));
+            }
+            for (PrefixTree partition : partitions) {
+                partition.sortAll();
+            }
+            LOGGER.info("Autocomplete index is built with {} books.", entryById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Best selling books whose title or author starts with the prefix
+     *
+     * @param prefix
+     * @param category category of the books, null for every category
+     * @param size     maximum number of books
+     * @return books ordered by copies sold
+     */
+    public List<BookSuggestionDto> suggest(String prefix, Category category, int size) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        List<BookSuggestionDto> suggestions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Category partition : Category.values()) {
+                if (category == null || category == partition) {
+                    partitions[partition.getValue()].top(key, size)
+                            .forEach(entry -> suggestions.add(toDto(entry)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (category == null) {
+            //Best of the best books of every category
+            suggestions.sort(Comparator.comparing(BookSuggestionDto::getSold).reversed()
+                    .thenComparing(BookSuggestionDto::getId));
+            return new ArrayList<>(suggestions.subList(0, Math.min(size, suggestions.size())));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Add or replace the book in the index after it is saved.
+     *
+     * @param book
+     */
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = delete(book.getId());
+            //Sales committed after the book was read are already counted in the previous entry
+            add(book, previous == null ? book.getSold() : Math.max(previous.sold, book.getSold()), true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies of a book are sold and committed
+     *
+     * @param id
+     * @param quantity
+     */
+    public void recordSale(Long id, int quantity) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entryById.get(id);
+            if (entry != null) {
+                entry.sold += quantity;
+                PrefixTree partition = partitions[entry.category.getValue()];
+                keys(entry).forEach(key -> partition.raise(key, entry));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Category of an indexed book, without reading the book
+     *
+     * @param id
+     * @return category or null if the book is not in the index
+     */
+    public Category categoryOf(Long id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entryById.get(id);
+            return entry == null ? null : entry.category;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of books in the index
+     *
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book, int sold, boolean sorted) {
+        if (book.getCategory() == null) {
+            return;
+        }
+        Entry entry = new Entry(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(), sold);
+        PrefixTree partition = partitions[book.getCategory().getValue()];
+        for (String key : keys(entry)) {
+            if (sorted) {
+                partition.add(key, entry);
+            } else {
+                partition.addUnsorted(key, entry);
+            }
+        }
+        entryById.put(book.getId(), entry);
+    }
+
+    private Entry delete(Long id) {
+        Entry entry = entryById.remove(id);
+        if (entry != null) {
+            PrefixTree partition = partitions[entry.category.getValue()];
+            keys(entry).forEach(key -> partition.remove(key, entry));
+        }
+        return entry;
+    }
+
+    //Lower case title and author, the author only if it differs from the title
+    private static List<String> keys(Entry entry) {
+        List<String> keys = new ArrayList<>(2);
+        if (entry.title != null) {
+            keys.add(entry.title.toLowerCase(Locale.ROOT));
+        }
+        if (entry.author != null && !keys.contains(entry.author.toLowerCase(Locale.ROOT))) {
+            keys.add(entry.author.toLowerCase(Locale.ROOT));
+        }
+        return keys;
+    }
+
+    private static BookSuggestionDto toDto(Entry entry) {
+        return BookSuggestionDto.builder().id(entry.id).title(entry.title).author(entry.author)
+                .category(entry.category).sold(entry.sold).build();
+    }
+}
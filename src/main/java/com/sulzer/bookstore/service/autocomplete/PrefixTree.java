@@ -0,0 +1,385 @@
+package com.sulzer.bookstore.service.autocomplete;
+
+import com.sulzer.bookstore.constants.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Radix tree of lower case keys, each key pointing to the entries of the books having it as title or author.
+ * The entries of a key are ordered by sold count and every node keeps the highest sold count below it,
+ * so the best selling entries under a prefix are found by visiting the nodes in order of that count
+ * instead of the whole subtree. Not thread safe.
+ */
+class PrefixTree {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final Node root = new Node("", 0, 0);
+
+    /**
+     * Add the entry under the key, ordered by its sold count.
+     *
+     * @param key
+     * @param entry
+     */
+    void add(String key, Entry entry) {
+        insert(key, entry).addSorted(entry);
+    }
+
+    /**
+     * Add the entry under the key without ordering it, sortAll must be called once every entry is added.
+     *
+     * @param key
+     * @param entry
+     */
+    void addUnsorted(String key, Entry entry) {
+        insert(key, entry).append(entry);
+    }
+
+    /**
+     * Order the entries of every key after addUnsorted
+     */
+    void sortAll() {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.remove(nodes.size() - 1);
+            Arrays.sort(node.entries, 0, node.entryCount, PrefixTree::compare);
+            nodes.addAll(Arrays.asList(node.children));
+        }
+    }
+
+    /**
+     * Remove the entry from the key
+     *
+     * @param key
+     * @param entry
+     */
+    void remove(String key, Entry entry) {
+        List<Node> path = path(key);
+        if (path == null || !path.get(path.size() - 1).remove(entry)) {
+            return;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (i > 0 && node.entryCount == 0 && node.children.length == 0) {
+                path.get(i - 1).removeChild(node);
+            }
+            node.updateMax();
+        }
+    }
+
+    /**
+     * Move the entry of the key after its sold count is increased
+     *
+     * @param key
+     * @param entry
+     */
+    void raise(String key, Entry entry) {
+        List<Node> path = path(key);
+        if (path == null) {
+            return;
+        }
+        path.get(path.size() - 1).moveUp(entry);
+        path.forEach(node -> node.max = Math.max(node.max, entry.sold));
+    }
+
+    /**
+     * Best selling entries of the keys starting with the prefix, each entry once.
+     * Entries selling as many copies are ordered by id within a key only.
+     *
+     * @param prefix lower case prefix
+     * @param size   maximum number of entries
+     * @return entries ordered by sold count
+     */
+    List<Entry> top(String prefix, int size) {
+        List<Entry> top = new ArrayList<>(size);
+        Node start = find(prefix);
+        if (start == null || start.max < 0) {
+            return top;
+        }
+        //An entry is found twice if both its title and its author start with the prefix
+        Set<Entry> found = new HashSet<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        candidates.add(new Candidate(start, -1));
+        while (top.size() < size && !candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            Node node = candidate.node;
+            if (candidate.position < 0) {
+                if (node.entryCount > 0) {
+                    candidates.add(new Candidate(node, 0));
+                }
+                for (Node child : node.children) {
+                    if (child.max >= 0) {
+                        candidates.add(new Candidate(child, -1));
+                    }
+                }
+            } else {
+                Entry entry = node.entries[candidate.position];
+                if (found.add(entry)) {
+                    top.add(entry);
+                }
+                if (candidate.position + 1 < node.entryCount) {
+                    candidates.add(new Candidate(node, candidate.position + 1));
+                }
+            }
+        }
+        return top;
+    }
+
+    //Node of the key, created and split as needed, with the sold count of the entry counted on the way
+    private Node insert(String key, Entry entry) {
+        Node node = root;
+        node.max = Math.max(node.max, entry.sold);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                Node child = new Node(key, i, key.length());
+                node.insertChild(-index - 1, child);
+                node = child;
+                i = key.length();
+            } else {
+                Node child = node.children[index];
+                int common = child.commonLength(key, i);
+                if (common < child.length()) {
+                    child = child.split(common);
+                    node.children[index] = child;
+                }
+                node = child;
+                i += common;
+            }
+            node.max = Math.max(node.max, entry.sold);
+        }
+        return node;
+    }
+
+    //Nodes from the root to the node of the key, null if the key is not in the tree
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            if (node.commonLength(key, i) < node.length()) {
+                return null;
+            }
+            i += node.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    //Highest node whose keys all start with the prefix, null if no key does
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = node.commonLength(prefix, i);
+            if (i + common == prefix.length()) {
+                return node;
+            }
+            if (common < node.length()) {
+                return null;
+            }
+            i += common;
+        }
+        return node;
+    }
+
+    //Higher sold count first, then lower id
+    private static int compare(Entry first, Entry second) {
+        int bySold = Integer.compare(second.sold, first.sold);
+        return bySold != 0 ? bySold : Long.compare(first.id, second.id);
+    }
+
+    /**
+     * Node of the tree, its label is the substring of text from start to end.
+     * The text is the key the node is created for and is shared with the nodes split from it.
+     */
+    private static final class Node {
+        private final String text;
+        private int start;
+        private final int end;
+        //Ordered by the first character of their label
+        private Node[] children = NO_CHILDREN;
+        private Entry[] entries = NO_ENTRIES;
+        private int entryCount;
+        //Highest sold count of the entries of this node and the nodes below it, -1 if there are none
+        private int max = -1;
+
+        Node(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char value = children[middle].text.charAt(children[middle].start);
+                if (value < first) {
+                    low = middle + 1;
+                } else if (value > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int index, Node child) {
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            children = newChildren;
+        }
+
+        void removeChild(Node child) {
+            int index = childIndex(child.text.charAt(child.start));
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+
+        //Length of the common prefix of the label and the key from the offset
+        int commonLength(String key, int offset) {
+            int length = Math.min(length(), key.length() - offset);
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(start + i) != key.charAt(offset + i)) {
+                    return i;
+                }
+            }
+            return length;
+        }
+
+        //Split the label after length characters, the returned node takes the place of this one
+        Node split(int length) {
+            Node parent = new Node(text, start, start + length);
+            start += length;
+            parent.children = new Node[]{this};
+            parent.max = max;
+            return parent;
+        }
+
+        void append(Entry entry) {
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(2, entryCount * 2));
+            }
+            entries[entryCount++] = entry;
+        }
+
+        void addSorted(Entry entry) {
+            append(entry);
+            moveUp(entry, entryCount - 1);
+        }
+
+        void moveUp(Entry entry) {
+            for (int i = 0; i < entryCount; i++) {
+                if (entries[i] == entry) {
+                    moveUp(entry, i);
+                    return;
+                }
+            }
+        }
+
+        private void moveUp(Entry entry, int index) {
+            while (index > 0 && compare(entry, entries[index - 1]) < 0) {
+                entries[index] = entries[index - 1];
+                index--;
+            }
+            entries[index] = entry;
+        }
+
+        boolean remove(Entry entry) {
+            for (int i = 0; i < entryCount; i++) {
+                if (entries[i] == entry) {
+                    System.arraycopy(entries, i + 1, entries, i, entryCount - i - 1);
+                    entries[--entryCount] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void updateMax() {
+            max = entryCount > 0 ? entries[0].sold : -1;
+            for (Node child : children) {
+                max = Math.max(max, child.max);
+            }
+        }
+    }
+
+    /**
+     * Node to visit, or entry at the position of the node to take, ordered by sold count.
+     * On equal count an entry comes before a node, since nothing below the node sells more,
+     * so books that never sold are found without visiting every node below the prefix.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Node node;
+        private final int position;
+        private final int sold;
+
+        Candidate(Node node, int position) {
+            this.node = node;
+            this.position = position;
+            this.sold = position < 0 ? node.max : node.entries[position].sold;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int bySold = Integer.compare(other.sold, sold);
+            if (bySold != 0) {
+                return bySold;
+            }
+            if (position < 0 || other.position < 0) {
+                return Boolean.compare(position < 0, other.position < 0);
+            }
+            return Long.compare(node.entries[position].id, other.node.entries[other.position].id);
+        }
+    }
+
+    /**
+     * Book under its title and author keys. The sold count is only changed through the tree holding the entry.
+     */
+    static final class Entry {
+        final long id;
+        final String title;
+        final String author;
+        final Category category;
+        int sold;
+
+        Entry(long id, String title, String author, Category category, int sold) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.sold = sold;
+        }
+    }
+}
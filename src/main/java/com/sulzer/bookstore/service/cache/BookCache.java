@@ -0,0 +1,171 @@
+package com.sulzer.bookstore.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of books by id in front of the database.
+ * Holds at most bookstore.cache.book.maximum-size books, each for at most bookstore.cache.book.expire-after-write
+ * milliseconds. The service evicts a book once a transaction changing it is completed, and the expiry bounds
+ * how stale a book read concurrently with that transaction can be.
+ * Cached bookDtos are shared, callers must not modify them.
+ * <p>
+ * Every eviction also changes the versions of the evicted books and of the catalog, which are used as ETags.
+ * A version is changed before the book is invalidated, so a book loaded while it is evicted is not cached,
+ * and after, so a version read before a book is never newer than the book.
+ * The versions start again on every start of the application and are only known to this instance,
+ * so the ETags are only valid while a single instance serves the books.
+ */
+@Component
+public class BookCache {
+
+    //Books share a version per stripe, a change of a book also changes the ETag of the other books of its stripe
+    private static final int VERSION_STRIPES = 1 << 16;
+
+    private final Cache<Long, BookDto> cache;
+
+    //Differs between two starts, so a version issued before a restart is not taken for a current one
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final AtomicLongArray bookVersions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    @Autowired
+    public BookCache(@Value("${bookstore.cache.book.maximum-size:10000}") long maximumSize,
+                     @Value("${bookstore.cache.book.expire-after-write:2000}") long expireAfterWriteMillis) {
+        this(maximumSize, expireAfterWriteMillis, Ticker.systemTicker());
+    }
+
+    BookCache(long maximumSize, long expireAfterWriteMillis, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the book from the cache or load it.
+     * The book is loaded outside of the lock of the cache: a transaction evicting its books once it is completed
+     * still holds its connection, and must not wait for a load waiting for a connection.
+     * Concurrent misses of the same book may load it more than once. A loaded book is only cached if its version
+     * did not change during the load, otherwise it may have been read before the eviction.
+     *
+     * @param id
+     * @param loader loads the book from the database, returns null if the book is not present
+     * @return bookDto or null if the book is not present, missing books are not cached
+     */
+    public BookDto get(Long id, Function<Long, BookDto> loader) {
+        BookDto bookDto = cache.getIfPresent(id);
+        if (bookDto == null) {
+            long version = bookVersions.get(stripe(id));
+            bookDto = loader.apply(id);
+            if (bookDto != null) {
+                putIfNotEvicted(id, bookDto, version);
+            }
+        }
+        return bookDto;
+    }
+
+    /**
+     * Get the books from the cache and load the missing ones at once, like get outside of the lock of the cache.
+     *
+     * @param ids
+     * @param loader loads the books of the ids from the database, the books not present are left out
+     * @return bookDto by id of the present books, missing books are not cached
+     */
+    public Map<Long, BookDto> getAll(Collection<Long> ids, Function<List<Long>, Map<Long, BookDto>> loader) {
+        Map<Long, BookDto> bookById = new HashMap<>(cache.getAllPresent(ids));
+        List<Long> missingIds = new ArrayList<>();
+        ids.stream().filter(id -> !bookById.containsKey(id)).forEach(missingIds::add);
+        if (!missingIds.isEmpty()) {
+            Map<Long, Long> versionById = new HashMap<>();
+            missingIds.forEach(id -> versionById.put(id, bookVersions.get(stripe(id))));
+            Map<Long, BookDto> loaded = loader.apply(missingIds);
+            loaded.forEach((id, bookDto) -> putIfNotEvicted(id, bookDto, versionById.get(id)));
+            bookById.putAll(loaded);
+        }
+        return bookById;
+    }
+
+    public void evict(Long id) {
+        bookVersions.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+        bookVersions.incrementAndGet(stripe(id));
+        catalogVersion.incrementAndGet();
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        ids.forEach(id -> bookVersions.incrementAndGet(stripe(id)));
+        cache.invalidateAll(ids);
+        ids.forEach(id -> bookVersions.incrementAndGet(stripe(id)));
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Version of a book, changed whenever the book is evicted
+     *
+     * @param id
+     * @return
+     */
+    public String getBookVersion(Long id) {
+        return epoch + "-" + bookVersions.get(stripe(id));
+    }
+
+    /**
+     * Version of all the books, changed whenever any book is evicted
+     *
+     * @return
+     */
+    public String getCatalogVersion() {
+        return epoch + "-" + catalogVersion.get();
+    }
+
+    public CacheStatisticsDto getStatistics() {
+        CacheStats stats = cache.stats();
+        return CacheStatisticsDto.builder()
+                .name("book")
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    //The version is compared under the lock of the entry, which the invalidation of an eviction also takes:
+    //a put before the invalidation is invalidated, a put after it sees the version changed before it
+    private void putIfNotEvicted(Long id, BookDto bookDto, long version) {
+        cache.asMap().compute(id, (key, cached) -> bookVersions.get(stripe(id)) == version ? bookDto : cached);
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id & (VERSION_STRIPES - 1));
+    }
+
+    //Run the pending evictions, used by tests
+    void cleanUp() {
+        cache.cleanUp();
+    }
+}
@@ -0,0 +1,186 @@
+package com.sulzer.bookstore.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the results of the searches by lower case keyword and category.
+ * Holds results of at most bookstore.cache.search.maximum-weight books in total, a count weighing one book,
+ * each for at most bookstore.cache.search.expire-after-write milliseconds.
+ * The service evicts the results of a category once a transaction selling, adding or changing a book of it is
+ * committed, the results of the other categories are kept.
+ * Cached bookDtos are shared, callers must not modify them.
+ * <p>
+ * Every category has a generation which is part of the key of its results and is changed on eviction,
+ * so a result loaded concurrently with an eviction is stored under the old generation and never served.
+ * Results of an old generation are not removed on eviction, which would scan the whole cache on every sale,
+ * they are never read again and are evicted by weight or expiry like the others.
+ * Results are loaded outside of the lock of the cache: a transaction evicting its categories once it is committed
+ * still holds its connection, and must not wait for a load waiting for a connection.
+ * Concurrent misses of the same search may load it more than once.
+ * The hits and misses are exposed in cache_gets_total with the tag cache=search.
+ */
+@Component
+public class SearchCache {
+
+    private final Cache<Key, Object> cache;
+
+    private final AtomicLongArray generations = new AtomicLongArray(Category.values().length);
+
+    @Autowired
+    public SearchCache(@Value("${bookstore.cache.search.maximum-weight:100000}") long maximumWeight,
+                       @Value("${bookstore.cache.search.expire-after-write:10000}") long expireAfterWriteMillis,
+                       MeterRegistry meterRegistry) {
+        this(maximumWeight, expireAfterWriteMillis, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search");
+    }
+
+    SearchCache(long maximumWeight, long expireAfterWriteMillis, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, Object value) -> value instanceof List ? 1 + ((List<?>) value).size() : 1)
+                .expireAfterWrite(expireAfterWriteMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the books of the search from the cache or load them.
+     *
+     * @param keyword  lower case keyword
+     * @param category null for every category, not cached
+     * @param loader   searches the books in the database
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<BookDto> getBooks(String keyword, Category category, Supplier<List<BookDto>> loader) {
+        if (category == null) {
+            return loader.get();
+        }
+        return (List<BookDto>) get(key(Query.BOOKS, keyword, category), loader::get);
+    }
+
+    /**
+     * Get the number of books sold of the search from the cache or count them.
+     *
+     * @param keyword  lower case keyword
+     * @param category
+     * @param loader   counts the books sold in the database
+     * @return
+     */
+    public int getNumberOfBooksSold(String keyword, Category category, IntSupplier loader) {
+        return (Integer) get(key(Query.NUMBER_OF_BOOKS_SOLD, keyword, category), loader::getAsInt);
+    }
+
+    /**
+     * Evict the results of the categories
+     *
+     * @param categories
+     */
+    public void evictAll(Collection<Category> categories) {
+        boolean[] evicted = new boolean[generations.length()];
+        for (Category category : categories) {
+            if (category != null && !evicted[category.getValue()]) {
+                evicted[category.getValue()] = true;
+                generations.incrementAndGet(category.getValue());
+            }
+        }
+    }
+
+    /**
+     * Evict the results of every category
+     */
+    public void evictAll() {
+        for (int i = 0; i < generations.length(); i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    public CacheStatisticsDto getStatistics() {
+        CacheStats stats = cache.stats();
+        return CacheStatisticsDto.builder()
+                .name("search")
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    private Object get(Key key, Supplier<Object> loader) {
+        Object result = cache.getIfPresent(key);
+        if (result == null) {
+            result = loader.get();
+            cache.put(key, result);
+            //The category was evicted during the load, its result is never read again
+            if (generations.get(key.category.getValue()) != key.generation) {
+                cache.invalidate(key);
+            }
+        }
+        return result;
+    }
+
+    private Key key(Query query, String keyword, Category category) {
+        return new Key(query, keyword, category, generations.get(category.getValue()));
+    }
+
+    //Run the pending evictions, used by tests
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private enum Query {
+        BOOKS, NUMBER_OF_BOOKS_SOLD
+    }
+
+    private static final class Key {
+        private final Query query;
+        private final String keyword;
+        private final Category category;
+        private final long generation;
+
+        Key(Query query, String keyword, Category category, long generation) {
+            this.query = query;
+            this.keyword = keyword;
+            this.category = category;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return query == key.query && keyword.equals(key.keyword) && category == key.category
+                    && generation == key.generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, keyword, category, generation);
+        }
+    }
+}
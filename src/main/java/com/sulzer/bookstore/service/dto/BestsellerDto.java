@@ -0,0 +1,36 @@
+package com.sulzer.bookstore.service.dto;
+
+import com.sulzer.bookstore.constants.Category;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for a book of the bestseller list
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BestsellerDto {
+
+    @ApiModelProperty(value = "Rank of the book in the list, starting at 1")
+    private int rank;
+
+    @ApiModelProperty(value = "Book Identifier")
+    private Long id;
+
+    @ApiModelProperty(value = "Title of the book")
+    private String title;
+
+    @ApiModelProperty(value = "Author of the book")
+    private String author;
+
+    @ApiModelProperty(value = "Category of the book")
+    private Category category;
+
+    @ApiModelProperty(value = "Copies sold, the list is ordered by it")
+    private int sold;
+}
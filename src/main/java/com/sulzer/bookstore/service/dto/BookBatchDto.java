@@ -0,0 +1,25 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data transfer object for the books of a list of ids
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookBatchDto {
+
+    @ApiModelProperty(value = "Books found in the order of the ids, each once, totalCount being the books in store")
+    private List<BookDto> books;
+
+    @ApiModelProperty(value = "Ids of the books which are not found")
+    private List<Long> missingIds;
+}
@@ -0,0 +1,25 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data transfer object for one page of the book list
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookPageDto {
+
+    @ApiModelProperty(value = "Books of the page ordered by id")
+    private List<BookDto> books;
+
+    @ApiModelProperty(value = "Cursor of the next page, null if this is the last page")
+    private Long nextCursor;
+}
@@ -0,0 +1,28 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data transfer object for one page of the books matching a keyword and the matches of every category
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSearchDto {
+
+    @ApiModelProperty(value = "Matching books of the page ordered by id")
+    private List<BookDto> books;
+
+    @ApiModelProperty(value = "Cursor of the next page, null if this is the last page")
+    private Long nextCursor;
+
+    @ApiModelProperty(value = "Matching books and copies sold of every category, ordered by category")
+    private List<CategoryFacetDto> categories;
+}
@@ -0,0 +1,33 @@
+package com.sulzer.bookstore.service.dto;
+
+import com.sulzer.bookstore.constants.Category;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for a book suggested for a prefix of its title or author
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSuggestionDto {
+
+    @ApiModelProperty(value = "Book Identifier")
+    private Long id;
+
+    @ApiModelProperty(value = "Title of the book")
+    private String title;
+
+    @ApiModelProperty(value = "Author of the book")
+    private String author;
+
+    @ApiModelProperty(value = "Category of the book")
+    private Category category;
+
+    @ApiModelProperty(value = "Copies sold, the suggestions are ordered by it")
+    private int sold;
+}
@@ -0,0 +1,35 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for the statistics of an in-process cache
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatisticsDto {
+
+    @ApiModelProperty(value = "Name of the cache")
+    private String name;
+
+    @ApiModelProperty(value = "Number of entries in the cache")
+    private long size;
+
+    @ApiModelProperty(value = "Number of lookups answered from the cache")
+    private long hitCount;
+
+    @ApiModelProperty(value = "Number of lookups which had to load the value")
+    private long missCount;
+
+    @ApiModelProperty(value = "Ratio of lookups answered from the cache")
+    private double hitRate;
+
+    @ApiModelProperty(value = "Number of entries evicted because of size or age")
+    private long evictionCount;
+}
@@ -0,0 +1,27 @@
+package com.sulzer.bookstore.service.dto;
+
+import com.sulzer.bookstore.constants.Category;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for the books of a category matching a keyword
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryFacetDto {
+
+    @ApiModelProperty(value = "Category of the books")
+    private Category category;
+
+    @ApiModelProperty(value = "Number of books matching the keyword")
+    private long books;
+
+    @ApiModelProperty(value = "Copies sold of the books matching the keyword")
+    private long unitsSold;
+}
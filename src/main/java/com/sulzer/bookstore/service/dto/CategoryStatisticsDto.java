@@ -0,0 +1,33 @@
+package com.sulzer.bookstore.service.dto;
+
+import com.sulzer.bookstore.constants.Category;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for the sales and stock totals of a category
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryStatisticsDto {
+
+    @ApiModelProperty(value = "Category of the books")
+    private Category category;
+
+    @ApiModelProperty(value = "Number of registered books")
+    private long books;
+
+    @ApiModelProperty(value = "Copies of the books available on the store")
+    private long unitsInStock;
+
+    @ApiModelProperty(value = "Copies of the books sold")
+    private long unitsSold;
+
+    @ApiModelProperty(value = "Price of the sold copies")
+    private double revenue;
+}
@@ -0,0 +1,26 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object for a row of an import which is not registered
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDto {
+
+    @ApiModelProperty(value = "Line of the row in the file, starting at 1")
+    private long line;
+
+    @ApiModelProperty(value = "Id of the book, null if it cannot be read")
+    private Long id;
+
+    @ApiModelProperty(value = "Reason why the row is not registered")
+    private String message;
+}
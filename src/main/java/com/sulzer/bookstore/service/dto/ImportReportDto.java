@@ -0,0 +1,30 @@
+package com.sulzer.bookstore.service.dto;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data transfer object for the result of a catalog import
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDto {
+
+    @ApiModelProperty(value = "Number of books registered")
+    private long imported;
+
+    @ApiModelProperty(value = "Number of rows rejected")
+    private long failed;
+
+    @ApiModelProperty(value = "Rejected rows, only the first ones if there are more than the limit")
+    @Builder.Default
+    private List<ImportErrorDto> errors = new ArrayList<>();
+}
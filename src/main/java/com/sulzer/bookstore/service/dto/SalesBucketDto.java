@@ -0,0 +1,31 @@
+package com.sulzer.bookstore.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Data transfer object for the sales of one bucket of the sales history
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesBucketDto {
+
+    //Written like the from and to of the query rather than as epoch seconds
+    @ApiModelProperty(value = "Start of the bucket")
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Instant start;
+
+    @ApiModelProperty(value = "Copies sold in the bucket")
+    private long unitsSold;
+
+    @ApiModelProperty(value = "Price of the copies sold in the bucket")
+    private double revenue;
+}
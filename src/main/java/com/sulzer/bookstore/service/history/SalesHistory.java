@@ -0,0 +1,318 @@
+package com.sulzer.bookstore.service.history;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.domain.BookSalesRollupRepository;
+import com.sulzer.bookstore.domain.CategorySalesRollupRepository;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * History of the sales in minute, hour and day buckets, per book and per category.
+ * A sale is queued in memory with its time once it is committed, and the queued sales are added to the buckets
+ * of every resolution with one batch every flush interval, so the sell path never writes the history.
+ * The category and price of the sold books are read when their sales are flushed.
+ * <p>
+ * The history is behind by at most one flush interval and the sales of the last interval are lost if the process
+ * dies, a normal shutdown flushes everything. The sales are added to the buckets, so several instances may share
+ * the history. Minute buckets are deleted after bookstore.sales-history.minute-retention hours.
+ */
+@Component
+public class SalesHistory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SalesHistory.class);
+
+    //MySQL upserts, which H2 also runs in the MySQL mode of the tests and benchmarks. Another database needs its own
+    //statement here, like insert ... on conflict on PostgreSQL, the rest of the history only uses JPQL
+    private static final String ADD_BOOK_SALES = "insert into book_sales_rollup " +
+            "(resolution, book_id, bucket_start, units_sold, revenue) values (?, ?, ?, ?, ?) " +
+            "on duplicate key update units_sold = units_sold + values(units_sold), revenue = revenue + values(revenue)";
+
+    private static final String ADD_CATEGORY_SALES = "insert into category_sales_rollup " +
+            "(resolution, category, bucket_start, units_sold, revenue) values (?, ?, ?, ?, ?) " +
+            "on duplicate key update units_sold = units_sold + values(units_sold), revenue = revenue + values(revenue)";
+
+    private final BookRepository bookRepository;
+
+    private final BookSalesRollupRepository bookSalesRollupRepository;
+
+    private final CategorySalesRollupRepository categorySalesRollupRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long flushInterval;
+
+    private final long minuteRetention;
+
+    private final Clock clock;
+
+    private final Queue<Sale> sales = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public SalesHistory(BookRepository bookRepository, BookSalesRollupRepository bookSalesRollupRepository,
+                        CategorySalesRollupRepository categorySalesRollupRepository, JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${bookstore.sales-history.flush-interval:1000}") long flushInterval,
+                        @Value("${bookstore.sales-history.minute-retention:48}") long minuteRetentionHours) {
+        this(bookRepository, bookSalesRollupRepository, categorySalesRollupRepository, jdbcTemplate,
+                transactionManager, flushInterval, minuteRetentionHours, Clock.systemUTC());
+    }
+
+    SalesHistory(BookRepository bookRepository, BookSalesRollupRepository bookSalesRollupRepository,
+                 CategorySalesRollupRepository categorySalesRollupRepository, JdbcTemplate jdbcTemplate,
+                 PlatformTransactionManager transactionManager, long flushInterval, long minuteRetentionHours,
+                 Clock clock) {
+        this.bookRepository = bookRepository;
+        this.bookSalesRollupRepository = bookSalesRollupRepository;
+        this.categorySalesRollupRepository = categorySalesRollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //Flushes run in their own transaction, never in the one of the caller
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushInterval = flushInterval;
+        this.minuteRetention = TimeUnit.HOURS.toMillis(minuteRetentionHours);
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-history-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::purgeQuietly, 0, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Copies of a book are sold and committed, queued without waiting for the database
+     *
+     * @param id
+     * @param quantity
+     */
+    public void recordSale(Long id, int quantity) {
+        sales.add(new Sale(id, quantity, clock.millis()));
+    }
+
+    /**
+     * Add the queued sales to the buckets.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Sale> batch = new ArrayList<>();
+            for (Sale sale = sales.poll(); sale != null; sale = sales.poll()) {
+                batch.add(sale);
+            }
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                sales.addAll(batch);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Delete the minute buckets older than the retention.
+     */
+    public void purge() {
+        long before = SalesResolution.MINUTE.bucketStart(clock.millis() - minuteRetention);
+        int deleted = transactionTemplate.execute(status ->
+                bookSalesRollupRepository.deleteOlderThan(SalesResolution.MINUTE, before)
+                        + categorySalesRollupRepository.deleteOlderThan(SalesResolution.MINUTE, before));
+        LOGGER.debug("{} minute buckets of the sales history are deleted.", deleted);
+    }
+
+    /**
+     * Sales of a book in the buckets starting in [from, to), buckets without sales are left out
+     *
+     * @param id
+     * @param resolution
+     * @param from
+     * @param to
+     * @return buckets ordered by start
+     */
+    public List<SalesBucketDto> getBookSales(Long id, SalesResolution resolution, Instant from, Instant to) {
+        return bookSalesRollupRepository.findBuckets(resolution, id, resolution.bucketStart(from.toEpochMilli()),
+                to.toEpochMilli()).stream()
+                .map(rollup -> toDto(rollup.getBucketStart(), rollup.getUnitsSold(), rollup.getRevenue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sales of a category in the buckets starting in [from, to), buckets without sales are left out
+     *
+     * @param category   category of the books, null for every category
+     * @param resolution
+     * @param from
+     * @param to
+     * @return buckets ordered by start
+     */
+    public List<SalesBucketDto> getCategorySales(Category category, SalesResolution resolution, Instant from,
+                                                 Instant to) {
+        long start = resolution.bucketStart(from.toEpochMilli());
+        if (category == null) {
+            return categorySalesRollupRepository.sumBuckets(resolution, start, to.toEpochMilli()).stream()
+                    .map(row -> toDto(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                            ((Number) row[2]).doubleValue()))
+                    .collect(Collectors.toList());
+        }
+        return categorySalesRollupRepository.findBuckets(resolution, category, start, to.toEpochMilli()).stream()
+                .map(rollup -> toDto(rollup.getBucketStart(), rollup.getUnitsSold(), rollup.getRevenue()))
+                .collect(Collectors.toList());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Sales history flush failed, it is retried at the next interval.", e);
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            LOGGER.error("Sales history purge failed, it is retried in an hour.", e);
+        }
+    }
+
+    //Must hold the flush lock
+    private void flush(List<Sale> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = batch.stream().map(sale -> sale.id).collect(Collectors.toCollection(TreeSet::new));
+        Map<Long, Object[]> categoryAndPriceById = new HashMap<>();
+        bookRepository.findCategoryAndPriceById(ids).forEach(row -> categoryAndPriceById.put((Long) row[0], row));
+        Map<Rollup, Rollup> bookRollups = new HashMap<>();
+        Map<Rollup, Rollup> categoryRollups = new HashMap<>();
+        for (Sale sale : batch) {
+            Object[] categoryAndPrice = categoryAndPriceById.get(sale.id);
+            if (categoryAndPrice == null) {
+                continue;
+            }
+            Category category = (Category) categoryAndPrice[1];
+            double revenue = sale.quantity * ((Number) categoryAndPrice[2]).doubleValue();
+            for (SalesResolution resolution : SalesResolution.values()) {
+                long bucketStart = resolution.bucketStart(sale.time);
+                add(bookRollups, new Rollup(resolution, sale.id, bucketStart), sale.quantity, revenue);
+                if (category != null) {
+                    add(categoryRollups, new Rollup(resolution, category.getValue(), bucketStart),
+                            sale.quantity, revenue);
+                }
+            }
+        }
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(ADD_BOOK_SALES, rows(bookRollups));
+            jdbcTemplate.batchUpdate(ADD_CATEGORY_SALES, rows(categoryRollups));
+            return null;
+        });
+        LOGGER.debug("{} sales are added to the sales history.", batch.size());
+    }
+
+    private static void add(Map<Rollup, Rollup> rollups, Rollup key, int quantity, double revenue) {
+        Rollup rollup = rollups.computeIfAbsent(key, k -> k);
+        rollup.unitsSold += quantity;
+        rollup.revenue += revenue;
+    }
+
+    //Rows in the order of the unique key, so two instances flushing the same buckets cannot deadlock
+    private static List<Object[]> rows(Map<Rollup, Rollup> rollups) {
+        return rollups.values().stream()
+                .sorted(Comparator.comparing((Rollup rollup) -> rollup.resolution)
+                        .thenComparingLong(rollup -> rollup.owner)
+                        .thenComparingLong(rollup -> rollup.bucketStart))
+                .map(rollup -> new Object[]{rollup.resolution.ordinal(), rollup.owner, rollup.bucketStart,
+                        rollup.unitsSold, rollup.revenue})
+                .collect(Collectors.toList());
+    }
+
+    private static SalesBucketDto toDto(long bucketStart, long unitsSold, double revenue) {
+        return SalesBucketDto.builder().start(Instant.ofEpochMilli(bucketStart)).unitsSold(unitsSold)
+                .revenue(revenue).build();
+    }
+
+    private static final class Sale {
+        private final Long id;
+        private final int quantity;
+        private final long time;
+
+        private Sale(Long id, int quantity, long time) {
+            this.id = id;
+            this.quantity = quantity;
+            this.time = time;
+        }
+    }
+
+    //Sales of a book or a category in one bucket, equal by resolution, owner and bucket start
+    private static final class Rollup {
+        private final SalesResolution resolution;
+        private final long owner;
+        private final long bucketStart;
+        private long unitsSold;
+        private double revenue;
+
+        private Rollup(SalesResolution resolution, long owner, long bucketStart) {
+            this.resolution = resolution;
+            this.owner = owner;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Rollup)) {
+                return false;
+            }
+            Rollup other = (Rollup) o;
+            return resolution == other.resolution && owner == other.owner && bucketStart == other.bucketStart;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resolution, owner, bucketStart);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.sulzer.bookstore.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.cache.BookCache;
+import com.sulzer.bookstore.service.cache.SearchCache;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.ImportErrorDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.inventory.InventoryEngine;
+import com.sulzer.bookstore.service.journal.SalesJournal;
+import com.sulzer.bookstore.service.leaderboard.BestsellerLeaderboard;
+import com.sulzer.bookstore.service.mapper.BookMapper;
+import com.sulzer.bookstore.service.search.BookSearchEngine;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Registers the books of a streamed catalog file.
+ * The rows are read one at a time and registered in chunks of bookstore.import.chunk-size rows:
+ * the duplicates of a chunk are found with one query and the new books are inserted with one JDBC batch,
+ * in one transaction with the statistics. A row which cannot be read, is not valid or is already registered
+ * is reported and skipped, the other rows are registered.
+ * Each chunk is committed on its own, so the chunks before a database failure stay registered.
+ * Only the first bookstore.import.max-reported-errors errors are listed in the report, all of them are counted.
+ */
+@Component
+public class BookImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookImporter.class);
+    private static final String INSERT = "insert into book (id, author, title, category, price, total_count, sold, version) " +
+            "values (?, ?, ?, ?, ?, ?, 0, 0)";
+
+    private final BookRepository bookRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookMapper bookMapper;
+
+    private final Validator validator;
+
+    private final ObjectReader bookDtoReader;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final BookSearchEngine bookSearchEngine;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    private final BestsellerLeaderboard bestsellerLeaderboard;
+
+    private final BookCache bookCache;
+
+    private final SearchCache searchCache;
+
+    private final InventoryEngine inventoryEngine;
+
+    private final SalesJournal salesJournal;
+
+    private final int chunkSize;
+
+    private final int maxReportedErrors;
+
+    @Autowired
+    public BookImporter(BookRepository bookRepository, JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager, BookMapper bookMapper, Validator validator,
+                        ObjectMapper objectMapper, CategoryStatisticsStore categoryStatisticsStore,
+                        BookSearchEngine bookSearchEngine, AutocompleteIndex autocompleteIndex,
+                        BestsellerLeaderboard bestsellerLeaderboard, BookCache bookCache,
+                        SearchCache searchCache, InventoryEngine inventoryEngine, SalesJournal salesJournal,
+                        @Value("${bookstore.import.chunk-size:1000}") int chunkSize,
+                        @Value("${bookstore.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookMapper = bookMapper;
+        this.validator = validator;
+        this.bookDtoReader = objectMapper.readerFor(BookDto.class);
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.bookSearchEngine = bookSearchEngine;
+        this.autocompleteIndex = autocompleteIndex;
+        this.bestsellerLeaderboard = bestsellerLeaderboard;
+        this.bookCache = bookCache;
+        this.searchCache = searchCache;
+        this.inventoryEngine = inventoryEngine;
+        this.salesJournal = salesJournal;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Register the books of the file
+     *
+     * @param inputStream file encoded in UTF-8, read up to its end
+     * @param format
+     * @return report of the registered and rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReportDto importBooks(InputStream inputStream, ImportFormat format) throws IOException {
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        BookRowReader rowReader = format == ImportFormat.CSV
+                ? new CsvBookRowReader(reader) : new NdjsonBookRowReader(reader, bookDtoReader);
+        ImportReportDto report = ImportReportDto.builder().build();
+        //Rows of the chunk by id, in file order
+        Map<Long, Row> chunk = new LinkedHashMap<>();
+        while (true) {
+            BookDto bookDto;
+            try {
+                bookDto = rowReader.read();
+            } catch (IllegalArgumentException e) {
+                reject(report, rowReader.getLine(), null, e.getMessage());
+                continue;
+            }
+            if (bookDto == null) {
+                break;
+            }
+            long line = rowReader.getLine();
+            Book book = bookMapper.toBook(bookDto);
+            String violations = validate(book);
+            Row previous = violations == null ? chunk.get(book.getId()) : null;
+            if (violations != null) {
+                reject(report, line, book.getId(), violations);
+            } else if (previous != null) {
+                reject(report, line, book.getId(), "Book with same id is at line " + previous.line + ".");
+            } else {
+                chunk.put(book.getId(), new Row(line, book));
+                if (chunk.size() == chunkSize) {
+                    register(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        register(chunk, report);
+        LOGGER.info("{} books are imported, {} rows are rejected.", report.getImported(), report.getFailed());
+        return report;
+    }
+
+    //Violations of the row in one message, null if it is valid
+    private String validate(Book book) {
+        if (book.getId() == null) {
+            return "Id is required.";
+        }
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted().collect(Collectors.joining(", "));
+    }
+
+    private void register(Map<Long, Row> chunk, ImportReportDto report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Book> books;
+        try {
+            books = insert(chunk);
+        } catch (DuplicateKeyException e) {
+            //A book of the chunk is registered concurrently after the check, the chunk is checked again
+            books = insert(chunk);
+        }
+        chunk.values().stream().filter(row -> !row.registered)
+                .forEach(row -> reject(report, row.line, row.book.getId(), "Book with same id present."));
+        report.setImported(report.getImported() + books.size());
+        books.forEach(book -> {
+            inventoryEngine.saved(book);
+            bookSearchEngine.index(book);
+            autocompleteIndex.index(book);
+            bestsellerLeaderboard.index(book);
+        });
+        salesJournal.recordSaved(books);
+        bookCache.evictAll(chunk.keySet());
+        searchCache.evictAll(books.stream().map(Book::getCategory).collect(Collectors.toSet()));
+    }
+
+    //Insert the books of the rows that are not registered yet in one transaction and mark the rows
+    private List<Book> insert(Map<Long, Row> chunk) {
+        return transactionTemplate.execute(status -> {
+            Set<Long> existingIds = new HashSet<>(bookRepository.findExistingIds(chunk.keySet()));
+            List<Book> books = new ArrayList<>(chunk.size());
+            chunk.values().forEach(row -> {
+                row.registered = !existingIds.contains(row.book.getId());
+                if (row.registered) {
+                    books.add(row.book);
+                }
+            });
+            jdbcTemplate.batchUpdate(INSERT, books, books.size(), (statement, book) -> {
+                statement.setLong(1, book.getId());
+                statement.setString(2, book.getAuthor());
+                statement.setString(3, book.getTitle());
+                if (book.getCategory() != null) {
+                    statement.setInt(4, book.getCategory().ordinal());
+                } else {
+                    statement.setNull(4, Types.INTEGER);
+                }
+                statement.setFloat(5, book.getPrice());
+                statement.setInt(6, book.getTotalCount());
+            });
+            categoryStatisticsStore.recordAllAdded(books);
+            return books;
+        });
+    }
+
+    private void reject(ImportReportDto report, long line, Long id, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(ImportErrorDto.builder().line(line).id(id).message(message).build());
+        }
+    }
+
+    /**
+     * Row of the file waiting in a chunk
+     */
+    private static final class Row {
+
+        private final long line;
+
+        private final Book book;
+
+        private boolean registered;
+
+        private Row(long line, Book book) {
+            this.line = line;
+            this.book = book;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sulzer.bookstore.service.importer;
+
+import com.sulzer.bookstore.service.dto.BookDto;
+
+import java.io.IOException;
+
+/**
+ * Reads the rows of an import one at a time, so the file is never held in memory.
+ */
+interface BookRowReader {
+
+    /**
+     * Read the next row.
+     *
+     * @return bookDto of the row, null at the end of the input
+     * @throws IllegalArgumentException if the row cannot be read, the next call reads the row after it
+     */
+    BookDto read() throws IOException;
+
+    /**
+     * Line of the input where the row read last starts, starting at 1
+     *
+     * @return
+     */
+    long getLine();
+}
@@ -0,0 +1,166 @@
+package com.sulzer.bookstore.service.importer;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads comma separated rows as described in RFC 4180: a field may be quoted with double quotes,
+ * a quoted field may hold commas, line breaks and doubled quotes. The first row names the columns,
+ * id is required and the other columns are optional. Column names are case insensitive and may use
+ * underscores, like total_count. Category is the name of the category.
+ */
+class CsvBookRowReader implements BookRowReader {
+
+    private static final String[] COLUMNS = {"id", "title", "author", "category", "price", "totalcount"};
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+    private static final int CATEGORY = 3;
+    private static final int PRICE = 4;
+    private static final int TOTAL_COUNT = 5;
+
+    private final BufferedReader reader;
+
+    //Index of each of COLUMNS in a row, -1 if the column is missing
+    private final int[] positions = new int[COLUMNS.length];
+
+    private final List<String> fields = new ArrayList<>();
+
+    private final StringBuilder field = new StringBuilder();
+
+    private long nextLine = 1;
+
+    private long line;
+
+    CsvBookRowReader(Reader reader) throws IOException {
+        this.reader = new BufferedReader(reader);
+        if (!readRecord()) {
+            throw new BadRequestException("The CSV file is empty, the first row must name the columns.");
+        }
+        Map<String, Integer> positionByName = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            positionByName.put(fields.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        for (int column = 0; column < COLUMNS.length; column++) {
+            positions[column] = positionByName.getOrDefault(COLUMNS[column], -1);
+        }
+        if (positions[ID] < 0) {
+            throw new BadRequestException("The first row of the CSV file must name the columns, id is missing.");
+        }
+    }
+
+    @Override
+    public BookDto read() throws IOException {
+        do {
+            if (!readRecord()) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isEmpty());
+        if (fields.size() <= positions[ID]) {
+            throw new IllegalArgumentException("The row has " + fields.size() + " columns, the header has more.");
+        }
+        try {
+            BookDto bookDto = new BookDto();
+            bookDto.setId(Long.parseLong(fields.get(positions[ID]).trim()));
+            bookDto.setTitle(text(TITLE));
+            bookDto.setAuthor(text(AUTHOR));
+            String category = text(CATEGORY);
+            if (category != null) {
+                bookDto.setCategory(category(category));
+            }
+            String price = text(PRICE);
+            if (price != null) {
+                bookDto.setPrice(Float.parseFloat(price));
+            }
+            String totalCount = text(TOTAL_COUNT);
+            if (totalCount != null) {
+                bookDto.setTotalCount(Integer.parseInt(totalCount));
+            }
+            return bookDto;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    //Value of the column in the current row, null if the column or the value is missing
+    private String text(int column) {
+        int position = positions[column];
+        if (position < 0 || position >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Category category(String name) {
+        try {
+            return Category.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown category: " + name);
+        }
+    }
+
+    //Read the fields of the next record, false at the end of the input.
+    //The input is read line by line, a line break inside a quoted field continues the record on the next line.
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        line = nextLine;
+        String text = reader.readLine();
+        if (text == null) {
+            return false;
+        }
+        nextLine++;
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) {
+                    fields.add(field.toString());
+                    return true;
+                }
+                text = reader.readLine();
+                if (text == null) {
+                    throw new IllegalArgumentException("Quoted field is not closed.");
+                }
+                nextLine++;
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < text.length() && text.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.sulzer.bookstore.service.importer;
+
+/**
+ * Formats of a catalog import.
+ * CSV has a header row naming the columns id, title, author, category, price and totalCount in any order.
+ * NDJSON has one bookDto per line.
+ */
+public enum ImportFormat {
+    CSV,
+    NDJSON
+}
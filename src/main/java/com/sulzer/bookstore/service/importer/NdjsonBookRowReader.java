@@ -0,0 +1,49 @@
+package com.sulzer.bookstore.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sulzer.bookstore.service.dto.BookDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads one bookDto per line, blank lines are skipped.
+ * Each line is parsed on its own, so a malformed line does not stop the lines after it.
+ */
+class NdjsonBookRowReader implements BookRowReader {
+
+    private final BufferedReader reader;
+
+    private final ObjectReader bookDtoReader;
+
+    private long line;
+
+    NdjsonBookRowReader(Reader reader, ObjectReader bookDtoReader) {
+        this.reader = new BufferedReader(reader);
+        this.bookDtoReader = bookDtoReader;
+    }
+
+    @Override
+    public BookDto read() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+        try {
+            return bookDtoReader.readValue(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public long getLine() {
+        return line;
+    }
+}
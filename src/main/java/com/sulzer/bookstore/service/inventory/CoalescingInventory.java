@@ -0,0 +1,219 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Database inventory where concurrent sells of the same book are coalesced into one update of the book row.
+ * The first seller of a book opens a batch, waits for the coalescing window or until the batch is full,
+ * and sells the whole batch in one transaction. The sellers that joined the batch wait for its result.
+ * The sales of a batch are accepted in arrival order as long as there are enough books in store,
+ * each seller gets its own success or out of stock. Everything but single book sells goes to the database inventory.
+ * A sale is acknowledged only after its batch is committed, so a crash loses no acknowledged sale.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.inventory.mode", havingValue = "coalescing")
+public class CoalescingInventory implements InventoryEngine {
+
+    private final BookRepository bookRepository;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final OptimisticRetry optimisticRetry;
+
+    private final DatabaseInventory databaseInventory;
+
+    private final DistributionSummary batchSizes;
+
+    private final long window;
+
+    private final int maxBatchSize;
+
+    private final ConcurrentMap<Long, Batch> openBatches = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CoalescingInventory(BookRepository bookRepository, CategoryStatisticsStore categoryStatisticsStore,
+                               OptimisticRetry optimisticRetry, MeterRegistry meterRegistry,
+                               @Value("${bookstore.inventory.coalescing.window:200}") long window,
+                               @Value("${bookstore.inventory.coalescing.max-batch-size:256}") int maxBatchSize) {
+        this.bookRepository = bookRepository;
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.optimisticRetry = optimisticRetry;
+        this.databaseInventory = new DatabaseInventory(bookRepository, categoryStatisticsStore, optimisticRetry);
+        this.batchSizes = DistributionSummary.builder("bookstore.inventory.coalesced")
+                .description("Sales of one book sold in one update")
+                .register(meterRegistry);
+        this.window = TimeUnit.MICROSECONDS.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void addStock(Long id, int quantity) {
+        databaseInventory.addStock(id, quantity);
+    }
+
+    @Override
+    public void sell(Long id, int quantity) {
+        //A caller with its own transaction must see the sale in it, it cannot wait for the batch of others
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            databaseInventory.sell(id, quantity);
+            return;
+        }
+        Sale sale = new Sale(quantity);
+        Batch batch = openBatches.compute(id, (key, open) -> open != null && open.add(sale) ? open : new Batch(sale));
+        if (batch.leader == Thread.currentThread()) {
+            long deadline = System.nanoTime() + window;
+            long remaining;
+            while (!batch.isFull() && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            //Sellers coming after this point open the next batch
+            openBatches.remove(id, batch);
+            sellBatch(id, batch.close());
+        }
+        try {
+            sale.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Override
+    public void sellAll(Map<Long, Integer> quantityById) {
+        databaseInventory.sellAll(quantityById);
+    }
+
+    @Override
+    public void beforeUpdate(Long id) {
+        //Database is always up to date
+    }
+
+    @Override
+    public void saved(Book book) {
+        //Database is always up to date
+    }
+
+    @Override
+    public int getTotalCount(Long id, int storedTotalCount) {
+        return storedTotalCount;
+    }
+
+    /**
+     * Sell the sales of a batch with one conditional update and complete every sale.
+     */
+    private void sellBatch(Long id, List<Sale> sales) {
+        batchSizes.record(sales.size());
+        try {
+            boolean[] accepted = optimisticRetry.inTransaction("sellBook", () -> {
+                Optional<Integer> totalCount = bookRepository.findTotalCountById(id);
+                if (!totalCount.isPresent()) {
+                    return null;
+                }
+                boolean[] acceptedSales = new boolean[sales.size()];
+                int left = totalCount.get();
+                int quantity = 0;
+                for (int i = 0; i < sales.size(); i++) {
+                    if (sales.get(i).quantity <= left) {
+                        acceptedSales[i] = true;
+                        left -= sales.get(i).quantity;
+                        quantity += sales.get(i).quantity;
+                    }
+                }
+                if (quantity > 0) {
+                    if (bookRepository.sell(id, quantity) == 0) {
+                        //A concurrent order sold copies since the total count was read, sell the batch again
+                        throw new ObjectOptimisticLockingFailureException(Book.class, id);
+                    }
+                    categoryStatisticsStore.recordSale(id, quantity);
+                }
+                return acceptedSales;
+            });
+            for (int i = 0; i < sales.size(); i++) {
+                if (accepted == null) {
+                    sales.get(i).completeExceptionally(new BookNotFoundException("Book with id: " + id + " is not found."));
+                } else if (accepted[i]) {
+                    sales.get(i).complete(null);
+                } else {
+                    sales.get(i).completeExceptionally(
+                            new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell."));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            sales.forEach(sale -> sale.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Sale of one seller, completed when its batch is committed or failed.
+     */
+    private static final class Sale extends CompletableFuture<Void> {
+
+        private final int quantity;
+
+        private Sale(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * Sales of one book collected by the thread that opened the batch, the leader.
+     */
+    private final class Batch {
+
+        private final Thread leader = Thread.currentThread();
+
+        private final List<Sale> sales = new ArrayList<>();
+
+        private boolean closed;
+
+        private Batch(Sale sale) {
+            sales.add(sale);
+        }
+
+        synchronized boolean add(Sale sale) {
+            if (closed || sales.size() >= maxBatchSize) {
+                return false;
+            }
+            sales.add(sale);
+            if (sales.size() >= maxBatchSize) {
+                LockSupport.unpark(leader);
+            }
+            return true;
+        }
+
+        synchronized boolean isFull() {
+            return sales.size() >= maxBatchSize;
+        }
+
+        synchronized List<Sale> close() {
+            closed = true;
+            return sales;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Default inventory where the counts live only in the book table.
+ * Each change is made in one transaction with the statistics, retried if the book is changed concurrently.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.inventory.mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventory implements InventoryEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseInventory.class);
+
+    private final BookRepository bookRepository;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final OptimisticRetry optimisticRetry;
+
+    @Autowired
+    public DatabaseInventory(BookRepository bookRepository, CategoryStatisticsStore categoryStatisticsStore,
+                             OptimisticRetry optimisticRetry) {
+        this.bookRepository = bookRepository;
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.optimisticRetry = optimisticRetry;
+    }
+
+    @Override
+    public void addStock(Long id, int quantity) {
+        optimisticRetry.inTransaction("addBook", () -> {
+            //Get the book by id
+            Book book = bookRepository.findById(id)
+                    .orElseThrow(() -> new BookNotFoundException("Book with id:" + id + " is not registered. Use addNewBook to register."));
+            LOGGER.debug("The book with id {} is registered", id);
+
+            int totalCountAfterAdd = book.getTotalCount() + quantity;
+            book.setTotalCount(totalCountAfterAdd);
+
+            bookRepository.save(book);
+            categoryStatisticsStore.recordStockAdded(book, quantity);
+        });
+    }
+
+    /**
+     * Sell with one conditional update, the book is not loaded.
+     */
+    @Override
+    public void sell(Long id, int quantity) {
+        optimisticRetry.inTransaction("sellBook", () -> {
+            if (bookRepository.sell(id, quantity) == 0) {
+                //Nothing is updated, either the book is missing or there is no book left in store
+                if (!bookRepository.existsById(id)) {
+                    throw new BookNotFoundException("Book with id: " + id + " is not found.");
+                }
+                throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
+            }
+            categoryStatisticsStore.recordSale(id, quantity);
+        });
+    }
+
+    /**
+     * All the books are loaded in one query and the whole order is validated before anything is written.
+     * The books are not locked, the order is sold again if one of them is changed before the commit.
+     */
+    @Override
+    public void sellAll(Map<Long, Integer> quantityById) {
+        optimisticRetry.inTransaction("sellBooks", () -> {
+            List<Book> books = bookRepository.findAllById(new ArrayList<>(quantityById.keySet()));
+            Map<Long, Book> bookById = books.stream().collect(Collectors.toMap(Book::getId, book -> book));
+            quantityById.forEach((id, quantity) -> {
+                Book book = bookById.get(id);
+                if (book == null) {
+                    throw new BookNotFoundException("Book with id: " + id + " is not found.");
+                }
+                if (book.getTotalCount() - quantity < 0) {
+                    throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
+                }
+            });
+
+            //Selling book decreases the amount of book in the store and increases the amount of book sold.
+            books.forEach(book -> {
+                int quantity = quantityById.get(book.getId());
+                book.setTotalCount(book.getTotalCount() - quantity);
+                book.setSold(book.getSold() + quantity);
+            });
+            LOGGER.debug("Total amount is decreased and sold amount increased.");
+            bookRepository.saveAll(books);
+            categoryStatisticsStore.recordSales(books, quantityById);
+        });
+    }
+
+    @Override
+    public void beforeUpdate(Long id) {
+        //Database is always up to date
+    }
+
+    @Override
+    public void saved(Book book) {
+        //Database is always up to date
+    }
+
+    @Override
+    public int getTotalCount(Long id, int storedTotalCount) {
+        return storedTotalCount;
+    }
+}
@@ -0,0 +1,295 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.inventory.StockTable.Cell;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory for flash sales where the counts are held in memory and sold with CAS, without a database round trip.
+ * Changed counts are written to the book table in one batch every flush interval, together with the statistics.
+ * <p>
+ * Crash semantics: the database is behind by at most one flush interval. A sale is acknowledged before it is
+ * written, so the sales of the last interval are lost if the process dies, and they were never oversold.
+ * On restart the counts are loaded again from the book table. A normal shutdown flushes everything.
+ * Only one application instance may run in this mode, as the counts are not shared between instances.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.inventory.mode", havingValue = "memory")
+public class InMemoryInventory implements InventoryEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryInventory.class);
+    private static final int LOAD_PAGE_SIZE = 1_000;
+
+    private final BookRepository bookRepository;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final long flushInterval;
+
+    private final StockTable stockTable = new StockTable();
+
+    private final Queue<Cell> dirtyCells = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public InMemoryInventory(BookRepository bookRepository, CategoryStatisticsStore categoryStatisticsStore,
+                             JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             @Value("${bookstore.inventory.flush-interval:100}") long flushInterval) {
+        this.bookRepository = bookRepository;
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //Flushes run in their own transaction, never in the one of the caller
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        reload();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Load the counts of every book from the book table, replacing the counts in memory.
+     * Must not run while books are sold.
+     */
+    public void reload() {
+        Page<Book> page;
+        int pageNumber = 0;
+        do {
+            page = bookRepository.findAll(PageRequest.of(pageNumber++, LOAD_PAGE_SIZE, Sort.by("id")));
+            synchronized (flushLock) {
+                page.forEach(book -> {
+                    Cell cell = stockTable.putIfAbsent(book.getId(), book.getTotalCount(), book.getSold());
+                    cell.set(Cell.pack(book.getTotalCount(), book.getSold()));
+                    cell.flushed = cell.get();
+                });
+            }
+        } while (page.hasNext());
+        LOGGER.info("Inventory of {} books is loaded.", stockTable.size());
+    }
+
+    @Override
+    public void addStock(Long id, int quantity) {
+        Cell cell = getCell(id, "Book with id:" + id + " is not registered. Use addNewBook to register.");
+        cell.addStock(quantity);
+        markDirty(cell);
+    }
+
+    @Override
+    public void sell(Long id, int quantity) {
+        Cell cell = getCell(id, "Book with id: " + id + " is not found.");
+        if (!cell.trySell(quantity)) {
+            throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
+        }
+        markDirty(cell);
+    }
+
+    /**
+     * Sell every book of the order or none of them.
+     * The books are taken one by one and given back if one of them is short,
+     * so a concurrent reader may see the order partially taken for a moment.
+     */
+    @Override
+    public void sellAll(Map<Long, Integer> quantityById) {
+        List<Cell> cells = new ArrayList<>(quantityById.size());
+        quantityById.forEach((id, quantity) -> cells.add(getCell(id, "Book with id: " + id + " is not found.")));
+
+        int sold = 0;
+        for (Cell cell : cells) {
+            if (!cell.trySell(quantityById.get(cell.id))) {
+                break;
+            }
+            sold++;
+        }
+        if (sold < cells.size()) {
+            for (int index = 0; index < sold; index++) {
+                cells.get(index).unsell(quantityById.get(cells.get(index).id));
+            }
+            throw new BadRequestException("TotalCount cannot be negative. Not enough book in store to sell.");
+        }
+        cells.forEach(this::markDirty);
+    }
+
+    /**
+     * The service reads the sold count from the database, so it must be current.
+     */
+    @Override
+    public void beforeUpdate(Long id) {
+        Cell cell = stockTable.get(id);
+        if (cell != null) {
+            synchronized (flushLock) {
+                flush(new ArrayList<>(Collections.singletonList(cell)));
+            }
+        }
+    }
+
+    /**
+     * The saved counts replace the counts in memory.
+     * Sales made in memory since the last flush are kept on top of them.
+     */
+    @Override
+    public void saved(Book book) {
+        Cell cell = stockTable.putIfAbsent(book.getId(), book.getTotalCount(), book.getSold());
+        synchronized (flushLock) {
+            long saved = Cell.pack(book.getTotalCount(), book.getSold());
+            while (true) {
+                long counts = cell.get();
+                int unflushedSold = Cell.sold(counts) - Cell.sold(cell.flushed);
+                int totalCount = Math.max(0, book.getTotalCount() - unflushedSold);
+                if (cell.compareAndSet(counts, Cell.pack(totalCount, book.getSold() + unflushedSold))) {
+                    break;
+                }
+            }
+            cell.flushed = saved;
+            if (cell.get() != saved) {
+                markDirty(cell);
+            }
+        }
+    }
+
+    @Override
+    public int getTotalCount(Long id, int storedTotalCount) {
+        Cell cell = stockTable.get(id);
+        return cell == null ? storedTotalCount : Cell.totalCount(cell.get());
+    }
+
+    /**
+     * Write every changed count to the database.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Cell> cells = new ArrayList<>();
+            for (Cell cell = dirtyCells.poll(); cell != null; cell = dirtyCells.poll()) {
+                cells.add(cell);
+            }
+            flush(cells);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Inventory flush failed, it is retried at the next interval.", e);
+        }
+    }
+
+    //Must hold the flush lock
+    private void flush(List<Cell> cells) {
+        if (cells.isEmpty()) {
+            return;
+        }
+        //Rows are written in id order so a flush cannot deadlock with the service
+        cells.sort(Comparator.comparingLong(cell -> cell.id));
+        //A cell flushed by beforeUpdate and changed again can be queued twice
+        for (int index = cells.size() - 1; index > 0; index--) {
+            if (cells.get(index) == cells.get(index - 1)) {
+                cells.remove(index);
+            }
+        }
+        long[] counts = new long[cells.size()];
+        List<Object[]> batch = new ArrayList<>(cells.size());
+        for (int index = 0; index < cells.size(); index++) {
+            Cell cell = cells.get(index);
+            //Cleared before the read, so a sale after the read marks the cell dirty again
+            cell.dirty.set(false);
+            counts[index] = cell.get();
+            batch.add(new Object[]{Cell.totalCount(counts[index]), Cell.sold(counts[index]), cell.id,
+                    Cell.totalCount(cell.flushed), Cell.sold(cell.flushed)});
+        }
+        int[] updated;
+        try {
+            updated = transactionTemplate.execute(status -> {
+                //Only over the counts last flushed: an update of the book committed by the service before its
+                //call to saved must not be overwritten with counts that do not contain it
+                int[] rows = jdbcTemplate.batchUpdate("update book set total_count = ?, sold = ?, version = version + 1 " +
+                        "where id = ? and total_count = ? and sold = ?", batch);
+                for (int index = 0; index < cells.size(); index++) {
+                    if (rows[index] != 0) {
+                        long flushed = cells.get(index).flushed;
+                        categoryStatisticsStore.recordCountsChanged(cells.get(index).id,
+                                Cell.totalCount(counts[index]) - Cell.totalCount(flushed),
+                                Cell.sold(counts[index]) - Cell.sold(flushed));
+                    }
+                }
+                return rows;
+            });
+        } catch (RuntimeException e) {
+            cells.forEach(this::markDirty);
+            throw e;
+        }
+        for (int index = 0; index < cells.size(); index++) {
+            if (updated[index] != 0) {
+                cells.get(index).flushed = counts[index];
+            } else {
+                //Changed in the book table since the last flush, the sales since then are kept on top of it
+                LOGGER.debug("Inventory of book {} is loaded again from the book table.", cells.get(index).id);
+                bookRepository.findById(cells.get(index).id).ifPresent(this::saved);
+            }
+        }
+        LOGGER.debug("Inventory of {} books is flushed.", cells.size());
+    }
+
+    private void markDirty(Cell cell) {
+        if (cell.dirty.compareAndSet(false, true)) {
+            dirtyCells.add(cell);
+        }
+    }
+
+    private Cell getCell(Long id, String notFoundMessage) {
+        Cell cell = stockTable.get(id);
+        if (cell == null) {
+            throw new BookNotFoundException(notFoundMessage);
+        }
+        return cell;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.Book;
+
+import java.util.Map;
+
+/**
+ * Keeps the total count and the sold count of the books and sells them.
+ * The implementation is chosen with the property bookstore.inventory.mode (database, coalescing or memory).
+ * Other fields of the books are always read from and written to the database by the service.
+ */
+public interface InventoryEngine {
+
+    /**
+     * Copies of a registered book are added to the store.
+     *
+     * @param id
+     * @param quantity
+     */
+    void addStock(Long id, int quantity);
+
+    /**
+     * Sell copies of a book.
+     *
+     * @param id
+     * @param quantity
+     */
+    void sell(Long id, int quantity);
+
+    /**
+     * Sell copies of several books, either all of them or none.
+     *
+     * @param quantityById quantity to sell by book id, ordered by id
+     */
+    void sellAll(Map<Long, Integer> quantityById);
+
+    /**
+     * Make the counts of the book in the database current before the service reads it for an update.
+     *
+     * @param id
+     */
+    void beforeUpdate(Long id);
+
+    /**
+     * A book is saved with new or updated counts and the transaction is committed.
+     *
+     * @param book
+     */
+    void saved(Book book);
+
+    /**
+     * Current total count of a book.
+     *
+     * @param id
+     * @param storedTotalCount total count read from the database
+     * @return
+     */
+    int getTotalCount(Long id, int storedTotalCount);
+}
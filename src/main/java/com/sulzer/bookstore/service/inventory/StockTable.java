@@ -0,0 +1,154 @@
+package com.sulzer.bookstore.service.inventory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open addressing table of stock counters keyed by the primitive book id.
+ * Lookups do not lock and do not box the id. Inserts are rare (a new book) and take the table lock.
+ * The total count and the sold count of a book are packed in one long, so both change in one CAS.
+ */
+class StockTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private volatile AtomicReferenceArray<Cell> cells = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    private int size;
+
+    /**
+     * Counter of the book, null if the book is not in the table
+     *
+     * @param id
+     * @return
+     */
+    Cell get(long id) {
+        AtomicReferenceArray<Cell> table = cells;
+        int mask = table.length() - 1;
+        for (int index = hash(id) & mask; ; index = (index + 1) & mask) {
+            Cell cell = table.get(index);
+            if (cell == null || cell.id == id) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Counter of the book, added with the given counts if the book is not in the table
+     *
+     * @param id
+     * @param totalCount
+     * @param sold
+     * @return
+     */
+    synchronized Cell putIfAbsent(long id, int totalCount, int sold) {
+        Cell cell = get(id);
+        if (cell != null) {
+            return cell;
+        }
+        if ((size + 1) * 2 > cells.length()) {
+            cells = copy(cells, cells.length() * 2);
+        }
+        cell = new Cell(id, totalCount, sold);
+        insert(cells, cell);
+        size++;
+        return cell;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static AtomicReferenceArray<Cell> copy(AtomicReferenceArray<Cell> table, int capacity) {
+        AtomicReferenceArray<Cell> copy = new AtomicReferenceArray<>(capacity);
+        for (int index = 0; index < table.length(); index++) {
+            Cell cell = table.get(index);
+            if (cell != null) {
+                insert(copy, cell);
+            }
+        }
+        return copy;
+    }
+
+    private static void insert(AtomicReferenceArray<Cell> table, Cell cell) {
+        int mask = table.length() - 1;
+        int index = hash(cell.id) & mask;
+        while (table.get(index) != null) {
+            index = (index + 1) & mask;
+        }
+        table.set(index, cell);
+    }
+
+    //Spread the sequential ids over the table
+    private static int hash(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Stock counter of one book, total count in the high 32 bits and sold count in the low 32 bits.
+     */
+    static final class Cell extends AtomicLong {
+
+        final long id;
+
+        /**
+         * The counts are changed since they were last written to the database
+         */
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        /**
+         * Counts as they are in the database, guarded by the flush lock of the inventory
+         */
+        long flushed;
+
+        Cell(long id, int totalCount, int sold) {
+            super(pack(totalCount, sold));
+            this.id = id;
+            this.flushed = get();
+        }
+
+        boolean trySell(int quantity) {
+            while (true) {
+                long counts = get();
+                int totalCount = totalCount(counts);
+                if (totalCount < quantity) {
+                    return false;
+                }
+                if (compareAndSet(counts, pack(totalCount - quantity, sold(counts) + quantity))) {
+                    return true;
+                }
+            }
+        }
+
+        void unsell(int quantity) {
+            add(quantity, -quantity);
+        }
+
+        void addStock(int quantity) {
+            add(quantity, 0);
+        }
+
+        private void add(int totalCountDelta, int soldDelta) {
+            while (true) {
+                long counts = get();
+                if (compareAndSet(counts, pack(totalCount(counts) + totalCountDelta, sold(counts) + soldDelta))) {
+                    return;
+                }
+            }
+        }
+
+        static long pack(int totalCount, int sold) {
+            return ((long) totalCount << 32) | (sold & 0xFFFFFFFFL);
+        }
+
+        static int totalCount(long counts) {
+            return (int) (counts >> 32);
+        }
+
+        static int sold(long counts) {
+            return (int) counts;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.cache.BookCache;
+import com.sulzer.bookstore.service.cache.SearchCache;
+import com.sulzer.bookstore.service.inventory.InMemoryInventory;
+import com.sulzer.bookstore.service.leaderboard.BestsellerLeaderboard;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts the sales journal with a snapshot of the book table and rebuilds the book table from it.
+ * Both run once the beans are ready and before the web server accepts requests.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.journal.mode", havingValue = "mapped")
+public class JournalReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalReplayer.class);
+    private static final int PAGE_SIZE = 1_000;
+
+    private final MappedSalesJournal salesJournal;
+
+    private final BookRepository bookRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CategoryStatisticsStore categoryStatisticsStore;
+
+    private final BookCache bookCache;
+
+    private final SearchCache searchCache;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    private final BestsellerLeaderboard bestsellerLeaderboard;
+
+    private final ObjectProvider<InMemoryInventory> inMemoryInventory;
+
+    private final boolean replayOnStartup;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @Autowired
+    public JournalReplayer(MappedSalesJournal salesJournal, BookRepository bookRepository, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           CategoryStatisticsStore categoryStatisticsStore, BookCache bookCache, SearchCache searchCache,
+                           AutocompleteIndex autocompleteIndex, BestsellerLeaderboard bestsellerLeaderboard,
+                           ObjectProvider<InMemoryInventory> inMemoryInventory,
+                           @Value("${bookstore.journal.replay-on-startup:false}") boolean replayOnStartup) {
+        this.salesJournal = salesJournal;
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoryStatisticsStore = categoryStatisticsStore;
+        this.bookCache = bookCache;
+        this.searchCache = searchCache;
+        this.autocompleteIndex = autocompleteIndex;
+        this.bestsellerLeaderboard = bestsellerLeaderboard;
+        this.inMemoryInventory = inMemoryInventory;
+        this.replayOnStartup = replayOnStartup;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        if (salesJournal.isEmpty()) {
+            snapshot();
+        } else if (replayOnStartup) {
+            rebuildBooks();
+        }
+    }
+
+    /**
+     * Write the counts of every book, so the journal alone holds the history of the stock.
+     */
+    public void snapshot() {
+        Page<Book> page;
+        int pageNumber = 0;
+        do {
+            page = bookRepository.findAll(PageRequest.of(pageNumber++, PAGE_SIZE, Sort.by("id")));
+            salesJournal.recordSaved(page.getContent());
+        } while (page.hasNext());
+        LOGGER.info("Sales journal is started with the counts of {} books.", page.getTotalElements());
+    }
+
+    /**
+     * Replay the journal and write the resulting total count and sold count of every book in it to the book table.
+     * The state derived from the book table is rebuilt afterwards. Must not run while books are sold.
+     * <p>
+     * A sale is appended to the journal after the inventory accepted it, and the database inventory commits it
+     * before that. A crash in between leaves a book table with more copies sold than the journal, so a book is only
+     * written when the journal sold at least as many copies as the book table, otherwise the book table is kept.
+     *
+     * @return number of books written
+     */
+    public int rebuildBooks() {
+        Map<Long, int[]> countsById = replay();
+        List<Object[]> batch = new ArrayList<>(countsById.size());
+        countsById.forEach((id, counts) -> batch.add(new Object[]{counts[0], counts[1], id, counts[1]}));
+        int[] updated = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(
+                "update book set total_count = ?, sold = ?, version = version + 1 where id = ? and sold <= ?", batch));
+        int written = 0;
+        for (int count : updated) {
+            if (count != 0) {
+                written++;
+            }
+        }
+        categoryStatisticsStore.rebuild();
+        inMemoryInventory.ifAvailable(InMemoryInventory::reload);
+        autocompleteIndex.rebuild();
+        bestsellerLeaderboard.rebuild();
+        bookCache.evictAll(countsById.keySet());
+        searchCache.evictAll();
+        LOGGER.info("Counts of {} books are rebuilt from the sales journal, {} books are left as the book table has them.",
+                written, batch.size() - written);
+        return written;
+    }
+
+    /**
+     * Total count and sold count of every book in the journal
+     *
+     * @return
+     */
+    public Map<Long, int[]> replay() {
+        Map<Long, int[]> countsById = new HashMap<>();
+        salesJournal.replay(new MappedSalesJournal.JournalVisitor() {
+            @Override
+            public void sold(long bookId, int quantity) {
+                int[] counts = countsById.computeIfAbsent(bookId, id -> new int[2]);
+                counts[0] -= quantity;
+                counts[1] += quantity;
+            }
+
+            @Override
+            public void stockAdded(long bookId, int quantity) {
+                countsById.computeIfAbsent(bookId, id -> new int[2])[0] += quantity;
+            }
+
+            @Override
+            public void saved(long bookId, int totalCount, int sold) {
+                countsById.put(bookId, new int[]{totalCount, sold});
+            }
+        });
+        return countsById;
+    }
+}
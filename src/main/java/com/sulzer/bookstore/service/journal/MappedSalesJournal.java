@@ -0,0 +1,455 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.domain.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Journal written to memory-mapped segment files of fixed size records.
+ * <p>
+ * With group commit, appenders copy their records into the mapping and wait, while one syncer thread forces
+ * everything written so far to disk and wakes them all. Concurrent sellers share one fsync, and an appender
+ * waits at most for the fsync in progress and the next one.
+ * Without group commit, every append forces the mapping itself.
+ * <p>
+ * A record is checked with a checksum, replay stops at the first invalid record, which is where a crash
+ * during a write leaves the end of the journal.
+ * Records written together, like the books of one order, follow a group header with their number and a checksum
+ * over all of them, so replay takes the whole group or, when a crash tore it, none of it.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.journal.mode", havingValue = "mapped")
+public class MappedSalesJournal implements SalesJournal {
+
+    static final int RECORD_SIZE = 24;
+    static final int SOLD = 1;
+    static final int STOCK_ADDED = 2;
+    static final int SAVED = 3;
+    static final int GROUP = 4;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSalesJournal.class);
+    private static final String SEGMENT_PREFIX = "sales-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean groupCommit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition written = lock.newCondition();
+
+    private final Condition synced = lock.newCondition();
+
+    //Guarded by lock
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private long writtenRecords;
+    private long syncedRecords;
+    private int groupChecksum;
+    private boolean running;
+    private boolean emptyAtOpen;
+    private boolean syncerStopped;
+
+    private Thread syncer;
+
+    @Autowired
+    public MappedSalesJournal(@Value("${bookstore.journal.directory:journal}") String directory,
+                              @Value("${bookstore.journal.segment-size:67108864}") int segmentSize,
+                              @Value("${bookstore.journal.group-commit:true}") boolean groupCommit) {
+        this.directory = Paths.get(directory);
+        //Whole records only, so a record never spans two segments
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Open the last segment and continue after its last valid record or group.
+     */
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            segmentNumber = segments.isEmpty() ? 0 : segments.size() - 1;
+            segment = map(segmentNumber);
+            int end;
+            while ((end = next(segment, segment.position())) >= 0) {
+                segment.position(end);
+            }
+            clearAfterEnd();
+            emptyAtOpen = segmentNumber == 0 && segment.position() == 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        running = true;
+        if (groupCommit) {
+            syncer = new Thread(this::sync, "sales-journal-syncer");
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+        LOGGER.info("Sales journal is opened in {}, segment {} at byte {}.", directory.toAbsolutePath(), segmentNumber,
+                segment.position());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            written.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (syncer != null) {
+            syncer.join();
+        }
+        segment.force();
+    }
+
+    @Override
+    public void recordSale(long bookId, int quantity) {
+        lock.lock();
+        try {
+            reserve(1);
+            put(bookId, SOLD, quantity, 0);
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordSales(Map<Long, Integer> quantityById) {
+        lock.lock();
+        try {
+            int header = beginGroup(quantityById.size());
+            quantityById.forEach((bookId, quantity) -> put(bookId, SOLD, quantity, 0));
+            endGroup(header, quantityById.size());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordStockAdded(long bookId, int quantity) {
+        lock.lock();
+        try {
+            reserve(1);
+            put(bookId, STOCK_ADDED, quantity, 0);
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordSaved(Book book) {
+        recordSaved(Collections.singletonList(book));
+    }
+
+    /**
+     * Counts of books written as one group, used for the first snapshot of the book table and by the import
+     *
+     * @param books
+     */
+    @Override
+    public void recordSaved(List<Book> books) {
+        lock.lock();
+        try {
+            int header = beginGroup(books.size());
+            books.forEach(book -> put(book.getId(), SAVED, book.getTotalCount(), book.getSold()));
+            endGroup(header, books.size());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Nothing is written yet
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return emptyAtOpen && writtenRecords == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pass every record, oldest first, to the visitor.
+     * Records appended during the replay may not be passed.
+     *
+     * @param visitor
+     */
+    public void replay(JournalVisitor visitor) {
+        try {
+            for (Path path : segments()) {
+                ByteBuffer buffer = read(path);
+                int end;
+                for (int position = 0; (end = next(buffer, position)) >= 0; position = end) {
+                    //The header of a group is skipped, its records are checked already
+                    int record = buffer.getInt(position + 8) == GROUP ? position + RECORD_SIZE : position;
+                    for (; record < end; record += RECORD_SIZE) {
+                        visit(buffer, record, visitor);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Must hold the lock
+    private void reserve(int records) {
+        if (!running) {
+            throw new IllegalStateException("Sales journal is closed.");
+        }
+        if ((long) records * RECORD_SIZE > segmentSize) {
+            throw new IllegalArgumentException("Too many records to write at once: " + records);
+        }
+        if (segment.remaining() < records * RECORD_SIZE) {
+            //The records written up to now are forced before the next segment is used,
+            //so the syncer only ever forces the current segment
+            segment.force();
+            syncedRecords = writtenRecords;
+            synced.signalAll();
+            try {
+                segment = map(++segmentNumber);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    //Must hold the lock, room for the header is left before more than one record
+    private int beginGroup(int records) {
+        reserve(records > 1 ? records + 1 : records);
+        int header = segment.position();
+        if (records > 1) {
+            segment.position(header + RECORD_SIZE);
+        }
+        groupChecksum = 0;
+        return header;
+    }
+
+    //Must hold the lock, the header is written once the checksum over the records of the group is known
+    private void endGroup(int header, int records) {
+        if (records > 1) {
+            segment.putLong(header, records)
+                    .putInt(header + 8, GROUP)
+                    .putInt(header + 12, groupChecksum)
+                    .putInt(header + 16, 0)
+                    .putInt(header + 20, checksum(records, GROUP, groupChecksum, 0));
+            writtenRecords++;
+        }
+    }
+
+    //Must hold the lock
+    private void put(long bookId, int type, int first, int second) {
+        int checksum = checksum(bookId, type, first, second);
+        segment.putLong(bookId).putInt(type).putInt(first).putInt(second).putInt(checksum);
+        groupChecksum = groupChecksum * 31 + checksum;
+        writtenRecords++;
+    }
+
+    //Must hold the lock. A torn group, or records written after it but not forced before the crash, may be left
+    //after the end and must not be taken for valid records once new ones are appended before them.
+    private void clearAfterEnd() {
+        boolean cleared = false;
+        for (int position = segment.position(); position < segment.limit(); position += Long.BYTES) {
+            if (segment.getLong(position) != 0) {
+                segment.putLong(position, 0);
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            segment.force();
+            LOGGER.warn("Incomplete records after byte {} of sales journal segment {} are cleared.", segment.position(),
+                    segmentNumber);
+        }
+    }
+
+    //Must hold the lock, waits until the records written so far are durable
+    private void commit() {
+        if (!groupCommit) {
+            segment.force();
+            syncedRecords = writtenRecords;
+            return;
+        }
+        long target = writtenRecords;
+        written.signal();
+        while (syncedRecords < target) {
+            if (syncerStopped) {
+                throw new IllegalStateException("Sales journal is closed.");
+            }
+            synced.awaitUninterruptibly();
+        }
+    }
+
+    private void sync() {
+        while (true) {
+            long target;
+            MappedByteBuffer buffer;
+            lock.lock();
+            try {
+                while (running && syncedRecords == writtenRecords) {
+                    written.awaitUninterruptibly();
+                }
+                if (!running && syncedRecords == writtenRecords) {
+                    syncerStopped = true;
+                    synced.signalAll();
+                    return;
+                }
+                target = writtenRecords;
+                buffer = segment;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                //Appenders keep writing the next group while this one is forced
+                buffer.force();
+            } catch (RuntimeException e) {
+                LOGGER.error("Sales journal cannot be forced to disk, it is closed.", e);
+                lock.lock();
+                try {
+                    running = false;
+                    syncerStopped = true;
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                syncedRecords = Math.max(syncedRecords, target);
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private MappedByteBuffer map(int number) throws IOException {
+        Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * End of the record or group at the position
+     *
+     * @param buffer
+     * @param position
+     * @return position after it, or -1 if it is invalid or incomplete
+     */
+    private static int next(ByteBuffer buffer, int position) {
+        if (position + RECORD_SIZE > buffer.limit() || !isValid(buffer, position)) {
+            return -1;
+        }
+        int end = position + RECORD_SIZE;
+        if (buffer.getInt(position + 8) != GROUP) {
+            return end;
+        }
+        long records = buffer.getLong(position);
+        if (records < 2 || records > (buffer.limit() - end) / RECORD_SIZE) {
+            return -1;
+        }
+        int checksum = 0;
+        for (int record = end; record < end + records * RECORD_SIZE; record += RECORD_SIZE) {
+            if (!isValid(buffer, record) || buffer.getInt(record + 8) == GROUP) {
+                return -1;
+            }
+            checksum = checksum * 31 + buffer.getInt(record + 20);
+        }
+        return checksum == buffer.getInt(position + 12) ? end + (int) records * RECORD_SIZE : -1;
+    }
+
+    private static void visit(ByteBuffer buffer, int position, JournalVisitor visitor) {
+        long bookId = buffer.getLong(position);
+        int first = buffer.getInt(position + 12);
+        switch (buffer.getInt(position + 8)) {
+            case SOLD:
+                visitor.sold(bookId, first);
+                break;
+            case STOCK_ADDED:
+                visitor.stockAdded(bookId, first);
+                break;
+            default:
+                visitor.saved(bookId, first, buffer.getInt(position + 16));
+        }
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int position) {
+        int type = buffer.getInt(position + 8);
+        return type >= SOLD && type <= GROUP && buffer.getInt(position + 20) == checksum(buffer.getLong(position),
+                type, buffer.getInt(position + 12), buffer.getInt(position + 16));
+    }
+
+    private static int checksum(long bookId, int type, int first, int second) {
+        int hash = Long.hashCode(bookId);
+        hash = hash * 31 + type;
+        hash = hash * 31 + first;
+        hash = hash * 31 + second;
+        return hash ^ 0x5BD1E995;
+    }
+
+    /**
+     * Receives the records of the journal during a replay.
+     */
+    public interface JournalVisitor {
+
+        void sold(long bookId, int quantity);
+
+        void stockAdded(long bookId, int quantity);
+
+        void saved(long bookId, int totalCount, int sold);
+    }
+}
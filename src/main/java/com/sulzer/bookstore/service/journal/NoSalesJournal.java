@@ -0,0 +1,41 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.domain.Book;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default journal that keeps no history.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.journal.mode", havingValue = "none", matchIfMissing = true)
+public class NoSalesJournal implements SalesJournal {
+
+    @Override
+    public void recordSale(long bookId, int quantity) {
+        //No history
+    }
+
+    @Override
+    public void recordSales(Map<Long, Integer> quantityById) {
+        //No history
+    }
+
+    @Override
+    public void recordStockAdded(long bookId, int quantity) {
+        //No history
+    }
+
+    @Override
+    public void recordSaved(Book book) {
+        //No history
+    }
+
+    @Override
+    public void recordSaved(List<Book> books) {
+        //No history
+    }
+}
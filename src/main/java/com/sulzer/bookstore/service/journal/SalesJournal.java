@@ -0,0 +1,51 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.domain.Book;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only history of the changes of the stock.
+ * A method returns once the change is durable, so it must be called after the change is accepted.
+ * The journal is chosen with the property bookstore.journal.mode (none or mapped).
+ */
+public interface SalesJournal {
+
+    /**
+     * Copies of a book are sold
+     *
+     * @param bookId
+     * @param quantity
+     */
+    void recordSale(long bookId, int quantity);
+
+    /**
+     * Copies of several books are sold in one order, written and made durable together
+     *
+     * @param quantityById
+     */
+    void recordSales(Map<Long, Integer> quantityById);
+
+    /**
+     * Copies of a registered book are added to the store
+     *
+     * @param bookId
+     * @param quantity
+     */
+    void recordStockAdded(long bookId, int quantity);
+
+    /**
+     * A book is registered or updated with the given counts
+     *
+     * @param book
+     */
+    void recordSaved(Book book);
+
+    /**
+     * Several books are registered or updated with the given counts, written and made durable together
+     *
+     * @param books
+     */
+    void recordSaved(List<Book> books);
+}
@@ -0,0 +1,193 @@
+package com.sulzer.bookstore.service.leaderboard;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ranking of the books by copies sold, over every category and per category.
+ * Every ranking is a sorted set of all its books, so a sale moves one book in O(log n) and the first K books
+ * are read in O(K) without reading the book table. All the books are ranked, not only the first K,
+ * so a book leaving a category by an update is replaced by the next one of the category.
+ * The leaderboard is loaded from the database at startup and kept in sync by the service on every write and sale,
+ * so it counts the sales of this instance only.
+ */
+@Component
+public class BestsellerLeaderboard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BestsellerLeaderboard.class);
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    //Most copies sold first, books sold as often by id
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> entry.sold).reversed()
+            .thenComparing(entry -> entry.id);
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableSet<Entry> overall = new TreeSet<>(RANKING);
+    private final List<NavigableSet<Entry>> byCategory = new ArrayList<>(Category.values().length);
+    private final Map<Long, Entry> entryById = new HashMap<>();
+
+    @Autowired
+    public BestsellerLeaderboard(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        for (int i = 0; i < Category.values().length; i++) {
+            byCategory.add(new TreeSet<>(RANKING));
+        }
+    }
+
+    /**
+     * Load all the books from the database into the leaderboard.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            overall.clear();
+            byCategory.forEach(NavigableSet::clear);
+            entryById.clear();
+            Page<Book> page = bookRepository.findAll(PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id")));
+            page.forEach(book -> add(book, book.getSold()));
+            while (page.hasNext()) {
+                page = bookRepository.findAll(page.nextPageable());
+                page.forEach(book -> add(book, book.getSold()));
+            }
+            LOGGER.info("Bestseller leaderboard is built with {} books.", entryById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Best selling books
+     *
+     * @param category category of the books, null for every category
+     * @param size     maximum number of books
+     * @return books ordered by copies sold, then by id
+     */
+    public List<BestsellerDto> top(Category category, int size) {
+        List<BestsellerDto> bestsellers = new ArrayList<>(size);
+        lock.readLock().lock();
+        try {
+            Iterator<Entry> ranking = (category == null ? overall : byCategory.get(category.getValue())).iterator();
+            while (bestsellers.size() < size && ranking.hasNext()) {
+                bestsellers.add(toDto(ranking.next(), bestsellers.size() + 1));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bestsellers;
+    }
+
+    /**
+     * Add or replace the book in the leaderboard after it is saved.
+     *
+     * @param book
+     */
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = delete(book.getId());
+            //Sales committed after the book was read are already counted in the previous entry
+            add(book, previous == null ? book.getSold() : Math.max(previous.sold, book.getSold()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies of a book are sold and committed
+     *
+     * @param id
+     * @param quantity
+     */
+    public void recordSale(Long id, int quantity) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = delete(id);
+            if (entry != null) {
+                put(new Entry(entry.id, entry.title, entry.author, entry.category, entry.sold + quantity));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of books in the leaderboard
+     *
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book, int sold) {
+        if (book.getCategory() == null) {
+            return;
+        }
+        put(new Entry(book.getId(), book.getTitle(), book.getAuthor(), book.getCategory(), sold));
+    }
+
+    private void put(Entry entry) {
+        overall.add(entry);
+        byCategory.get(entry.category.getValue()).add(entry);
+        entryById.put(entry.id, entry);
+    }
+
+    //The entry is found in the rankings by its current sold count, so it is removed before the count changes
+    private Entry delete(Long id) {
+        Entry entry = entryById.remove(id);
+        if (entry != null) {
+            overall.remove(entry);
+            byCategory.get(entry.category.getValue()).remove(entry);
+        }
+        return entry;
+    }
+
+    private static BestsellerDto toDto(Entry entry, int rank) {
+        return BestsellerDto.builder().rank(rank).id(entry.id).title(entry.title).author(entry.author)
+                .category(entry.category).sold(entry.sold).build();
+    }
+
+    private static final class Entry {
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final Category category;
+        private final int sold;
+
+        private Entry(Long id, String title, String author, Category category, int sold) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.sold = sold;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sulzer.bookstore.service.retry;
+
+import com.sulzer.bookstore.service.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in a transaction and runs it again in a new transaction when it updated a stale version of a book,
+ * or when the database gave up waiting for a row lock or broke a deadlock.
+ * Between two attempts it waits a random time up to an exponentially growing bound (full jitter),
+ * so the writers that conflicted do not meet again at the next attempt.
+ * Conflicts are counted in bookstore.optimistic.conflicts and the actions that gave up in bookstore.optimistic.failures.
+ */
+@Component
+public class OptimisticRetry {
+
+    static final String CONFLICTS = "bookstore.optimistic.conflicts";
+    static final String FAILURES = "bookstore.optimistic.failures";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxAttempts;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    @Autowired
+    public OptimisticRetry(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                           @Value("${bookstore.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${bookstore.retry.initial-backoff:2}") long initialBackoff,
+                           @Value("${bookstore.retry.max-backoff:50}") long maxBackoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Run the action in a transaction, retried on conflict.
+     * Inside an existing transaction the action joins it and is not retried, the caller of that transaction must retry.
+     *
+     * @param operation name of the operation tag of the metrics
+     * @param action
+     */
+    public void inTransaction(String operation, Runnable action) {
+        inTransaction(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run the action in a transaction, retried on conflict.
+     *
+     * @param operation name of the operation tag of the metrics
+     * @param action
+     * @return result of the action
+     */
+    public <T> T inTransaction(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                meterRegistry.counter(CONFLICTS, "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter(FAILURES, "operation", operation).increment();
+                    throw new ConcurrentUpdateException("The book is updated concurrently, " + operation
+                            + " is given up after " + attempt + " attempts. Try again later.", e);
+                }
+                LOGGER.debug("Conflict in {}, attempt {} is retried.", operation, attempt);
+                backoff(operation, attempt, e);
+            }
+        }
+    }
+
+    private void backoff(String operation, int attempt, RuntimeException conflict) {
+        long bound = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 30));
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while retrying " + operation + ".", conflict);
+        }
+    }
+}
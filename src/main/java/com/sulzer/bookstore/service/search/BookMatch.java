@@ -0,0 +1,28 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.constants.Category;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A book matching a keyword, with what is needed to count it per category
+ */
+@Getter
+@AllArgsConstructor
+public class BookMatch {
+
+    private final long id;
+
+    private final Category category;
+
+    private final int sold;
+
+    /**
+     * @param row id, category value and sold count as returned by the native match queries of the repository
+     * @return
+     */
+    static BookMatch fromRow(Object[] row) {
+        return new BookMatch(((Number) row[0]).longValue(), Category.valueOf(((Number) row[1]).intValue()),
+                ((Number) row[2]).intValue());
+    }
+}
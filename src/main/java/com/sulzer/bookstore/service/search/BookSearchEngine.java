@@ -0,0 +1,45 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+
+import java.util.List;
+
+/**
+ * Keyword search over the books of a category.
+ * Keyword is matched as a substring of the id, title or author of the book.
+ * The implementation is chosen with the property bookstore.search.engine (index or database).
+ */
+public interface BookSearchEngine {
+
+    /**
+     * Find the books of given category matching the keyword
+     *
+     * @param keyword  lower case keyword
+     * @param category
+     * @return books ordered by id
+     */
+    List<Book> search(String keyword, Category category);
+
+    /**
+     * Find the books of every category matching the keyword in one pass
+     *
+     * @param keyword lower case keyword
+     * @return id, category and sold count of the books ordered by id
+     */
+    List<BookMatch> match(String keyword);
+
+    /**
+     * Add or replace the book in the search engine after it is saved.
+     *
+     * @param book
+     */
+    void index(Book book);
+
+    /**
+     * Remove the book with given id from the search engine.
+     *
+     * @param id
+     */
+    void remove(Long id);
+}
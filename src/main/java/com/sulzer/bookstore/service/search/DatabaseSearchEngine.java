@@ -0,0 +1,48 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Fallback search engine which runs the native LIKE query on every search.
+ * Nothing is kept in memory, so index and remove do nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.search.engine", havingValue = "database")
+public class DatabaseSearchEngine implements BookSearchEngine {
+
+    private final BookRepository bookRepository;
+
+    @Autowired
+    public DatabaseSearchEngine(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public List<Book> search(String keyword, Category category) {
+        return bookRepository.findAllBookByCategoryAndKeyword(BookRepository.escapeLike(keyword), category.getValue());
+    }
+
+    @Override
+    public List<BookMatch> match(String keyword) {
+        return bookRepository.findAllMatchesByKeyword(BookRepository.escapeLike(keyword)).stream().map(BookMatch::fromRow)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void index(Book book) {
+        //Database is always up to date
+    }
+
+    @Override
+    public void remove(Long id) {
+        //Database is always up to date
+    }
+}
@@ -0,0 +1,325 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over the id, title and author of the books.
+ * The text of every book is split into trigrams and each partition (one per category) maps a trigram
+ * to the documents containing it. A keyword is looked up with its rarest trigram and the candidates are
+ * verified with a substring match, so the result is the same as the native LIKE query.
+ * The index is loaded from the database at startup and kept in sync by the service on every write.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.search.engine", havingValue = "index", matchIfMissing = true)
+public class InvertedIndexSearchEngine implements BookSearchEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvertedIndexSearchEngine.class);
+    private static final int GRAM = 3;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+    private static final int FETCH_BATCH_SIZE = 1_000;
+    //Keywords matching more than one book in SCAN_RATIO are matched with a scan of the database
+    private static final int SCAN_RATIO = 32;
+    //Separates the fields so that a keyword never matches across two fields
+    private static final char SEPARATOR = '\u0000';
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Partition[] partitions = new Partition[Category.values().length];
+    private final Map<Long, Category> categoryById = new HashMap<>();
+
+    @Autowired
+    public InvertedIndexSearchEngine(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Load all the books from the database into the index.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition();
+            }
+            categoryById.clear();
+            Page<Book> page = bookRepository.findAll(PageRequest.of(0, LOAD_BATCH_SIZE, Sort.by("id")));
+            page.forEach(this::add);
+            while (page.hasNext()) {
+                page = bookRepository.findAll(page.nextPageable());
+                page.forEach(this::add);
+            }
+            LOGGER.info("Search index is built with {} books.", categoryById.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> search(String keyword, Category category) {
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            ids = partitions[category.getValue()].find(keyword);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(ids);
+    }
+
+    @Override
+    public List<BookMatch> match(String keyword) {
+        long[] ids;
+        int indexed;
+        lock.readLock().lock();
+        try {
+            long[][] idsByCategory = new long[partitions.length][];
+            int count = 0;
+            for (int i = 0; i < partitions.length; i++) {
+                idsByCategory[i] = partitions[i].find(keyword);
+                count += idsByCategory[i].length;
+            }
+            ids = new long[count];
+            int offset = 0;
+            for (long[] categoryIds : idsByCategory) {
+                System.arraycopy(categoryIds, 0, ids, offset, categoryIds.length);
+                offset += categoryIds.length;
+            }
+            indexed = categoryById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if ((long) ids.length * SCAN_RATIO > indexed) {
+            //Looking up most of the books one by one is slower than the scan of the database engine
+            return bookRepository.findAllMatchesByKeyword(BookRepository.escapeLike(keyword)).stream()
+                    .map(BookMatch::fromRow).collect(Collectors.toList());
+        }
+        //Sold counts change with every sale, they are read from the database like the books of search
+        List<BookMatch> matches = new ArrayList<>(ids.length);
+        forEachChunk(ids, chunk -> bookRepository.findAllMatchesById(chunk)
+                .forEach(row -> matches.add(BookMatch.fromRow(row))));
+        matches.sort(Comparator.comparingLong(BookMatch::getId));
+        return matches;
+    }
+
+    @Override
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            delete(book.getId());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of books in the index
+     *
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return categoryById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        if (book.getCategory() == null) {
+            return;
+        }
+        partitions[book.getCategory().getValue()].add(book.getId(), searchableText(book));
+        categoryById.put(book.getId(), book.getCategory());
+    }
+
+    private void delete(Long id) {
+        Category category = categoryById.remove(id);
+        if (category != null) {
+            partitions[category.getValue()].delete(id);
+        }
+    }
+
+    private List<Book> load(long[] ids) {
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Book> books = new ArrayList<>(ids.length);
+        forEachChunk(ids, chunk -> books.addAll(bookRepository.findAllById(chunk)));
+        books.sort(Comparator.comparing(Book::getId));
+        return books;
+    }
+
+    //Fetch the matched books in chunks so the IN list stays small
+    private static void forEachChunk(long[] ids, Consumer<List<Long>> consumer) {
+        for (int from = 0; from < ids.length; from += FETCH_BATCH_SIZE) {
+            int to = Math.min(ids.length, from + FETCH_BATCH_SIZE);
+            List<Long> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(ids[i]);
+            }
+            consumer.accept(chunk);
+        }
+    }
+
+    static String searchableText(Book book) {
+        StringBuilder text = new StringBuilder();
+        if (book.getTitle() != null) {
+            text.append(book.getTitle().toLowerCase(Locale.ROOT));
+        }
+        text.append(SEPARATOR).append(book.getId()).append(SEPARATOR);
+        if (book.getAuthor() != null) {
+            text.append(book.getAuthor().toLowerCase(Locale.ROOT));
+        }
+        return text.toString();
+    }
+
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Index of one category. Documents are appended and deleted documents are only marked,
+     * the partition is compacted once more than half of it is deleted.
+     */
+    private static class Partition {
+        private final Map<Long, Integer> docById = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] ids = new long[16];
+        private String[] texts = new String[16];
+        private int size;
+        private int deletedCount;
+
+        void add(long id, String text) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                texts = Arrays.copyOf(texts, size * 2);
+            }
+            int doc = size++;
+            ids[doc] = id;
+            texts[doc] = text;
+            docById.put(id, doc);
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                postings.computeIfAbsent(gram(text, i), key -> new IntList()).addIfLast(doc);
+            }
+        }
+
+        void delete(long id) {
+            Integer doc = docById.remove(id);
+            if (doc == null) {
+                return;
+            }
+            deleted.set(doc);
+            texts[doc] = null;
+            deletedCount++;
+            if (deletedCount > 1_024 && deletedCount * 2 > size) {
+                compact();
+            }
+        }
+
+        long[] find(String keyword) {
+            IntList candidates = null;
+            if (keyword.length() >= GRAM) {
+                for (int i = 0; i + GRAM <= keyword.length(); i++) {
+                    IntList posting = postings.get(gram(keyword, i));
+                    if (posting == null) {
+                        return new long[0];
+                    }
+                    if (candidates == null || posting.size < candidates.size) {
+                        candidates = posting;
+                    }
+                }
+            }
+            int count = candidates == null ? size : candidates.size;
+            long[] result = new long[Math.min(count, docById.size())];
+            int found = 0;
+            for (int i = 0; i < count; i++) {
+                int doc = candidates == null ? i : candidates.values[i];
+                if (!deleted.get(doc) && texts[doc].contains(keyword)) {
+                    result[found++] = ids[doc];
+                }
+            }
+            result = Arrays.copyOf(result, found);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private void compact() {
+            long[] oldIds = ids;
+            String[] oldTexts = texts;
+            int oldSize = size;
+            docById.clear();
+            postings.clear();
+            deleted.clear();
+            ids = new long[Math.max(16, oldSize - deletedCount)];
+            texts = new String[ids.length];
+            size = 0;
+            deletedCount = 0;
+            for (int doc = 0; doc < oldSize; doc++) {
+                if (oldTexts[doc] != null) {
+                    add(oldIds[doc], oldTexts[doc]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable list of document numbers in ascending order.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        //A document is added once even if the trigram occurs several times in its text
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.sulzer.bookstore.service.statistics;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.CategoryStatistics;
+import com.sulzer.bookstore.domain.CategoryStatisticsRepository;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.sulzer.bookstore.domain.CategoryStatisticsRepository.SLOTS;
+
+/**
+ * Per category totals of books, copies in stock, copies sold and revenue.
+ * Every total is the sum over the books of the category, revenue being the sold copies at the current price.
+ * A price update therefore revalues the copies sold before it: the totals stay what a rebuild computes from the book
+ * table, which holds no price per sale. The revenue at the price of every sale is in the sales history.
+ * The record methods must be called by the service inside the transaction that changes the book,
+ * so the totals are committed or rolled back together with it. Reads sum a fixed number of rows.
+ */
+@Component
+public class CategoryStatisticsStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryStatisticsStore.class);
+
+    private final CategoryStatisticsRepository categoryStatisticsRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public CategoryStatisticsStore(CategoryStatisticsRepository categoryStatisticsRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.categoryStatisticsRepository = categoryStatisticsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Build the totals from the book table if they are not stored yet.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (categoryStatisticsRepository.count() != Category.values().length * SLOTS) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Replace the stored totals with the totals computed from the book table, in one transaction,
+     * so the totals are never read or updated while the rows are missing.
+     */
+    public void rebuild() {
+        Map<Category, CategoryStatistics> firstSlots = new EnumMap<>(Category.class);
+        List<CategoryStatistics> rows = new ArrayList<>();
+        for (Category category : Category.values()) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                CategoryStatistics row = CategoryStatistics.builder()
+                        .id(category.getValue() * SLOTS + slot).category(category).build();
+                rows.add(row);
+                if (slot == 0) {
+                    firstSlots.put(category, row);
+                }
+            }
+        }
+        transactionTemplate.execute(status -> {
+            for (Object[] summary : categoryStatisticsRepository.summarizeBooks()) {
+                CategoryStatistics row = firstSlots.get((Category) summary[0]);
+                row.setBooks(((Number) summary[1]).longValue());
+                row.setUnitsInStock(((Number) summary[2]).longValue());
+                row.setUnitsSold(((Number) summary[3]).longValue());
+                row.setRevenue(((Number) summary[4]).doubleValue());
+            }
+            categoryStatisticsRepository.deleteAllInBatch();
+            return categoryStatisticsRepository.saveAll(rows);
+        });
+        LOGGER.info("Category statistics are rebuilt from the book table.");
+    }
+
+    /**
+     * Totals of one category
+     *
+     * @param category
+     * @return
+     */
+    public CategoryStatisticsDto getStatistics(Category category) {
+        return sum(category, categoryStatisticsRepository.findAllByCategory(category));
+    }
+
+    /**
+     * Totals of every category, ordered by category
+     *
+     * @return
+     */
+    public List<CategoryStatisticsDto> getAllStatistics() {
+        Map<Category, List<CategoryStatistics>> rowsByCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            rowsByCategory.put(category, new ArrayList<>());
+        }
+        categoryStatisticsRepository.findAll().forEach(row -> rowsByCategory.get(row.getCategory()).add(row));
+        List<CategoryStatisticsDto> statistics = new ArrayList<>();
+        rowsByCategory.forEach((category, rows) -> statistics.add(sum(category, rows)));
+        return statistics;
+    }
+
+    /**
+     * A new book is registered
+     *
+     * @param book
+     */
+    public void recordAdded(Book book) {
+        if (book.getCategory() != null) {
+            categoryStatisticsRepository.add(slotId(book), 1, book.getTotalCount(), book.getSold(), revenue(book));
+        }
+    }
+
+    /**
+     * Several new books are registered.
+     * The totals are added per row in id order, so concurrent imports cannot deadlock.
+     *
+     * @param books
+     */
+    public void recordAllAdded(List<Book> books) {
+        Map<Integer, CategoryStatistics> deltas = new TreeMap<>();
+        books.stream().filter(book -> book.getCategory() != null).forEach(book -> {
+            CategoryStatistics delta = deltas.computeIfAbsent(slotId(book), id -> new CategoryStatistics());
+            delta.setBooks(delta.getBooks() + 1);
+            delta.setUnitsInStock(delta.getUnitsInStock() + book.getTotalCount());
+            delta.setUnitsSold(delta.getUnitsSold() + book.getSold());
+            delta.setRevenue(delta.getRevenue() + revenue(book));
+        });
+        deltas.forEach((id, delta) -> categoryStatisticsRepository.add(id, delta.getBooks(), delta.getUnitsInStock(),
+                delta.getUnitsSold(), delta.getRevenue()));
+    }
+
+    /**
+     * A book is replaced by its new version, possibly in another category
+     *
+     * @param previous book as it was before the update
+     * @param book     book as it is saved
+     */
+    public void recordUpdated(Book previous, Book book) {
+        //Rows are updated in id order so that two updates moving books in opposite directions cannot deadlock
+        if (previous.getCategory() != null && book.getCategory() != null && slotId(previous) > slotId(book)) {
+            recordAdded(book);
+            recordRemoved(previous);
+        } else {
+            recordRemoved(previous);
+            recordAdded(book);
+        }
+    }
+
+    /**
+     * Copies of a registered book are added to the stock
+     *
+     * @param book
+     * @param quantity
+     */
+    public void recordStockAdded(Book book, int quantity) {
+        if (book.getCategory() != null) {
+            categoryStatisticsRepository.add(slotId(book), 0, quantity, 0, 0);
+        }
+    }
+
+    /**
+     * Copies of a book are sold, the book row must already be updated in the current transaction
+     *
+     * @param bookId
+     * @param quantity
+     */
+    public void recordSale(Long bookId, int quantity) {
+        recordCountsChanged(bookId, -quantity, quantity);
+    }
+
+    /**
+     * The total count and sold count of a book are changed, the book row must already be updated
+     * in the current transaction
+     *
+     * @param bookId
+     * @param stockDelta
+     * @param soldDelta
+     */
+    public void recordCountsChanged(Long bookId, long stockDelta, long soldDelta) {
+        categoryStatisticsRepository.addCounts(bookId, stockDelta, soldDelta);
+    }
+
+    /**
+     * Copies of several books are sold.
+     * The rows are updated in id order, like the books, so concurrent orders cannot deadlock.
+     *
+     * @param books
+     * @param quantityById
+     */
+    public void recordSales(List<Book> books, Map<Long, Integer> quantityById) {
+        Map<Integer, CategoryStatistics> deltas = new TreeMap<>();
+        books.stream().filter(book -> book.getCategory() != null).forEach(book -> {
+            int quantity = quantityById.get(book.getId());
+            CategoryStatistics delta = deltas.computeIfAbsent(slotId(book), id -> new CategoryStatistics());
+            delta.setUnitsInStock(delta.getUnitsInStock() - quantity);
+            delta.setUnitsSold(delta.getUnitsSold() + quantity);
+            delta.setRevenue(delta.getRevenue() + (double) book.getPrice() * quantity);
+        });
+        deltas.forEach((id, delta) -> categoryStatisticsRepository.add(id, 0, delta.getUnitsInStock(),
+                delta.getUnitsSold(), delta.getRevenue()));
+    }
+
+    private void recordRemoved(Book book) {
+        if (book.getCategory() != null) {
+            categoryStatisticsRepository.add(slotId(book), -1, -book.getTotalCount(), -book.getSold(), -revenue(book));
+        }
+    }
+
+    //Same slot as the native query in CategoryStatisticsRepository.addCounts
+    private static int slotId(Book book) {
+        return book.getCategory().getValue() * SLOTS + (int) Math.abs(book.getId() % SLOTS);
+    }
+
+    private static double revenue(Book book) {
+        return (double) book.getPrice() * book.getSold();
+    }
+
+    private static CategoryStatisticsDto sum(Category category, List<CategoryStatistics> rows) {
+        CategoryStatisticsDto statistics = CategoryStatisticsDto.builder().category(category).build();
+        rows.forEach(row -> {
+            statistics.setBooks(statistics.getBooks() + row.getBooks());
+            statistics.setUnitsInStock(statistics.getUnitsInStock() + row.getUnitsInStock());
+            statistics.setUnitsSold(statistics.getUnitsSold() + row.getUnitsSold());
+            statistics.setRevenue(statistics.getRevenue() + row.getRevenue());
+        });
+        return statistics;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sulzer.bookstore;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.SalesResolution;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
+import com.sulzer.bookstore.service.history.SalesHistory;
+import org.junit.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestTemplate;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProductionProfileTest {
+
+    @Test
+    public void testStart_Given_ProdProfile_Then_NoSchemaChangeAndNoSwagger() {
+        //Arrange
+        //The tables exist before the start, as ddl-auto none leaves them to the deployment
+        try (EmbeddedBookstore bookstore = EmbeddedBookstore.start("spring.profiles.active=prod",
+                "spring.datasource.url=jdbc:h2:mem:prod;MODE=MySQL;DB_CLOSE_DELAY=-1;"
+                        + "INIT=RUNSCRIPT FROM 'classpath:benchmark/schema.sql'",
+                "spring.jpa.hibernate.ddl-auto=none")) {
+            Environment environment = bookstore.getBean(Environment.class);
+            bookstore.seed(3, 5);
+
+            BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+            SalesHistory salesHistory = bookstore.getBean(SalesHistory.class);
+
+            //Act
+            Object[] books = new RestTemplate().getForObject("http://localhost:"
+                    + environment.getProperty("local.server.port") + "/api/book-list", Object[].class);
+            bookStoreService.sellBook(1L);
+            //The flusher only logs its failures, a missing table fails here
+            salesHistory.flush();
+            salesHistory.purge();
+
+            //Assert
+            assertEquals(3, books.length);
+            Instant now = Instant.now();
+            assertEquals(1, bookStoreService.getSalesHistory(SalesResolution.DAY, now.minus(1, ChronoUnit.DAYS),
+                    now.plus(1, ChronoUnit.DAYS), null, 1L).stream().mapToLong(SalesBucketDto::getUnitsSold).sum());
+            assertEquals("false", environment.getProperty("bookstore.swagger.enabled"));
+            assertTrue(bookstore.getBeansOfType(Docket.class).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of the autocomplete of a seeded catalog, with the sales skewed to a few books.
+ * Sample mode reports the percentiles, p0.99 being the target.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class AutocompleteBenchmark {
+
+    @Param({"1000000"})
+    private int catalogSize;
+
+    //One letter, the start of a common title word and a full author name
+    @Param({"m", "qua", "ada lovelace"})
+    private String prefix;
+
+    private EmbeddedBookstore bookstore;
+    private AutocompleteIndex autocompleteIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(catalogSize, 10);
+        autocompleteIndex = bookstore.getBean(AutocompleteIndex.class);
+        Random random = new Random(42);
+        for (int i = 0; i < catalogSize; i++) {
+            //Skewed to the low ids
+            long id = 1 + (long) (catalogSize * Math.pow(random.nextDouble(), 4));
+            autocompleteIndex.recordSale(id, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public List<BookSuggestionDto> everyCategory() {
+        return autocompleteIndex.suggest(prefix, null, 10);
+    }
+
+    @Benchmark
+    public List<BookSuggestionDto> oneCategory() {
+        return autocompleteIndex.suggest(prefix, Category.TECHNOLOGY, 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AutocompleteBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,37 @@
+package com.sulzer.bookstore.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks matching a regex and writes the results as JSON, used by the benchmark maven profile.
+ * The JSON files of two releases can be compared to find regressions.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * @param args regex of the benchmarks to run and path of the JSON result file
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: BenchmarkRunner <benchmark regex> <result file>");
+        }
+        File result = new File(args[1]);
+        if (result.getParentFile() != null) {
+            result.getParentFile().mkdirs();
+        }
+        new Runner(new OptionsBuilder()
+                .include(args[0])
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build()).run();
+    }
+}
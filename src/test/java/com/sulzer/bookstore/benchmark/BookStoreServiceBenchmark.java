@@ -0,0 +1,99 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of BookStoreService on a seeded catalog in an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BookStoreServiceBenchmark {
+
+    private static final int ORDER_LINES = 10;
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(catalogSize, Integer.MAX_VALUE / 2);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public BookDto getBookById() {
+        return bookStoreService.getBookById(randomId());
+    }
+
+    @Benchmark
+    public BookBatchDto getBooksById() {
+        List<Long> ids = new ArrayList<>(ORDER_LINES);
+        for (int i = 0; i < ORDER_LINES; i++) {
+            ids.add(randomId());
+        }
+        return bookStoreService.getBooksById(ids);
+    }
+
+    @Benchmark
+    public List<BookDto> getAllBooks() {
+        return bookStoreService.getAllBooks();
+    }
+
+    @Benchmark
+    public List<BookDto> getBookByCategoryKeyWord() {
+        return bookStoreService.getBookByCategoryKeyWord("quantum", Category.TECHNOLOGY);
+    }
+
+    @Benchmark
+    public void sellBook() {
+        bookStoreService.sellBook(randomId());
+    }
+
+    @Benchmark
+    public void sellBooks() {
+        List<SellDto> order = new ArrayList<>(ORDER_LINES);
+        for (int i = 0; i < ORDER_LINES; i++) {
+            order.add(new SellDto(randomId(), 1));
+        }
+        bookStoreService.sellBooks(order);
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(catalogSize);
+    }
+}
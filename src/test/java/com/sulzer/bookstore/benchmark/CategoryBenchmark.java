@@ -0,0 +1,43 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of a category by its value compared to the lookup by its name.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryBenchmark {
+
+    private static final String[] NAMES = {"LITERATURE", "NONFICTION", "ACTION", "THRILLER", "TECHNOLOGY", "DRAMA",
+            "POETRY", "MEDIA", "OTHERS"};
+
+    private int value;
+
+    @Benchmark
+    public Category valueOfInt() {
+        value = (value + 1) % NAMES.length;
+        return Category.valueOf(value);
+    }
+
+    @Benchmark
+    public Category valueOfName() {
+        value = (value + 1) % NAMES.length;
+        return Category.valueOf(NAMES[value]);
+    }
+}
@@ -0,0 +1,158 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.reactive.EmbeddedReactiveBookstore;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Thousands of clients at once on the servlet and on the reactive stack, which run on the same database with
+ * the same number of connections: the threads started and the connections used while they are served.
+ * Every client has its own HTTP connection and reads and sells books one request after the other.
+ * Both stacks answer every request, the servlet stack with one thread per request being served,
+ * up to the 200 threads of Tomcat, the reactive stack with the threads it had before.
+ * H2 has no non-blocking driver, the R2DBC driver of H2 runs the statements on the calling thread,
+ * with MySQL the event loops never wait for the database.
+ * The number of clients is set with -Dbookstore.load.clients, 5000 by default. Every client holds a socket of the
+ * client and one of the server, so the limit of open files (ulimit -n) must be above twice the number of clients.
+ * Runs with the reactive and the benchmark profiles: mvn -Preactive,benchmark test -Dtest=ConcurrentClientsStressTest
+ */
+public class ConcurrentClientsStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentClientsStressTest.class);
+
+    private static final int CLIENTS = Integer.getInteger("bookstore.load.clients", 5_000);
+    private static final int REQUESTS_PER_CLIENT = 4;
+    private static final int BOOKS = 1_000;
+    private static final int STOCK = 1_000_000;
+    private static final int MAX_CONNECTIONS = 10;
+
+    private static EmbeddedBookstore bookstore;
+    private static EmbeddedBookstore reactiveBookstore;
+    private static ConnectionProvider connectionProvider;
+    private static HttpClient httpClient;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start("spring.datasource.hikari.maximum-pool-size=" + MAX_CONNECTIONS);
+        bookstore.seed(BOOKS, STOCK);
+        reactiveBookstore = EmbeddedReactiveBookstore.start(bookstore,
+                "bookstore.r2dbc.pool.max-size=" + MAX_CONNECTIONS,
+                "bookstore.r2dbc.pool.initial-size=" + MAX_CONNECTIONS);
+        connectionProvider = ConnectionProvider.builder("clients")
+                .maxConnections(CLIENTS)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        httpClient = HttpClient.create(connectionProvider);
+        //The threads of the client, of the schedulers and of the pools are started before the measurements
+        load(url(bookstore), 10, 10);
+        load(url(reactiveBookstore), 10, 10);
+    }
+
+    @AfterClass
+    public static void stop() {
+        connectionProvider.dispose();
+        reactiveBookstore.close();
+        bookstore.close();
+    }
+
+    @Test
+    public void testLoad_Given_ThousandsOfClients_Then_ReactiveStackStartsNoThread() {
+        //Arrange
+        HikariPoolMXBean hikari = bookstore.getBean(HikariDataSource.class).getHikariPoolMXBean();
+        ConnectionPool connectionPool = reactiveBookstore.getBean(ConnectionPool.class);
+        PoolMetrics poolMetrics = connectionPool.getMetrics().get();
+
+        //Act
+        Usage servlet = measure("servlet", url(bookstore),
+                hikari::getActiveConnections, hikari::getThreadsAwaitingConnection);
+        Usage reactive = measure("reactive", url(reactiveBookstore),
+                poolMetrics::acquiredSize, poolMetrics::pendingAcquireSize);
+
+        //Assert
+        assertEquals(0, servlet.failed);
+        assertEquals(0, reactive.failed);
+        assertTrue(servlet.connections <= MAX_CONNECTIONS);
+        assertTrue(reactive.connections <= MAX_CONNECTIONS);
+        assertTrue(reactive.threads < servlet.threads);
+    }
+
+    private static Usage measure(String stack, String url, IntSupplier connectionsInUse, IntSupplier waiting) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Usage usage = new Usage();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                usage.connections = Math.max(usage.connections, connectionsInUse.getAsInt());
+                usage.waiting = Math.max(usage.waiting, waiting.getAsInt());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        int before = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        usage.failed = load(url, CLIENTS, REQUESTS_PER_CLIENT);
+        long elapsed = System.nanoTime() - start;
+        usage.threads = threads.getPeakThreadCount() - before;
+        sampler.interrupt();
+        LOGGER.info("{} {} requests of {} clients in {} ms, {} failed, {} threads started, " +
+                        "at most {} database connections in use and {} requests waiting for one",
+                stack, CLIENTS * REQUESTS_PER_CLIENT, CLIENTS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                usage.failed, usage.threads, usage.connections, usage.waiting);
+        return usage;
+    }
+
+    //Number of requests not answered with 200
+    private static int load(String url, int clients, int requestsPerClient) {
+        AtomicInteger failed = new AtomicInteger();
+        Flux.range(0, clients)
+                .flatMap(client -> Flux.range(0, requestsPerClient).concatMap(request -> {
+                    long id = ThreadLocalRandom.current().nextLong(1, BOOKS + 1);
+                    HttpClient.ResponseReceiver<?> receiver = request % 2 == 0
+                            ? httpClient.get().uri(url + "/api/book/" + id)
+                            : httpClient.put().uri(url + "/api/sell-book/" + id);
+                    return receiver.responseSingle((response, body) -> body.then(Mono.just(response.status().code())));
+                }), clients)
+                .filter(status -> status != 200)
+                .doOnNext(status -> failed.incrementAndGet())
+                .blockLast(Duration.ofMinutes(5));
+        return failed.get();
+    }
+
+    private static String url(EmbeddedBookstore bookstore) {
+        return "http://localhost:" + bookstore.getBean(Environment.class).getProperty("local.server.port");
+    }
+
+    private static class Usage {
+        private volatile int connections;
+        private volatile int waiting;
+        private int threads;
+        private int failed;
+    }
+}
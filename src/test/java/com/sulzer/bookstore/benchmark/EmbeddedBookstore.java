@@ -0,0 +1,145 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.BookstoreApplication;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.cache.SearchCache;
+import com.sulzer.bookstore.service.inventory.InMemoryInventory;
+import com.sulzer.bookstore.service.journal.JournalReplayer;
+import com.sulzer.bookstore.service.leaderboard.BestsellerLeaderboard;
+import com.sulzer.bookstore.service.search.InvertedIndexSearchEngine;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.context.support.StandardServletEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookstore application running on an in-memory H2 database, used by benchmarks and stress tests.
+ */
+public final class EmbeddedBookstore implements AutoCloseable {
+
+    static final String[] WORDS = {"java", "spring", "quantum", "garden", "river", "shadow", "empire", "silent",
+            "winter", "ocean", "dragon", "secret", "golden", "broken", "hidden", "mountain", "journey", "midnight",
+            "crystal", "forest", "machine", "storm", "desert", "kingdom", "memory", "island", "fire", "glass",
+            "paper", "stone", "city", "night", "light", "code", "data", "history", "science", "design", "music",
+            "poem", "theatre", "media", "action", "thriller", "drama", "letter", "voyage", "signal", "engine",
+            "harbor", "valley", "summer", "autumn", "spirit", "legend", "market", "tower", "bridge", "circle",
+            "mirror", "anchor", "planet", "rocket", "castle"};
+    static final String[] FIRST_NAMES = {"ada", "alan", "grace", "james", "joshua", "mary", "linus", "edsger",
+            "barbara", "donald", "frances", "ken", "dennis", "margaret", "niklaus", "john"};
+    static final String[] LAST_NAMES = {"lovelace", "turing", "hopper", "gosling", "bloch", "shelley", "torvalds",
+            "dijkstra", "liskov", "knuth", "allen", "thompson", "ritchie", "hamilton", "wirth", "backus"};
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int INSERT_BATCH_SIZE = 5_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedBookstore(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Start the application on a new in-memory database.
+     *
+     * @param properties additional properties in key=value form
+     * @return
+     */
+    public static EmbeddedBookstore start(String... properties) {
+        List<String> allProperties = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:bookstore" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.show-sql=false",
+                "server.port=0",
+                "logging.level.root=WARN",
+                "logging.level.org.hibernate.SQL=WARN",
+                //Results of the stress tests
+                "logging.level.com.sulzer.bookstore.benchmark=INFO"));
+        allProperties.addAll(Arrays.asList(properties));
+        return start(new SpringApplicationBuilder(BookstoreApplication.class), new StandardServletEnvironment(),
+                allProperties);
+    }
+
+    /**
+     * Start another application, for example on the database of a started bookstore.
+     *
+     * @param application
+     * @param environment environment of the type of the application
+     * @param properties  properties in key=value form
+     * @return
+     */
+    public static EmbeddedBookstore start(SpringApplicationBuilder application, ConfigurableEnvironment environment,
+                                          List<String> properties) {
+        return new EmbeddedBookstore(application.environment(environment(environment, properties)).run());
+    }
+
+    //The properties are the first property source of the environment, so they take precedence over application.yaml
+    //and are already read when the profiles and the logging levels are set up
+    private static <E extends ConfigurableEnvironment> E environment(E environment, List<String> properties) {
+        Map<String, Object> propertyMap = new HashMap<>();
+        properties.forEach(property -> {
+            int separator = property.indexOf('=');
+            propertyMap.put(property.substring(0, separator), property.substring(separator + 1));
+        });
+        environment.getPropertySources().addFirst(new MapPropertySource("embeddedBookstore", propertyMap));
+        return environment;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        return context.getBeansOfType(type);
+    }
+
+    /**
+     * Insert books with ids 1 to numberOfBooks and generated title, author and category.
+     * The state derived from the book table is rebuilt afterwards, as the rows are inserted without the service.
+     *
+     * @param numberOfBooks
+     * @param totalCount    copies of each book in the store
+     */
+    public void seed(int numberOfBooks, int totalCount) {
+        JdbcTemplate jdbcTemplate = getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (long id = 1; id <= numberOfBooks; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)];
+            String author = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            int category = random.nextInt(Category.values().length);
+            batch.add(new Object[]{id, author, title, category, 10 + random.nextInt(40), totalCount, 0});
+            if (batch.size() == INSERT_BATCH_SIZE || id == numberOfBooks) {
+                jdbcTemplate.batchUpdate("insert into book (id, author, title, category, price, total_count, sold) " +
+                        "values (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        context.getBeansOfType(InvertedIndexSearchEngine.class).values().forEach(InvertedIndexSearchEngine::rebuild);
+        getBean(AutocompleteIndex.class).rebuild();
+        getBean(BestsellerLeaderboard.class).rebuild();
+        getBean(SearchCache.class).evictAll();
+        getBean(CategoryStatisticsStore.class).rebuild();
+        context.getBeansOfType(InMemoryInventory.class).values().forEach(InMemoryInventory::reload);
+        context.getBeansOfType(JournalReplayer.class).values().forEach(JournalReplayer::snapshot);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.importer.ImportFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second registered by /api/import-books, each invocation imports a file of new books.
+ * addNewBook registers the same rows with one /api/add-new-book call per row, as before the import existed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"CSV", "NDJSON", "addNewBook"})
+    private String source;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+    private long nextId = 1;
+    private ImportFormat format;
+    private byte[] file;
+    private List<BookDto> bookDtos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        format = source.equals("addNewBook") ? null : ImportFormat.valueOf(source);
+        bookstore = EmbeddedBookstore.start();
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextFile() {
+        StringBuilder builder = new StringBuilder(ROWS * 64);
+        bookDtos = new ArrayList<>(ROWS);
+        if (format == ImportFormat.CSV) {
+            builder.append("id,title,author,category,price,totalCount\n");
+        }
+        for (int row = 0; row < ROWS; row++) {
+            long id = nextId++;
+            String title = EmbeddedBookstore.WORDS[(int) (id % EmbeddedBookstore.WORDS.length)] + " " + id;
+            String author = EmbeddedBookstore.LAST_NAMES[(int) (id % EmbeddedBookstore.LAST_NAMES.length)];
+            Category category = Category.values()[(int) (id % Category.values().length)];
+            if (format == null) {
+                bookDtos.add(BookDto.builder().id(id).title(title).author(author).category(category)
+                        .price(12.5f).totalCount(10).build());
+            } else if (format == ImportFormat.CSV) {
+                builder.append(id).append(',').append(title).append(',').append(author).append(',')
+                        .append(category).append(",12.5,10\n");
+            } else {
+                builder.append("{\"id\":").append(id).append(",\"title\":\"").append(title)
+                        .append("\",\"author\":\"").append(author).append("\",\"category\":\"").append(category)
+                        .append("\",\"price\":12.5,\"totalCount\":10}\n");
+            }
+        }
+        file = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportReportDto importBooks() throws IOException {
+        if (format == null) {
+            bookDtos.forEach(bookStoreService::addNewBook);
+            return null;
+        }
+        return bookStoreService.importBooks(new ByteArrayInputStream(file), format);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ImportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
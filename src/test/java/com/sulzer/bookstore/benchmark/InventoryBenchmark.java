@@ -0,0 +1,68 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.service.BookStoreService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sells per second of one hot title in /api/sell-book, flash sale style, with every thread buying the same book.
+ * database is the conditional update of the book row, coalescing is one conditional update for the sales
+ * collected in the coalescing window, memory is the CAS on the in-memory counter with the counts written
+ * every flush interval. A batch holds at most one sale per thread, run with -t 64 for a launch like load.
+ * Compare the p99 of coalescing with -bm sample, every sale waits for the window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class InventoryBenchmark {
+
+    private static final long HOT_TITLE = 1L;
+
+    @Param({"database", "coalescing", "memory"})
+    private String mode;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start("bookstore.inventory.mode=" + mode);
+        bookstore.seed(1_000, Integer.MAX_VALUE / 2);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public void sellHotTitle() {
+        bookStoreService.sellBook(HOT_TITLE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InventoryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
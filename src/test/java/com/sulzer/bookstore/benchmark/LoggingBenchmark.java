@@ -0,0 +1,67 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sales and cached searches with the loggers of the application at INFO, as configured, and at WARN, where nothing
+ * is logged. Run with -prof gc, the difference of gc.alloc.rate.norm between the two is what logging allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class LoggingBenchmark {
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    @Param({"WARN", "INFO"})
+    private String logLevel;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start("logging.level.com.sulzer.bookstore=" + logLevel,
+                "logging.level.org.hibernate.SQL=" + logLevel);
+        bookstore.seed(catalogSize, Integer.MAX_VALUE / 2);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public void sellBook() {
+        bookStoreService.sellBook(ThreadLocalRandom.current().nextLong(1, catalogSize + 1));
+    }
+
+    @Benchmark
+    public List<BookDto> getBookByCategoryKeyWord() {
+        return bookStoreService.getBookByCategoryKeyWord("quantum", Category.TECHNOLOGY);
+    }
+}
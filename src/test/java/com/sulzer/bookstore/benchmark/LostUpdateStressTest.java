@@ -0,0 +1,129 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Sells, updates and additions of the same book at once. No sale may be overwritten by an update or an addition.
+ * Runs with the benchmark profile, the retried conflicts are logged.
+ */
+public class LostUpdateStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LostUpdateStressTest.class);
+
+    private static final int SELLERS = 8;
+    private static final int WRITERS = 4;
+    private static final int OPERATIONS_PER_THREAD = 100;
+
+    private static EmbeddedBookstore bookstore;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testMutations_Given_ConcurrentWritersOfOneBook_Then_NoSaleIsLost() throws Exception {
+        //Arrange
+        bookstore.seed(2, 100_000);
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        BookRepository bookRepository = bookstore.getBean(BookRepository.class);
+        Book book = bookRepository.findById(1L).get();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger gaveUp = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(SELLERS + WRITERS);
+
+        //Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < SELLERS; i++) {
+            boolean bulk = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    try {
+                        if (bulk) {
+                            bookStoreService.sellBooks(Arrays.asList(new SellDto(1L, 2), new SellDto(2L, 1)));
+                            sold.addAndGet(2);
+                        } else {
+                            bookStoreService.sellBook(1L);
+                            sold.incrementAndGet();
+                        }
+                    } catch (ConcurrentUpdateException e) {
+                        gaveUp.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            boolean update = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                    try {
+                        if (update) {
+                            bookStoreService.updateBook(1L, BookDto.builder().title("title " + j)
+                                    .author(book.getAuthor()).category(Category.valueOf(j % Category.values().length))
+                                    .price(book.getPrice()).totalCount(100_000).build());
+                        } else {
+                            bookStoreService.addBook(1L, 1);
+                        }
+                    } catch (ConcurrentUpdateException e) {
+                        gaveUp.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        MeterRegistry meterRegistry = bookstore.getBean(MeterRegistry.class);
+        LOGGER.info("{} conflicts retried, {} operations gave up",
+                (long) meterRegistry.find("bookstore.optimistic.conflicts").counters().stream()
+                        .mapToDouble(counter -> counter.count()).sum(), gaveUp.get());
+
+        //Assert
+        assertEquals(sold.get(), bookRepository.findById(1L).get().getSold());
+        List<Book> books = bookRepository.findAll();
+        for (CategoryStatisticsDto statistics : bookStoreService.getAllCategoryStatistics()) {
+            assertEquals(books.stream().filter(b -> b.getCategory() == statistics.getCategory())
+                    .mapToLong(Book::getSold).sum(), statistics.getUnitsSold());
+            assertEquals(books.stream().filter(b -> b.getCategory() == statistics.getCategory())
+                    .mapToLong(Book::getTotalCount).sum(), statistics.getUnitsInStock());
+        }
+    }
+}
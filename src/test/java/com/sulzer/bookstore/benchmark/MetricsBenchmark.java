@@ -0,0 +1,101 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.metrics.RepositoryMetricsInterceptor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost added to every repository call and every request by the metrics, with the histograms of application.yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private MethodInvocation invocation;
+    private RepositoryMetricsInterceptor interceptor;
+    private PrometheusMeterRegistry meterRegistry;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        interceptor = new RepositoryMetricsInterceptor(() -> meterRegistry, "BookRepository");
+        Method method = Object.class.getMethod("hashCode");
+        invocation = new MethodInvocation() {
+            @Override
+            public Method getMethod() {
+                return method;
+            }
+
+            @Override
+            public Object[] getArguments() {
+                return new Object[0];
+            }
+
+            @Override
+            public Object proceed() {
+                return this;
+            }
+
+            @Override
+            public Object getThis() {
+                return this;
+            }
+
+            @Override
+            public AccessibleObject getStaticPart() {
+                return method;
+            }
+        };
+    }
+
+    @Benchmark
+    public Object repositoryCall() throws Throwable {
+        return invocation.proceed();
+    }
+
+    @Benchmark
+    public Object timedRepositoryCall() throws Throwable {
+        return interceptor.invoke(invocation);
+    }
+
+    @Benchmark
+    public void requestStatements() {
+        DistributionSummary.builder("bookstore.request.statements")
+                .tag("method", "PUT")
+                .tag("uri", "/api/sell-book/{id}")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1L)
+                .maximumExpectedValue(10_000L)
+                .register(meterRegistry)
+                .record(2);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MetricsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
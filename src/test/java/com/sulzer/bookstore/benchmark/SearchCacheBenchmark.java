@@ -0,0 +1,74 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches of a few popular keyword and category pairs mixed with sales of random books, with and without the
+ * search cache. A maximum weight of 0 caches nothing. The searches use the database engine, so a miss scans the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class SearchCacheBenchmark {
+
+    private static final String[] KEYWORDS = {"quantum", "dragon", "ada", "night", "code"};
+    private static final Category[] CATEGORIES = {Category.TECHNOLOGY, Category.LITERATURE, Category.DRAMA};
+
+    @Param({"100000"})
+    private int catalogSize;
+
+    @Param({"0", "100000"})
+    private long maximumWeight;
+
+    //One sale every sellEvery searches
+    @Param({"10", "100"})
+    private int sellEvery;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start("bookstore.search.engine=database",
+                "bookstore.cache.search.maximum-weight=" + maximumWeight);
+        bookstore.seed(catalogSize, Integer.MAX_VALUE / 2);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public List<BookDto> searchWhileSelling() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(sellEvery) == 0) {
+            bookStoreService.sellBook(1L + random.nextInt(catalogSize));
+        }
+        return bookStoreService.getBookByCategoryKeyWord(KEYWORDS[random.nextInt(KEYWORDS.length)],
+                CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+}
@@ -0,0 +1,100 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.search.BookMatch;
+import com.sulzer.bookstore.service.search.DatabaseSearchEngine;
+import com.sulzer.bookstore.service.search.InvertedIndexSearchEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword search with the inverted index compared to the native LIKE query on a seeded catalog.
+ * The match benchmarks find the books of every category at once, as needed for the counts per category,
+ * compared to one LIKE query per category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class SearchEngineBenchmark {
+
+    @Param({"1000000"})
+    private int catalogSize;
+
+    //A common title word, a rare author name and a fragment of an id
+    @Param({"quantum", "lovelace", "4242"})
+    private String keyword;
+
+    private EmbeddedBookstore bookstore;
+    private InvertedIndexSearchEngine indexSearchEngine;
+    private DatabaseSearchEngine databaseSearchEngine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start("bookstore.search.engine=database");
+        bookstore.seed(catalogSize, 10);
+        BookRepository bookRepository = bookstore.getBean(BookRepository.class);
+        databaseSearchEngine = new DatabaseSearchEngine(bookRepository);
+        indexSearchEngine = new InvertedIndexSearchEngine(bookRepository);
+        indexSearchEngine.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public List<Book> invertedIndex() {
+        return indexSearchEngine.search(keyword, Category.TECHNOLOGY);
+    }
+
+    @Benchmark
+    public List<Book> databaseLike() {
+        return databaseSearchEngine.search(keyword, Category.TECHNOLOGY);
+    }
+
+    @Benchmark
+    public List<BookMatch> invertedIndexMatch() {
+        return indexSearchEngine.match(keyword);
+    }
+
+    @Benchmark
+    public List<BookMatch> databaseMatch() {
+        return databaseSearchEngine.match(keyword);
+    }
+
+    @Benchmark
+    public int databaseLikePerCategory() {
+        int matches = 0;
+        for (Category category : Category.values()) {
+            matches += databaseSearchEngine.search(keyword, category).size();
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SearchEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
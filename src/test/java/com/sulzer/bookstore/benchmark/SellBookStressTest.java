@@ -0,0 +1,88 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Many threads selling the same book at once. The store must never sell more books than it has.
+ * Runs with the benchmark profile, the throughput is logged.
+ */
+public class SellBookStressTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SellBookStressTest.class);
+
+    private static final int THREADS = 16;
+    private static final int SELLS_PER_THREAD = 250;
+    private static final int STOCK = 2_500;
+
+    private static EmbeddedBookstore bookstore;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testSellBook_Given_ConcurrentSellsOfOneBook_Then_NoOversell() throws Exception {
+        //Arrange
+        bookstore.seed(1, STOCK);
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        //Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                startSignal.await();
+                for (int j = 0; j < SELLS_PER_THREAD; j++) {
+                    try {
+                        bookStoreService.sellBook(1L);
+                        sold.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        outOfStock.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long start = System.nanoTime();
+        startSignal.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        LOGGER.info("{} sells of one book on {} threads in {} ms ({} sells/s)", THREADS * SELLS_PER_THREAD,
+                THREADS, TimeUnit.NANOSECONDS.toMillis(elapsed), THREADS * SELLS_PER_THREAD * 1_000_000_000L / elapsed);
+
+        //Assert
+        assertEquals(STOCK, sold.get());
+        assertEquals(THREADS * SELLS_PER_THREAD - STOCK, outOfStock.get());
+        assertEquals(0, bookStoreService.getNumberOfBooksById(1L));
+    }
+}
@@ -0,0 +1,94 @@
+package com.sulzer.bookstore.benchmark;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one order in /api/sell-books.
+ * bulkSell is the current service path, perLineSell replays the former findById and save per line item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SellBooksBenchmark {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private EmbeddedBookstore bookstore;
+    private BookStoreService bookStoreService;
+    private BookRepository bookRepository;
+    private TransactionTemplate transactionTemplate;
+    private List<SellDto> order;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(CATALOG_SIZE, Integer.MAX_VALUE / 2);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookRepository = bookstore.getBean(BookRepository.class);
+        transactionTemplate = new TransactionTemplate(bookstore.getBean(PlatformTransactionManager.class));
+        Random random = new Random(7);
+        order = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            order.add(new SellDto(1 + random.nextInt(CATALOG_SIZE), 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookstore.close();
+    }
+
+    @Benchmark
+    public void bulkSell() {
+        bookStoreService.sellBooks(order);
+    }
+
+    @Benchmark
+    public void perLineSell() {
+        transactionTemplate.execute(status -> {
+            order.forEach(sellDto -> {
+                Book book = bookRepository.findById(sellDto.getBookId()).get();
+                book.setTotalCount(book.getTotalCount() - sellDto.getQuantity());
+                book.setSold(book.getSold() + sellDto.getQuantity());
+                bookRepository.save(book);
+            });
+            return null;
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SellBooksBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package com.sulzer.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request of a cold JVM: the start of the application and a first read of the book table,
+ * with the default profile and with the prod profile. Every fork measures one start, the tables are created
+ * from benchmark/schema.sql when the database is opened, as they would exist in production.
+ * The component index is only used when built with mvn -Pprod. A class data sharing archive, made on JDK 11 or later
+ * as in the README with target/classes and target/test-classes in jars, is used with
+ * -jvmArgsAppend "-Xshare:on -XX:SharedArchiveFile=bookstore.jsa".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class StartupBenchmark {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:startup;MODE=MySQL;DB_CLOSE_DELAY=-1;"
+            + "INIT=RUNSCRIPT FROM 'classpath:benchmark/schema.sql'";
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private EmbeddedBookstore bookstore;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        //The index has no Swagger components, which the default profile starts
+        if (!"prod".equals(profile)) {
+            System.setProperty("spring.index.ignore", "true");
+        }
+    }
+
+    @Benchmark
+    public Object startAndFirstRequest() {
+        //EmbeddedBookstore creates the tables, the schema handling of the profile is restored
+        bookstore = EmbeddedBookstore.start("spring.profiles.active=" + profile,
+                "spring.datasource.url=" + DATABASE_URL,
+                "spring.jpa.hibernate.ddl-auto=" + ("prod".equals(profile) ? "none" : "update"));
+        String port = bookstore.getBean(Environment.class).getProperty("local.server.port");
+        return new RestTemplate().getForObject("http://localhost:" + port + "/api/book-list", Object[].class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        bookstore.close();
+    }
+}
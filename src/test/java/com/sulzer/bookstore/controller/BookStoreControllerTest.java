@@ -2,9 +2,22 @@ package com.sulzer.bookstore.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
 import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
 import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.BookSearchDto;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import com.sulzer.bookstore.service.dto.CategoryFacetDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.ImportErrorDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
 import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.importer.ImportFormat;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -13,20 +26,32 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -94,6 +119,24 @@ public class BookStoreControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void testGetBooksById() throws Exception {
+        //Arrange
+        BookBatchDto batch = BookBatchDto.builder().books(Arrays.asList(createBookDto()))
+                .missingIds(Arrays.asList(99L)).build();
+        when(bookStoreService.getBooksById(Arrays.asList(id, 99L))).thenReturn(batch);
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/books-by-id")
+                .param("ids", id + ",99")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books[0].id").value(id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books[0].title").value(title))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missingIds[0]").value(99));
+    }
+
     @Test
     public void testGetBookById() throws Exception {
         //Arrange
@@ -112,6 +155,38 @@ public class BookStoreControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.author").value(author));
     }
 
+    @Test
+    public void testGetBookById_Given_CurrentETag_Then_NotModified() throws Exception {
+        //Arrange
+        String url = "/api/book/" + id;
+        when(bookStoreService.getBookVersion(id)).thenReturn("v1");
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get(url)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
+                .andExpect(content().string(""));
+        verify(bookStoreService, never()).getBookById(id);
+    }
+
+    @Test
+    public void testGetBookById_Given_OldETag_Then_BookWithCurrentETag() throws Exception {
+        //Arrange
+        String url = "/api/book/" + id;
+        when(bookStoreService.getBookVersion(id)).thenReturn("v2");
+        when(bookStoreService.getBookById(id)).thenReturn(createBookDto());
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get(url)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(id));
+    }
+
     @Test
     public void testGetAllBooks() throws Exception {
         //Arrange
@@ -131,6 +206,20 @@ public class BookStoreControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.[*].totalCount").isNotEmpty());
     }
 
+    @Test
+    public void testGetAllBooks_Given_CurrentETag_Then_NotModified() throws Exception {
+        //Arrange
+        when(bookStoreService.getCatalogVersion()).thenReturn("v1");
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/book-list")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(bookStoreService, never()).getAllBooks();
+    }
+
     @Test
     public void testGetNumberOfBooksById() throws Exception {
         //Arrange
@@ -231,6 +320,184 @@ public class BookStoreControllerTest {
 
     }
 
+    @Test
+    public void testGetBookPage() throws Exception {
+        //Arrange
+        BookPageDto page = BookPageDto.builder().books(Arrays.asList(createBookDto())).nextCursor(id).build();
+        when(bookStoreService.getBooksAfter(null, 1)).thenReturn(page);
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/book-page?size=1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books[0].title").value(title))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(id));
+    }
+
+    @Test
+    public void testSearchBooks() throws Exception {
+        //Arrange
+        BookSearchDto search = BookSearchDto.builder().books(Arrays.asList(createBookDto())).nextCursor(id)
+                .categories(Arrays.asList(CategoryFacetDto.builder().category(category).books(3).unitsSold(sold).build()))
+                .build();
+        when(bookStoreService.searchBooks(keyword, null, null, 1)).thenReturn(search);
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/book-search?keyword=" + keyword + "&size=1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books[0].title").value(title))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.categories[0].category").value(category.name()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.categories[0].books").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.categories[0].unitsSold").value(sold));
+    }
+
+    @Test
+    public void testGetBestsellers() throws Exception {
+        //Arrange
+        BestsellerDto bestseller = BestsellerDto.builder().rank(1).id(id).title(title).author(author)
+                .category(category).sold(sold).build();
+        when(bookStoreService.getBestsellers(null, 10)).thenReturn(Arrays.asList(bestseller));
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/bestsellers")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].rank").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].sold").value(sold));
+    }
+
+    @Test
+    public void testGetSalesHistory() throws Exception {
+        //Arrange
+        Instant from = Instant.parse("2030-01-01T00:00:00Z");
+        Instant to = Instant.parse("2030-01-02T00:00:00Z");
+        SalesBucketDto bucket = SalesBucketDto.builder().start(Instant.parse("2030-01-01T10:00:00Z"))
+                .unitsSold(sold).revenue(price * sold).build();
+        when(bookStoreService.getSalesHistory(SalesResolution.HOUR, from, to, category, null))
+                .thenReturn(Arrays.asList(bucket));
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/sales-history?resolution=HOUR&from=" + from + "&to=" + to + "&category=" + category)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].start").value("2030-01-01T10:00:00Z"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].unitsSold").value(sold));
+    }
+
+    @Test
+    public void testSuggestBooks() throws Exception {
+        //Arrange
+        BookSuggestionDto suggestion = BookSuggestionDto.builder().id(id).title(title).author(author)
+                .category(category).sold(sold).build();
+        when(bookStoreService.suggestBooks("ti", category, 10)).thenReturn(Arrays.asList(suggestion));
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/book-suggestions?prefix=ti&category=" + category)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(id))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value(title))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].sold").value(sold));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamAllBooks() throws Exception {
+        //Arrange
+        doAnswer(invocation -> {
+            Consumer<BookDto> consumer = invocation.getArgument(0);
+            consumer.accept(createBookDto());
+            consumer.accept(createBookDto());
+            return null;
+        }).when(bookStoreService).streamAllBooks(any(Consumer.class));
+        String line = objectMapper.writeValueAsString(createBookDto());
+
+        //Act
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/book-stream"))
+                .andReturn();
+
+        //Assert
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(line + "\n" + line + "\n"));
+    }
+
+    @Test
+    public void testGetCategoryStatistics() throws Exception {
+        //Arrange
+        CategoryStatisticsDto statistics = CategoryStatisticsDto.builder()
+                .category(category).books(1).unitsInStock(totalCount).unitsSold(sold).revenue(price * sold).build();
+        when(bookStoreService.getCategoryStatistics(category)).thenReturn(statistics);
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/statistics/" + category)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.category").value(category.name()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.unitsInStock").value(totalCount))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.unitsSold").value(sold));
+    }
+
+    @Test
+    public void testGetCacheStatistics() throws Exception {
+        //Arrange
+        CacheStatisticsDto statistics = CacheStatisticsDto.builder().name("book").hitCount(3).missCount(1).build();
+        when(bookStoreService.getCacheStatistics()).thenReturn(Arrays.asList(statistics));
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/cache-statistics")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].name").value("book"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[0].hitCount").value(3));
+    }
+
+    @Test
+    public void testImportCsvBooks() throws Exception {
+        //Arrange
+        ImportReportDto report = ImportReportDto.builder().imported(1).failed(1)
+                .errors(Arrays.asList(ImportErrorDto.builder().line(3).id(id).message("Book with same id present.").build()))
+                .build();
+        when(bookStoreService.importBooks(any(), eq(ImportFormat.CSV))).thenReturn(report);
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/import-books")
+                .content("id,title\n1,first\n" + id + ",second\n")
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].line").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].id").value(id));
+    }
+
+    @Test
+    public void testImportNdjsonBooks() throws Exception {
+        //Arrange
+        when(bookStoreService.importBooks(any(), eq(ImportFormat.NDJSON)))
+                .thenReturn(ImportReportDto.builder().imported(1).build());
+
+        //Act and Assert
+        mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/import-books")
+                .content(objectMapper.writeValueAsString(createBookDto()) + "\n")
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1));
+    }
 
     private BookDto createBookDto() {
         return BookDto.builder()
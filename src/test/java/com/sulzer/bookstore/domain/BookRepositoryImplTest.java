@@ -0,0 +1,50 @@
+package com.sulzer.bookstore.domain;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BookRepositoryImplTest {
+
+    private static EmbeddedBookstore bookstore;
+    private static BookRepository bookRepository;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(2_500, 1);
+        bookRepository = bookstore.getBean(BookRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testForEachBook_Then_AllBooksInIdOrder() {
+        //Arrange
+        List<Long> ids = new ArrayList<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(bookstore.getBean(PlatformTransactionManager.class));
+
+        //Act
+        transactionTemplate.execute(status -> {
+            bookRepository.forEachBook(100, book -> ids.add(book.getId()));
+            return null;
+        });
+
+        //Assert
+        assertEquals(2_500, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Long.valueOf(i + 1), ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sulzer.bookstore.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SamplingTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final Logger sqlLogger = loggerContext.getLogger("org.hibernate.SQL");
+    private final Logger otherLogger = loggerContext.getLogger("com.sulzer.bookstore");
+
+    @Test
+    public void testDecide_Given_RateThree_Then_OneInThreeMessagesOfTheLogger() {
+        //Arrange
+        SamplingTurboFilter sut = filter(3);
+
+        //Act
+        List<FilterReply> replies = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            replies.add(sut.decide(null, sqlLogger, Level.DEBUG, "select " + i, null, null));
+        }
+
+        //Assert
+        assertEquals(FilterReply.NEUTRAL, replies.get(0));
+        assertEquals(FilterReply.DENY, replies.get(1));
+        assertEquals(FilterReply.DENY, replies.get(2));
+        assertEquals(FilterReply.NEUTRAL, replies.get(3));
+        assertEquals(FilterReply.NEUTRAL, sut.decide(null, otherLogger, Level.DEBUG, "other", null, null));
+    }
+
+    @Test
+    public void testDecide_Given_LevelCheck_Then_NotSampled() {
+        //Arrange
+        SamplingTurboFilter sut = filter(2);
+
+        //Act
+        FilterReply levelCheck = sut.decide(null, sqlLogger, Level.DEBUG, null, null, null);
+        FilterReply first = sut.decide(null, sqlLogger, Level.DEBUG, "select 1", null, null);
+
+        //Assert
+        assertEquals(FilterReply.NEUTRAL, levelCheck);
+        assertEquals(FilterReply.NEUTRAL, first);
+    }
+
+    @Test
+    public void testDecide_Given_RateZero_Then_NoMessage() {
+        SamplingTurboFilter sut = filter(0);
+
+        assertEquals(FilterReply.DENY, sut.decide(null, sqlLogger, Level.DEBUG, "select 1", null, null));
+    }
+
+    private static SamplingTurboFilter filter(long rate) {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setLoggerName("org.hibernate.SQL");
+        filter.setRate(rate);
+        return filter;
+    }
+}
@@ -0,0 +1,62 @@
+package com.sulzer.bookstore.metrics;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Endpoint, repository and statement metrics recorded by the running application and scraped in prometheus format.
+ */
+public class MetricsTest {
+
+    private static EmbeddedBookstore bookstore;
+    private static RestTemplate restTemplate;
+    private static String url;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(20, 5);
+        restTemplate = new RestTemplate();
+        url = "http://localhost:" + bookstore.getBean(Environment.class).getProperty("local.server.port");
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testMetrics_Given_Requests_Then_EndpointRepositoryAndStatementsAreRecorded() {
+        //Act
+        restTemplate.getForObject(url + "/api/book/3", String.class);
+        restTemplate.put(url + "/api/sell-book/4", null);
+        String scrape = restTemplate.getForObject(url + "/actuator/prometheus", String.class);
+
+        //Assert
+        MeterRegistry meterRegistry = bookstore.getBean(MeterRegistry.class);
+        Timer findById = meterRegistry.find(RepositoryMetricsInterceptor.METRIC)
+                .tags("repository", "BookRepository", "method", "findById", "exception", "none").timer();
+        assertNotNull(findById);
+        assertTrue(findById.count() >= 1);
+        DistributionSummary sellStatements = meterRegistry.find(StatementCountFilter.METRIC)
+                .tags("uri", "/api/sell-book/{id}").summary();
+        assertNotNull(sellStatements);
+        assertEquals(1, sellStatements.count());
+        //Conditional update of the book and of the statistics
+        assertEquals(2, sellStatements.totalAmount(), 0);
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/book/{id}\""));
+        assertTrue(scrape.contains("bookstore_repository_seconds_bucket{exception=\"none\",method=\"findById\",repository=\"BookRepository\""));
+        assertTrue(scrape.contains("bookstore_request_statements_bucket{method=\"PUT\",status=\"200\",uri=\"/api/sell-book/{id}\""));
+    }
+}
@@ -0,0 +1,67 @@
+package com.sulzer.bookstore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RepositoryMetricsInterceptorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RepositoryMetricsInterceptor sut = new RepositoryMetricsInterceptor(() -> meterRegistry,
+            "BookRepository");
+
+    @Test
+    public void testInvoke_Given_Success_Then_TimerOfMethodIsRecorded() throws Throwable {
+        //Arrange
+        Object result = new Object();
+        MethodInvocation invocation = invocation("findById");
+        when(invocation.proceed()).thenReturn(result);
+
+        //Act
+        Object first = sut.invoke(invocation);
+        sut.invoke(invocation);
+
+        //Assert
+        assertSame(result, first);
+        assertEquals(2, meterRegistry.get(RepositoryMetricsInterceptor.METRIC)
+                .tags("repository", "BookRepository", "method", "findById", "exception", "none").timer().count());
+    }
+
+    @Test
+    public void testInvoke_Given_Exception_Then_TimerIsTaggedWithException() throws Throwable {
+        //Arrange
+        MethodInvocation invocation = invocation("sell");
+        when(invocation.proceed()).thenThrow(new IllegalStateException());
+
+        //Act
+        try {
+            sut.invoke(invocation);
+            fail();
+        } catch (IllegalStateException e) {
+            //expected
+        }
+
+        //Assert
+        assertEquals(1, meterRegistry.get(RepositoryMetricsInterceptor.METRIC)
+                .tags("method", "sell", "exception", "IllegalStateException").timer().count());
+    }
+
+    private static MethodInvocation invocation(String methodName) throws NoSuchMethodException {
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(Repository.class.getMethod(methodName));
+        return invocation;
+    }
+
+    interface Repository {
+        Object findById();
+
+        int sell();
+    }
+}
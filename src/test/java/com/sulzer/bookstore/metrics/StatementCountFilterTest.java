@@ -0,0 +1,49 @@
+package com.sulzer.bookstore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatementCountFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatementCountFilter sut = new StatementCountFilter(meterRegistry);
+
+    @Test
+    public void testDoFilter_Then_SummaryOfMethodUriAndStatusIsRecorded() throws Exception {
+        //Act
+        filter("PUT", "/api/sell-book/{id}", 200);
+        filter("PUT", "/api/sell-book/{id}", 200);
+        filter("PUT", "/api/sell-book/{id}", 404);
+
+        //Assert
+        assertEquals(2, meterRegistry.get(StatementCountFilter.METRIC)
+                .tags("method", "PUT", "uri", "/api/sell-book/{id}", "status", "200").summary().count());
+        assertEquals(1, meterRegistry.get(StatementCountFilter.METRIC)
+                .tags("method", "PUT", "uri", "/api/sell-book/{id}", "status", "404").summary().count());
+    }
+
+    @Test
+    public void testDoFilter_Given_NoHandler_Then_UriIsUnknown() throws Exception {
+        //Act
+        filter("GET", null, 404);
+
+        //Assert
+        assertEquals(1, meterRegistry.get(StatementCountFilter.METRIC)
+                .tags("method", "GET", "uri", "UNKNOWN", "status", "404").summary().count());
+    }
+
+    private void filter(String method, String pattern, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api");
+        if (pattern != null) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sut.doFilter(request, response, (filterRequest, filterResponse) -> response.setStatus(status));
+    }
+}
@@ -0,0 +1,42 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.StandardReactiveWebEnvironment;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reactive application running on the in-memory H2 database of an EmbeddedBookstore, which has created the tables.
+ */
+public final class EmbeddedReactiveBookstore {
+
+    private EmbeddedReactiveBookstore() {
+    }
+
+    /**
+     * Start the reactive application on the database of the bookstore.
+     *
+     * @param bookstore
+     * @param properties additional properties in key=value form
+     * @return
+     */
+    public static EmbeddedBookstore start(EmbeddedBookstore bookstore, String... properties) {
+        String url = bookstore.getBean(Environment.class).getProperty("spring.datasource.url");
+        String database = url.substring("jdbc:h2:mem:".length(), url.indexOf(';'));
+        List<String> allProperties = new ArrayList<>(Arrays.asList(
+                "bookstore.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "bookstore.r2dbc.username=sa",
+                "bookstore.r2dbc.password=",
+                "server.port=0",
+                "logging.level.root=WARN",
+                "logging.level.org.hibernate.SQL=WARN"));
+        allProperties.addAll(Arrays.asList(properties));
+        return EmbeddedBookstore.start(new SpringApplicationBuilder(ReactiveBookstoreApplication.class)
+                .web(WebApplicationType.REACTIVE), new StandardReactiveWebEnvironment(), allProperties);
+    }
+}
@@ -0,0 +1,190 @@
+package com.sulzer.bookstore.reactive;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * The reactive application on the database of a running servlet application, which has created the tables.
+ * Both keep the same category statistics, so the servlet application reads what the reactive one wrote.
+ */
+public class ReactiveBookStoreControllerTest {
+
+    private static final int BOOKS = 20;
+    private static final int STOCK = 5;
+
+    private static EmbeddedBookstore bookstore;
+    private static EmbeddedBookstore reactiveBookstore;
+    private static RestTemplate restTemplate;
+    private static String url;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(BOOKS, STOCK);
+        reactiveBookstore = EmbeddedReactiveBookstore.start(bookstore);
+        restTemplate = new RestTemplate();
+        url = "http://localhost:" + reactiveBookstore.getBean(Environment.class).getProperty("local.server.port")
+                + "/api";
+    }
+
+    @AfterClass
+    public static void stop() {
+        reactiveBookstore.close();
+        bookstore.close();
+    }
+
+    @Test
+    public void testSellBook_Given_BookInStore_Then_SoldAndCountedInStatistics() {
+        //Arrange
+        BookDto book = restTemplate.getForObject(url + "/book/1", BookDto.class);
+        CategoryStatisticsDto before = getStatistics(book.getCategory());
+
+        //Act
+        restTemplate.put(url + "/sell-book/1", null);
+
+        //Assert
+        assertEquals(Integer.valueOf(STOCK - 1), restTemplate.getForObject(url + "/number-of-books/1", Integer.class));
+        CategoryStatisticsDto after = getStatistics(book.getCategory());
+        assertEquals(before.getUnitsSold() + 1, after.getUnitsSold());
+        assertEquals(before.getUnitsInStock() - 1, after.getUnitsInStock());
+        assertEquals(before.getRevenue() + book.getPrice(), after.getRevenue(), 0.001);
+        assertEquals(after, bookstore.getBean(CategoryStatisticsStore.class).getStatistics(book.getCategory()));
+    }
+
+    @Test
+    public void testSellBook_Given_NoCopyLeft_Then_ErrorAndNothingSold() {
+        //Arrange
+        for (int i = 0; i < STOCK; i++) {
+            restTemplate.put(url + "/sell-book/2", null);
+        }
+
+        //Act
+        try {
+            restTemplate.put(url + "/sell-book/2", null);
+            fail("A sixth copy is sold");
+        } catch (HttpServerErrorException e) {
+            //Assert
+            assertEquals(500, e.getRawStatusCode());
+        }
+        assertEquals(Integer.valueOf(0), restTemplate.getForObject(url + "/number-of-books/2", Integer.class));
+    }
+
+    @Test
+    public void testSellBooks_Given_MissingBook_Then_NothingSold() {
+        //Act
+        try {
+            restTemplate.put(url + "/sell-books", Arrays.asList(SellDto.builder().bookId(3).quantity(1).build(),
+                    SellDto.builder().bookId(BOOKS + 1).quantity(1).build()));
+            fail("An order with a missing book is sold");
+        } catch (HttpServerErrorException e) {
+            //Assert
+            assertEquals(500, e.getRawStatusCode());
+        }
+        assertEquals(Integer.valueOf(STOCK), restTemplate.getForObject(url + "/number-of-books/3", Integer.class));
+    }
+
+    @Test
+    public void testUpdateBook_Given_OtherCategory_Then_StatisticsMoveToIt() {
+        //Arrange
+        BookDto book = BookDto.builder().id(1_000L).title("reactive title").author("reactive author")
+                .category(Category.POETRY).price(10).totalCount(3).build();
+        restTemplate.postForObject(url + "/add-new-book", book, Void.class);
+        restTemplate.put(url + "/sell-book/1000", null);
+        CategoryStatisticsDto poetry = getStatistics(Category.POETRY);
+        CategoryStatisticsDto media = getStatistics(Category.MEDIA);
+
+        //Act
+        book.setCategory(Category.MEDIA);
+        book.setPrice(20);
+        restTemplate.put(url + "/books/1000", book);
+
+        //Assert
+        BookDto updated = restTemplate.getForObject(url + "/book/1000", BookDto.class);
+        assertEquals(Category.MEDIA, updated.getCategory());
+        assertEquals(3, updated.getTotalCount());
+        assertEquals(poetry.getBooks() - 1, getStatistics(Category.POETRY).getBooks());
+        assertEquals(poetry.getRevenue() - 10, getStatistics(Category.POETRY).getRevenue(), 0.001);
+        CategoryStatisticsDto mediaAfter = getStatistics(Category.MEDIA);
+        assertEquals(media.getBooks() + 1, mediaAfter.getBooks());
+        assertEquals(media.getUnitsInStock() + 3, mediaAfter.getUnitsInStock());
+        assertEquals(media.getUnitsSold() + 1, mediaAfter.getUnitsSold());
+        assertEquals(media.getRevenue() + 20, mediaAfter.getRevenue(), 0.001);
+    }
+
+    @Test
+    public void testStreamAllBooks_Then_OneLinePerBookInIdOrder() {
+        //Act
+        String[] lines = restTemplate.getForObject(url + "/book-stream", String.class).split("\n");
+        BookDto[] page = restTemplate.getForObject(url + "/book-page?size=" + BOOKS, BookDtoPage.class).books;
+
+        //Assert
+        assertEquals(restTemplate.getForObject(url + "/book-list", BookDto[].class).length, lines.length);
+        assertEquals(true, lines[0].startsWith("{\"id\":1,"));
+        assertEquals(BOOKS, page.length);
+        assertEquals(Long.valueOf(BOOKS), page[BOOKS - 1].getId());
+    }
+
+    @Test
+    public void testGetBooksById_Given_MissingId_Then_ReportedAsMissing() {
+        //Act
+        BookBatch batch = restTemplate.getForObject(url + "/books-by-id?ids=4,99999,4", BookBatch.class);
+
+        //Assert
+        assertEquals(1, batch.books.length);
+        assertEquals(Long.valueOf(4), batch.books[0].getId());
+        assertEquals(Arrays.asList(99999L), Arrays.asList(batch.missingIds));
+        assertNull(restTemplate.getForObject(url + "/book-page?after=99999", BookDtoPage.class).nextCursor);
+    }
+
+    @Test
+    public void testGetBookByCategoryKeyWord_Given_LikeWildcards_Then_MatchedLiterally() {
+        //Arrange
+        restTemplate.postForObject(url + "/add-new-book", BookDto.builder().id(1_001L).title("50% off_sale")
+                .author("reactive author").category(Category.DRAMA).price(10).totalCount(3).build(), Void.class);
+        restTemplate.put(url + "/sell-book/1001", null);
+
+        for (String keyword : Arrays.asList("%", "_", "0% o", "f_s")) {
+            //Act
+            BookDto[] books = restTemplate.getForObject(url + "/books?keyword={keyword}&category=DRAMA",
+                    BookDto[].class, keyword);
+            Integer sold = restTemplate.getForObject(url + "/number-of-books?keyword={keyword}&category=DRAMA",
+                    Integer.class, keyword);
+
+            //Assert
+            assertEquals(1, books.length);
+            assertEquals(Long.valueOf(1_001), books[0].getId());
+            assertEquals(Integer.valueOf(1), sold);
+        }
+    }
+
+    private static CategoryStatisticsDto getStatistics(Category category) {
+        return restTemplate.getForObject(url + "/statistics/" + category, CategoryStatisticsDto.class);
+    }
+
+    //Public fields, as Jackson reads them without a Lombok constructor
+    public static class BookDtoPage {
+        public BookDto[] books;
+        public Long nextCursor;
+    }
+
+    public static class BookBatch {
+        public BookDto[] books;
+        public Long[] missingIds;
+    }
+}
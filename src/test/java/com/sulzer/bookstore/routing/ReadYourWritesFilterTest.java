@@ -0,0 +1,52 @@
+package com.sulzer.bookstore.routing;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadYourWritesFilterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final DataSourceRouting routing = new DataSourceRouting();
+
+    private final ReadYourWritesFilter sut = new ReadYourWritesFilter(routing, "X-Client-Id", 1_000, nanos::get);
+
+    @Test
+    public void testFilter_Given_ClientWrote_Then_ItsReadsArePinnedWithinWindow() throws Exception {
+        filter("PUT", "writer");
+
+        assertTrue(filter("GET", "writer"));
+        assertFalse(filter("GET", "reader"));
+        assertFalse(routing.isPinnedToPrimary());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_001));
+        assertFalse(filter("GET", "writer"));
+    }
+
+    @Test
+    public void testFilter_Given_NoHeader_Then_ClientIsRemoteAddress() throws Exception {
+        filter("POST", null);
+
+        assertTrue(filter("GET", null));
+        assertFalse(filter("GET", "reader"));
+    }
+
+    //True if the request is pinned to the primary
+    private boolean filter(String method, String client) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/books");
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        AtomicBoolean pinned = new AtomicBoolean();
+        sut.doFilter(request, new MockHttpServletResponse(), (req, res) -> pinned.set(routing.isPinnedToPrimary()));
+        return pinned.get();
+    }
+}
@@ -0,0 +1,100 @@
+package com.sulzer.bookstore.routing;
+
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private final DataSourceRouting routing = new DataSourceRouting();
+    private final DataSource primary = dataSource();
+    private final DataSource replica1 = dataSource();
+    private final DataSource replica2 = dataSource();
+
+    @Test
+    public void testGetConnection_Given_NoReplicaRead_Then_Primary() throws SQLException {
+        ReplicaRoutingDataSource sut = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+
+        sut.getConnection();
+
+        verify(primary).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_Given_ReplicaRead_Then_ReplicasInTurn() throws SQLException {
+        ReplicaRoutingDataSource sut = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+
+        for (int i = 0; i < 4; i++) {
+            routing.onReplica(() -> getConnection(sut));
+        }
+
+        verify(replica1, times(2)).getConnection();
+        verify(replica2, times(2)).getConnection();
+        verify(primary, times(0)).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_Given_PinnedToPrimary_Then_Primary() throws SQLException {
+        ReplicaRoutingDataSource sut = routingDataSource(ReplicaSelection.ROUND_ROBIN);
+
+        routing.setPinnedToPrimary(true);
+        try {
+            routing.onReplica(() -> getConnection(sut));
+        } finally {
+            routing.setPinnedToPrimary(false);
+        }
+
+        verify(primary).getConnection();
+    }
+
+    @Test
+    public void testGetConnection_Given_LeastLoaded_Then_ReplicaWithFewestConnectionsInUse() throws SQLException {
+        ReplicaRoutingDataSource sut = routingDataSource(ReplicaSelection.LEAST_LOADED);
+        routing.onReplica(() -> getConnection(sut));
+        Connection second = routing.onReplica(() -> getConnection(sut));
+        routing.onReplica(() -> getConnection(sut));
+
+        //Closing twice is counted once
+        second.close();
+        second.close();
+        routing.onReplica(() -> getConnection(sut));
+        routing.onReplica(() -> getConnection(sut));
+
+        //The last connection would be taken from the first replica in turn
+        assertEquals(2, sut.getConnectionsInUse(0));
+        assertEquals(2, sut.getConnectionsInUse(1));
+        verify(replica1, times(2)).getConnection();
+        verify(replica2, times(3)).getConnection();
+    }
+
+    private ReplicaRoutingDataSource routingDataSource(ReplicaSelection selection) {
+        return new ReplicaRoutingDataSource(primary, Arrays.asList(replica1, replica2), selection, routing);
+    }
+
+    private static Connection getConnection(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource dataSource() {
+        DataSource dataSource = mock(DataSource.class);
+        try {
+            when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return dataSource;
+    }
+}
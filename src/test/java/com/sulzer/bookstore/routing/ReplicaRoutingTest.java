@@ -0,0 +1,107 @@
+package com.sulzer.bookstore.routing;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.client.RestTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads and writes of the running application with a primary and a replica in two embedded databases.
+ * The replica is not replicated, so a book inserted only in it shows which database a read went to.
+ */
+public class ReplicaRoutingTest {
+
+    private static final AtomicInteger REPLICAS = new AtomicInteger();
+
+    private static EmbeddedBookstore bookstore;
+    private static RestTemplate restTemplate;
+    private static String url;
+
+    @BeforeClass
+    public static void start() {
+        String replicaUrl = "jdbc:h2:mem:replica" + REPLICAS.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        bookstore = EmbeddedBookstore.start("bookstore.datasource.replica-urls=" + replicaUrl,
+                "bookstore.search.engine=database",
+                "bookstore.datasource.read-your-writes-window=60000",
+                "spring.datasource.hikari.maximum-pool-size=7",
+                "bookstore.datasource.replica-hikari.maximum-pool-size=3");
+        bookstore.seed(20, 5);
+        //Same tables as the primary, with one more book
+        JdbcTemplate primary = bookstore.getBean(JdbcTemplate.class);
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+        primary.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+        replica.update("insert into book (id, author, title, category, price, total_count, sold, version) " +
+                "values (1000, 'replica', 'replica only', ?, 10, 5, 0, 0)", Category.TECHNOLOGY.getValue());
+        restTemplate = new RestTemplate();
+        url = "http://localhost:" + bookstore.getBean(Environment.class).getProperty("local.server.port");
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testRouting_Given_Reader_Then_SearchesOnReplicaAndBooksByIdOnPrimary() {
+        //Act
+        Object[] books = get("/api/books?keyword=replica&category=TECHNOLOGY", "reader", Object[].class);
+        Map<?, ?> batch = get("/api/books-by-id?ids=1000", "reader", Map.class);
+
+        //Assert
+        assertEquals(1, books.length);
+        assertTrue(((List<?>) batch.get("books")).isEmpty());
+    }
+
+    @Test
+    public void testRouting_Given_ClientSold_Then_ItsSearchesOnPrimary() {
+        //Act
+        restTemplate.exchange(url + "/api/sell-book/3", HttpMethod.PUT, new HttpEntity<>(headers("writer")), Void.class);
+        Object[] books = get("/api/books?keyword=replica&category=TECHNOLOGY", "writer", Object[].class);
+        Object[] otherBooks = get("/api/books?keyword=replica&category=TECHNOLOGY", "other", Object[].class);
+
+        //Assert
+        assertEquals(0, books.length);
+        assertEquals(1, otherBooks.length);
+    }
+
+    @Test
+    public void testPools_Given_HikariSettings_Then_BoundToPrimaryAndReplicas() {
+        //Act
+        HikariDataSource primary = bookstore.getBean(HikariDataSource.class);
+        DataSource routing = ((LazyConnectionDataSourceProxy) bookstore.getBean(DataSource.class)).getTargetDataSource();
+        HikariDataSource replica = (HikariDataSource) ((ReplicaRoutingDataSource) routing).getReplica(0);
+
+        //Assert
+        assertEquals(7, primary.getMaximumPoolSize());
+        assertEquals(3, replica.getMaximumPoolSize());
+        assertEquals("replica-1", replica.getPoolName());
+    }
+
+    private <T> T get(String path, String client, Class<T> type) {
+        return restTemplate.exchange(url + path, HttpMethod.GET, new HttpEntity<>(headers(client)), type).getBody();
+    }
+
+    private static HttpHeaders headers(String client) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Client-Id", client);
+        return headers;
+    }
+}
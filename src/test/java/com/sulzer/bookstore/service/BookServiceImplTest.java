@@ -1,27 +1,62 @@
 package com.sulzer.bookstore.service;
 
 import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
 import com.sulzer.bookstore.domain.Book;
 import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.routing.DataSourceRouting;
+import com.sulzer.bookstore.service.dto.BookBatchDto;
 import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.BookPageDto;
+import com.sulzer.bookstore.service.dto.BookSearchDto;
+import com.sulzer.bookstore.service.dto.CategoryFacetDto;
 import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.autocomplete.AutocompleteIndex;
+import com.sulzer.bookstore.service.cache.BookCache;
+import com.sulzer.bookstore.service.cache.SearchCache;
 import com.sulzer.bookstore.service.exceptions.BadRequestException;
 import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
 import com.sulzer.bookstore.service.exceptions.DuplicateResourceException;
+import com.sulzer.bookstore.service.inventory.InventoryEngine;
+import com.sulzer.bookstore.service.journal.SalesJournal;
+import com.sulzer.bookstore.service.leaderboard.BestsellerLeaderboard;
+import com.sulzer.bookstore.service.history.SalesHistory;
+import com.sulzer.bookstore.service.mapper.BookMapper;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.search.BookMatch;
+import com.sulzer.bookstore.service.search.BookSearchEngine;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -40,7 +75,41 @@ public class BookServiceImplTest {
 
 
     @Mock
-    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+
+    @Mock
+    private CategoryStatisticsStore categoryStatisticsStore;
+
+    @Mock
+    private InventoryEngine inventoryEngine;
+
+    @Mock
+    private SalesJournal salesJournal;
+
+    @Mock
+    private AutocompleteIndex autocompleteIndex;
+
+    @Mock
+    private BestsellerLeaderboard bestsellerLeaderboard;
+
+    @Mock
+    private SalesHistory salesHistory;
+
+    @Spy
+    private BookCache bookCache = new BookCache(100, 60_000);
+
+    @Spy
+    private SearchCache searchCache = new SearchCache(1_000, 60_000, new SimpleMeterRegistry());
+
+    @Spy
+    private DataSourceRouting dataSourceRouting = new DataSourceRouting();
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), 3, 0, 0);
 
     @InjectMocks
     private BookStoreServiceImpl sut;
@@ -52,13 +121,17 @@ public class BookServiceImplTest {
         Book book = mock(Book.class);
         when(bookDto.getId()).thenReturn(id);
         when(bookRepository.findById(id)).thenReturn(Optional.empty());
-        when(modelMapper.map(bookDto, Book.class)).thenReturn(book);
+        when(bookMapper.toBook(bookDto)).thenReturn(book);
 
         //Act
         sut.addNewBook(bookDto);
 
         //Verify
         verify(bookRepository).save(book);
+        verify(categoryStatisticsStore).recordAdded(book);
+        verify(bookSearchEngine).index(book);
+        verify(salesJournal).recordSaved(book);
+        verify(bestsellerLeaderboard).index(book);
     }
 
     @Test
@@ -79,28 +152,95 @@ public class BookServiceImplTest {
 
     @Test
     public void testAddBook() {
+        //Act
+        sut.addBook(id, 1);
+
+        //Verify
+        verify(inventoryEngine).addStock(id, 1);
+        verify(salesJournal).recordStockAdded(id, 1);
+        verify(bookCache).evictAll(Collections.singleton(id));
+    }
+
+    @Test
+    public void testSellBook() {
         //Arrange
-        Book book = mock(Book.class);
-        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(book.getTotalCount()).thenReturn(totalCount);
+        when(autocompleteIndex.categoryOf(id)).thenReturn(category);
 
         //Act
-        sut.addBook(id, 1);
+        sut.sellBook(id);
 
         //Verify
-        verify(bookRepository).save(book);
+        verify(inventoryEngine).sell(id, 1);
+        verify(salesJournal).recordSale(id, 1);
+        verify(autocompleteIndex).recordSale(id, 1);
+        verify(bestsellerLeaderboard).recordSale(id, 1);
+        verify(salesHistory).recordSale(id, 1);
+        verify(searchCache).evictAll(Collections.singletonList(category));
+        verify(bookRepository, never()).findById(id);
     }
 
     @Test
-    public void testAddBook_Given_NoBookIsFoundById_Then_ThrowsBookNotFoundException() {
-        thrown.expect(BookNotFoundException.class);
-        thrown.expectMessage("Book with id:" + id + " is not registered.");
+    public void testSellBook_Given_BookIsNotIndexed_Then_SearchesOfEveryCategoryAreEvicted() {
+        //Act
+        sut.sellBook(id);
+
+        //Verify
+        verify(searchCache).evictAll();
+    }
+
+    @Test
+    public void testSellBooks() {
         //Arrange
-        when(bookRepository.findById(id)).thenReturn(Optional.empty());
+        long bookId1 = 12L;
+        long bookId2 = 14L;
+        List<SellDto> sellDtos = new ArrayList<>();
+        sellDtos.add(new SellDto(bookId2, 2));
+        sellDtos.add(new SellDto(bookId1, 1));
+        sellDtos.add(new SellDto(bookId2, 3));
+        Map<Long, Integer> quantityById = new TreeMap<>();
+        quantityById.put(bookId1, 1);
+        quantityById.put(bookId2, 5);
 
         //Act
-        sut.addBook(id, 1);
+        sut.sellBooks(sellDtos);
 
+        //Verify
+        verify(inventoryEngine).sellAll(quantityById);
+        verify(salesJournal).recordSales(quantityById);
+        verify(bookCache).evictAll(quantityById.keySet());
+        verify(autocompleteIndex).recordSale(bookId1, 1);
+        verify(autocompleteIndex).recordSale(bookId2, 5);
+        verify(bestsellerLeaderboard).recordSale(bookId1, 1);
+        verify(bestsellerLeaderboard).recordSale(bookId2, 5);
+        verify(salesHistory).recordSale(bookId1, 1);
+        verify(salesHistory).recordSale(bookId2, 5);
+    }
+
+    @Test
+    public void testSellBooks_Given_EmptyList_Then_NothingIsSold() {
+        //Act
+        sut.sellBooks(Collections.emptyList());
+
+        //Verify
+        verifyZeroInteractions(inventoryEngine, salesJournal);
+    }
+
+    @Test
+    public void testGetBookById_Given_InventoryHasCurrentCount_Then_CountIsReturned() {
+        //Arrange
+        Book book = mock(Book.class);
+        BookDto bookDto = BookDto.builder().id(id).title("title").totalCount(totalCount).build();
+        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
+        when(bookMapper.toDto(book)).thenReturn(bookDto);
+        when(inventoryEngine.getTotalCount(id, totalCount)).thenReturn(totalCount - 1);
+
+        //Act
+        BookDto actualBookDto = sut.getBookById(id);
+
+        //Assert
+        assertEquals(totalCount - 1, actualBookDto.getTotalCount());
+        assertEquals("title", actualBookDto.getTitle());
+        assertEquals(totalCount, bookDto.getTotalCount());
     }
 
     @Test
@@ -109,7 +249,8 @@ public class BookServiceImplTest {
         Book book = mock(Book.class);
         BookDto bookDto = mock(BookDto.class);
         when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(modelMapper.map(book, BookDto.class)).thenReturn(bookDto);
+        when(bookMapper.toDto(book)).thenReturn(bookDto);
+        returnStoredTotalCount();
 
         //Act
         BookDto actualBookDto = sut.getBookById(id);
@@ -118,6 +259,98 @@ public class BookServiceImplTest {
         assertEquals(bookDto, actualBookDto);
     }
 
+    @Test
+    public void testGetBookById_Given_BookIsCached_Then_RepositoryIsNotCalledAgain() {
+        //Arrange
+        Book book = mock(Book.class);
+        BookDto bookDto = mock(BookDto.class);
+        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
+        when(bookMapper.toDto(book)).thenReturn(bookDto);
+        returnStoredTotalCount();
+
+        //Act
+        sut.getBookById(id);
+        BookDto actualBookDto = sut.getBookById(id);
+
+        //Assert
+        assertEquals(bookDto, actualBookDto);
+        verify(bookRepository, times(1)).findById(id);
+        assertEquals(1, bookCache.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testGetBooksById_Then_UncachedBooksReadAtOnceAndMissingIdsReported() {
+        //Arrange
+        Book book1 = Book.builder().id(1L).build();
+        Book book2 = Book.builder().id(2L).build();
+        BookDto bookDto1 = BookDto.builder().id(1L).totalCount(totalCount).build();
+        BookDto bookDto2 = BookDto.builder().id(2L).totalCount(totalCount).build();
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book1));
+        when(bookRepository.findAllById(Arrays.asList(2L, 3L))).thenReturn(Collections.singletonList(book2));
+        when(bookMapper.toDto(book1)).thenReturn(bookDto1);
+        when(bookMapper.toDto(book2)).thenReturn(bookDto2);
+        when(inventoryEngine.getTotalCount(anyLong(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        sut.getBookById(1L);
+
+        //Act
+        BookBatchDto actualBatch = sut.getBooksById(Arrays.asList(2L, 1L, 3L, 2L));
+
+        //Assert
+        assertEquals(Arrays.asList(bookDto2, bookDto1), actualBatch.getBooks());
+        assertEquals(Collections.singletonList(3L), actualBatch.getMissingIds());
+        verify(bookRepository).findAllById(Arrays.asList(2L, 3L));
+    }
+
+    @Test
+    public void testGetBooksById_Given_TooManyIds_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("Number of ids should be between 1 and 100.");
+
+        //Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i <= 100; i++) {
+            ids.add(i);
+        }
+
+        //Act
+        sut.getBooksById(ids);
+    }
+
+    @Test
+    public void testSellBook_Then_CachedBookIsEvicted() {
+        //Arrange
+        Book book = mock(Book.class);
+        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
+        when(bookMapper.toDto(book)).thenReturn(BookDto.builder().id(id).totalCount(totalCount).build(),
+                BookDto.builder().id(id).totalCount(totalCount - 1).build());
+        returnStoredTotalCount();
+
+        //Act
+        sut.getNumberOfBooksById(id);
+        sut.sellBook(id);
+        int actualNumberOfBooks = sut.getNumberOfBooksById(id);
+
+        //Assert
+        assertEquals(totalCount - 1, actualNumberOfBooks);
+        verify(bookCache).evictAll(Collections.singleton(id));
+    }
+
+    @Test
+    public void testSellBook_Then_VersionsAreChanged() {
+        //Arrange
+        String bookVersion = sut.getBookVersion(id);
+        String otherBookVersion = sut.getBookVersion(id + 1);
+        String catalogVersion = sut.getCatalogVersion();
+
+        //Act
+        sut.sellBook(id);
+
+        //Assert
+        assertNotEquals(bookVersion, sut.getBookVersion(id));
+        assertEquals(otherBookVersion, sut.getBookVersion(id + 1));
+        assertNotEquals(catalogVersion, sut.getCatalogVersion());
+    }
+
     @Test
     public void testGetBookById_Given_NoBookIsFoundForId_Then_ThrowsBookNotFoundException() {
         thrown.expect(BookNotFoundException.class);
@@ -140,7 +373,7 @@ public class BookServiceImplTest {
         List<BookDto> bookDtoList = new ArrayList<>();
         bookDtoList.add(bookDto);
         when(bookRepository.findAll()).thenReturn(bookList);
-        when(modelMapper.map(book, BookDto.class)).thenReturn(bookDto);
+        when(bookMapper.toDtoList(bookList)).thenReturn(bookDtoList);
 
         //Act
         List<BookDto> actualBookDto = sut.getAllBooks();
@@ -149,12 +382,93 @@ public class BookServiceImplTest {
         assertEquals(bookDtoList, actualBookDto);
     }
 
+    @Test
+    public void testGetBooksAfter() {
+        //Arrange
+        Book book1 = Book.builder().id(5L).build();
+        Book book2 = Book.builder().id(9L).build();
+        BookDto bookDto = mock(BookDto.class);
+        when(bookRepository.findByIdGreaterThanOrderById(id, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(book1, book2));
+        when(bookMapper.toDtoList(Arrays.asList(book1, book2))).thenReturn(Arrays.asList(bookDto, bookDto));
+
+        //Act
+        BookPageDto page = sut.getBooksAfter(id, 2);
+
+        //Assert
+        assertEquals(Arrays.asList(bookDto, bookDto), page.getBooks());
+        assertEquals(Long.valueOf(9L), page.getNextCursor());
+    }
+
+    @Test
+    public void testGetBooksAfter_Given_LastPage_Then_NoNextCursor() {
+        //Arrange
+        List<Book> books = Collections.singletonList(Book.builder().id(5L).build());
+        List<BookDto> bookDtos = Collections.singletonList(mock(BookDto.class));
+        when(bookRepository.findByIdGreaterThanOrderById(Long.MIN_VALUE, PageRequest.of(0, 2))).thenReturn(books);
+        when(bookMapper.toDtoList(books)).thenReturn(bookDtos);
+
+        //Act
+        BookPageDto page = sut.getBooksAfter(null, 2);
+
+        //Assert
+        assertEquals(bookDtos, page.getBooks());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void testGetBooksAfter_Given_UnflushedSales_Then_CurrentTotalCountOfInventory() {
+        //Arrange
+        List<Book> books = Collections.singletonList(Book.builder().id(id).build());
+        BookDto bookDto = BookDto.builder().id(id).title(keyword).totalCount(totalCount).build();
+        when(bookRepository.findByIdGreaterThanOrderById(Long.MIN_VALUE, PageRequest.of(0, 2))).thenReturn(books);
+        when(bookMapper.toDtoList(books)).thenReturn(Collections.singletonList(bookDto));
+        when(inventoryEngine.getTotalCount(id, totalCount)).thenReturn(totalCount - 1);
+
+        //Act
+        BookPageDto page = sut.getBooksAfter(null, 2);
+
+        //Assert
+        assertEquals(totalCount - 1, page.getBooks().get(0).getTotalCount());
+        assertEquals(keyword, page.getBooks().get(0).getTitle());
+    }
+
+    @Test
+    public void testGetBooksAfter_Given_InvalidSize_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("Page size should be between 1 and 1000.");
+
+        //Act
+        sut.getBooksAfter(null, 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamAllBooks() {
+        //Arrange
+        Book book = mock(Book.class);
+        BookDto bookDto = mock(BookDto.class);
+        List<BookDto> streamed = new ArrayList<>();
+        when(bookMapper.toDto(book)).thenReturn(bookDto);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Book>>getArgument(1).accept(book);
+            return null;
+        }).when(bookRepository).forEachBook(anyInt(), any(Consumer.class));
+
+        //Act
+        sut.streamAllBooks(streamed::add);
+
+        //Assert
+        assertEquals(Collections.singletonList(bookDto), streamed);
+    }
+
     @Test
     public void testGetNumberOfBooksById() {
         //Arrange
         Book book = mock(Book.class);
         when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(book.getTotalCount()).thenReturn(totalCount);
+        when(bookMapper.toDto(book)).thenReturn(BookDto.builder().id(id).totalCount(totalCount).build());
+        returnStoredTotalCount();
 
         //Act
         int actualNumberOfBooks = sut.getNumberOfBooksById(id);
@@ -181,7 +495,7 @@ public class BookServiceImplTest {
         //Arrange
         BookDto bookDto = mock(BookDto.class);
         Book book = mock(Book.class);
-        when(modelMapper.map(bookDto, Book.class)).thenReturn(book);
+        when(bookMapper.toBook(bookDto)).thenReturn(book);
         when(bookDto.getId()).thenReturn(id);
         Book bookFromRepo = mock(Book.class);
         when(bookRepository.getOne(id)).thenReturn(bookFromRepo);
@@ -192,6 +506,8 @@ public class BookServiceImplTest {
 
         //Assert
         verify(bookRepository).save(book);
+        verify(categoryStatisticsStore).recordUpdated(any(Book.class), eq(book));
+        verify(bookSearchEngine).index(book);
     }
 
     @Test
@@ -200,162 +516,236 @@ public class BookServiceImplTest {
         thrown.expectMessage("Id cannot be updated.");
         //Arrange
         BookDto bookDto = mock(BookDto.class);
-        Book book = mock(Book.class);
-        when(modelMapper.map(bookDto, Book.class)).thenReturn(book);
         when(bookDto.getId()).thenReturn(43L);
         //Act
         sut.updateBook(id, bookDto);
     }
 
     @Test
-    public void testSellBook() {
+    public void testGetBookByCategoryKeyword() {
         //Arrange
         Book book = mock(Book.class);
-        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(book.getTotalCount()).thenReturn(totalCount);
-        when(book.getSold()).thenReturn(sold);
+        List<Book> books = new ArrayList<>();
+        books.add(book);
+
+        BookDto bookDto = mock(BookDto.class);
+        List<BookDto> bookDtos = new ArrayList<>();
+        bookDtos.add(bookDto);
+        when(bookSearchEngine.search(keyword.toLowerCase(), category)).thenReturn(books);
+        when(bookMapper.toDtoList(books)).thenReturn(bookDtos);
 
         //Act
-        sut.sellBook(id);
+        List<BookDto> actualBookDtos = sut.getBookByCategoryKeyWord(keyword, category);
+
+        //Assert
+        assertEquals(bookDtos, actualBookDtos);
 
-        //Verify
-        verify(bookRepository).save(book);
     }
 
     @Test
-    public void testSellBook_Given_NoBookIsPresent_Then_ThrowsBookNotFoundException() {
-        thrown.expect(BookNotFoundException.class);
-        thrown.expectMessage("Book with id: " + id + " is not found.");
+    public void testGetBookByCategoryKeyword_Given_SameSearch_Then_SearchedOnceUntilCategoryIsEvicted() {
+        //Arrange
+        when(bookSearchEngine.search(keyword.toLowerCase(), category)).thenReturn(new ArrayList<>());
+        when(bookSearchEngine.search(keyword.toLowerCase(), Category.DRAMA)).thenReturn(new ArrayList<>());
 
+        //Act
+        sut.getBookByCategoryKeyWord(keyword, category);
+        sut.getBookByCategoryKeyWord(keyword.toUpperCase(), category);
+        sut.getBookByCategoryKeyWord(keyword, Category.DRAMA);
+        searchCache.evictAll(Collections.singletonList(Category.DRAMA));
+        sut.getBookByCategoryKeyWord(keyword, category);
+        sut.getBookByCategoryKeyWord(keyword, Category.DRAMA);
+
+        //Verify
+        verify(bookSearchEngine, times(1)).search(keyword.toLowerCase(), category);
+        verify(bookSearchEngine, times(2)).search(keyword.toLowerCase(), Category.DRAMA);
+    }
+
+    @Test
+    public void testGetBookByCategoryKeyword_Given_ClientReadsItsWrites_Then_CacheIsSkipped() {
         //Arrange
-        when(bookRepository.findById(id)).thenReturn(Optional.empty());
+        when(bookSearchEngine.search(keyword.toLowerCase(), category)).thenReturn(new ArrayList<>());
+        sut.getBookByCategoryKeyWord(keyword, category);
 
         //Act
-        sut.sellBook(id);
+        dataSourceRouting.setPinnedToPrimary(true);
+        try {
+            sut.getBookByCategoryKeyWord(keyword, category);
+        } finally {
+            dataSourceRouting.setPinnedToPrimary(false);
+        }
 
+        //Verify
+        verify(bookSearchEngine, times(2)).search(keyword.toLowerCase(), category);
+        verify(dataSourceRouting, times(1)).onReplica(any());
     }
 
     @Test
-    public void testSellBook_Given_NotSufficientBook_Then_ThrowsBadRequestException() {
-        thrown.expect(BadRequestException.class);
-        thrown.expectMessage("TotalCount cannot be negative. Not enough book in store to sell.");
+    public void testGetNumberOfBooksSoldByCategoryAndKeyword() {
+        //Arrange
+        Long count = Long.valueOf(totalCount);
+        when(bookRepository.countNumberOfBooksSold(keyword.toLowerCase(), category.getValue())).thenReturn(count);
+
+        //Act
+        int actualCount = sut.getNumberOfBooksSoldByCategoryAndKeyword(keyword, category);
+
+        assertEquals(totalCount, actualCount);
+
+    }
 
+    @Test
+    public void testSearchBooks_Then_PageOfCategoryAndCountsOfEveryCategory() {
         //Arrange
-        Book book = mock(Book.class);
-        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(book.getTotalCount()).thenReturn(0);
+        when(bookSearchEngine.match(keyword.toLowerCase())).thenReturn(Arrays.asList(
+                new BookMatch(1L, Category.DRAMA, 2), new BookMatch(2L, Category.POETRY, 5),
+                new BookMatch(3L, Category.DRAMA, 0), new BookMatch(4L, Category.DRAMA, 1),
+                new BookMatch(5L, Category.DRAMA, 3)));
+        List<Book> books = Arrays.asList(Book.builder().id(4L).build(), Book.builder().id(3L).build());
+        when(bookRepository.findAllById(Arrays.asList(3L, 4L))).thenReturn(books);
+        List<BookDto> bookDtos = Arrays.asList(BookDto.builder().id(3L).build(), BookDto.builder().id(4L).build());
+        when(bookMapper.toDtoList(books)).thenReturn(bookDtos);
 
         //Act
-        sut.sellBook(id);
+        BookSearchDto actual = sut.searchBooks(keyword, Category.DRAMA, 1L, 2);
 
+        //Assert
+        //Books of the page are ordered by id
+        assertEquals(Arrays.asList(3L, 4L), books.stream().map(Book::getId).collect(Collectors.toList()));
+        assertEquals(bookDtos, actual.getBooks());
+        assertEquals(Long.valueOf(4L), actual.getNextCursor());
+        assertEquals(Category.values().length, actual.getCategories().size());
+        CategoryFacetDto drama = actual.getCategories().get(Category.DRAMA.getValue());
+        assertEquals(Category.DRAMA, drama.getCategory());
+        assertEquals(4, drama.getBooks());
+        assertEquals(6, drama.getUnitsSold());
+        assertEquals(1, actual.getCategories().get(Category.POETRY.getValue()).getBooks());
+        assertEquals(0, actual.getCategories().get(Category.ACTION.getValue()).getBooks());
     }
 
     @Test
-    public void testSellBooks() {
+    public void testSearchBooks_Given_UnflushedSales_Then_CurrentTotalCountOfInventory() {
         //Arrange
-        long bookId1 = 12L;
-        long bookId2 = 14L;
-        int totalCount1 = 12;
-        int totalCount2 = 11;
-        int quantity1 = 1;
-        int quantity2 = 2;
-        int sold1 = 2;
-        int sold2 = 3;
-
-        Book book1 = mock(Book.class);
-        Book book2 = mock(Book.class);
-        SellDto sellDto1 = mock(SellDto.class);
-        SellDto sellDto2 = mock(SellDto.class);
-        List<SellDto> sellDtos = new ArrayList<>();
-        sellDtos.add(sellDto1);
-        sellDtos.add(sellDto2);
+        when(bookSearchEngine.match(keyword.toLowerCase())).thenReturn(
+                Collections.singletonList(new BookMatch(id, Category.DRAMA, 2)));
+        List<Book> books = Collections.singletonList(Book.builder().id(id).build());
+        when(bookRepository.findAllById(Collections.singletonList(id))).thenReturn(books);
+        BookDto bookDto = BookDto.builder().id(id).title(keyword).totalCount(totalCount).build();
+        when(bookMapper.toDtoList(books)).thenReturn(Collections.singletonList(bookDto));
+        when(inventoryEngine.getTotalCount(id, totalCount)).thenReturn(totalCount - 1);
 
-        when(sellDto1.getBookId()).thenReturn(bookId1);
-        when(sellDto2.getBookId()).thenReturn(bookId2);
-        when(bookRepository.findById(bookId1)).thenReturn(Optional.ofNullable(book1));
-        when(bookRepository.findById(bookId2)).thenReturn(Optional.ofNullable(book2));
-        when(book1.getTotalCount()).thenReturn(totalCount1);
-        when(book2.getTotalCount()).thenReturn(totalCount2);
-        when(sellDto1.getQuantity()).thenReturn(quantity1);
-        when(sellDto2.getQuantity()).thenReturn(quantity2);
-        when(book1.getSold()).thenReturn(sold1);
-        when(book2.getSold()).thenReturn(sold2);
+        //Act
+        BookSearchDto actual = sut.searchBooks(keyword, null, null, 2);
+
+        //Assert
+        assertEquals(totalCount - 1, actual.getBooks().get(0).getTotalCount());
+        assertEquals(keyword, actual.getBooks().get(0).getTitle());
+    }
+
+    @Test
+    public void testSuggestBooks_Given_SizeOutOfRange_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("Number of suggestions should be between 1 and 100.");
 
         //Act
-        sut.sellBooks(sellDtos);
+        sut.suggestBooks("ja", null, 101);
+    }
 
-        //Verify
-        verify(bookRepository, times(2)).save(any(Book.class));
+    @Test
+    public void testGetBestsellers_Given_SizeOutOfRange_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("Number of bestsellers should be between 1 and 100.");
+
+        //Act
+        sut.getBestsellers(null, 0);
     }
 
     @Test
-    public void testSellBooks_Given_BookIsNotPresent_Then_ThrowsBookNotFoundException() {
-        thrown.expect(BookNotFoundException.class);
-        thrown.expectMessage("Book with id: " + id + " is not found.");
+    public void testGetSalesHistory_Given_FromNotBeforeTo_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("From should be before to.");
 
-        //Arrange
-        SellDto sellDto = mock(SellDto.class);
-        List<SellDto> sellDtos = new ArrayList<>();
-        sellDtos.add(sellDto);
-        when(sellDto.getBookId()).thenReturn(id);
-        when(bookRepository.findById(id)).thenReturn(Optional.empty());
+        //Act
+        Instant time = Instant.parse("2019-06-01T10:00:00Z");
+        sut.getSalesHistory(SalesResolution.HOUR, time, time, null, null);
+    }
+
+    @Test
+    public void testGetSalesHistory_Given_TooManyBuckets_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("Number of buckets should be at most 10000.");
 
         //Act
-        sut.sellBooks(sellDtos);
+        Instant from = Instant.parse("2019-06-01T10:00:00Z");
+        sut.getSalesHistory(SalesResolution.MINUTE, from, from.plus(10_001, ChronoUnit.MINUTES), null, null);
     }
 
     @Test
-    public void testSellBooks_Given_NotSufficientBook_Then_ThrowsBadRequestException() {
+    public void testGetSalesHistory_Given_BookAndCategory_Then_ThrowsBadRequestException() {
         thrown.expect(BadRequestException.class);
-        thrown.expectMessage("TotalCount cannot be negative. Not enough book in store to sell.");
+        thrown.expectMessage("Either a book or a category can be given, not both.");
+
+        //Act
+        Instant from = Instant.parse("2019-06-01T10:00:00Z");
+        sut.getSalesHistory(SalesResolution.DAY, from, from.plus(1, ChronoUnit.DAYS), category, id);
+    }
 
+    @Test
+    public void testUpdateBook_Given_ConcurrentSell_Then_UpdateIsRetriedWithNewSold() {
         //Arrange
-        Book book = mock(Book.class);
-        SellDto sellDto = mock(SellDto.class);
-        List<SellDto> sellDtos = new ArrayList<>();
-        sellDtos.add(sellDto);
-        when(sellDto.getBookId()).thenReturn(id);
-        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
-        when(book.getTotalCount()).thenReturn(totalCount);
-        when(sellDto.getQuantity()).thenReturn(4);
+        BookDto bookDto = BookDto.builder().id(id).title("title").totalCount(totalCount).build();
+        Book stale = Book.builder().id(id).sold(sold).version(1).build();
+        Book current = Book.builder().id(id).sold(sold + 1).version(2).build();
+        when(bookMapper.toBook(bookDto)).thenAnswer(invocation -> Book.builder().id(id).build());
+        when(bookRepository.getOne(id)).thenReturn(stale, current);
+        when(bookRepository.save(any(Book.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Book.class, id))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
         //Act
-        sut.sellBooks(sellDtos);
+        sut.updateBook(id, bookDto);
+
+        //Assert
+        ArgumentCaptor<Book> saved = ArgumentCaptor.forClass(Book.class);
+        verify(bookRepository, times(2)).save(saved.capture());
+        assertEquals(sold + 1, saved.getValue().getSold());
+        assertEquals(2, saved.getValue().getVersion());
+        verify(bookSearchEngine, times(1)).index(saved.getValue());
     }
 
     @Test
-    public void testGetBookByCategoryKeyword() {
+    public void testUpdateBook_Then_InventoryIsFlushedBeforeReadAndSetAfterCommit() {
         //Arrange
-        Book book = mock(Book.class);
-        List<Book> books = new ArrayList<>();
-        books.add(book);
-
         BookDto bookDto = mock(BookDto.class);
-        List<BookDto> bookDtos = new ArrayList<>();
-        bookDtos.add(bookDto);
-        when(bookRepository.findAllBookByCategoryAndKeyword(keyword.toLowerCase(), category.getValue())).thenReturn(books);
-        when(modelMapper.map(book, BookDto.class)).thenReturn(bookDto);
+        Book book = mock(Book.class);
+        when(bookMapper.toBook(bookDto)).thenReturn(book);
+        when(bookDto.getId()).thenReturn(id);
+        when(bookRepository.getOne(id)).thenReturn(mock(Book.class));
 
         //Act
-        List<BookDto> actualBookDtos = sut.getBookByCategoryKeyWord(keyword, category);
-
-        //Assert
-        assertEquals(bookDtos, actualBookDtos);
+        sut.updateBook(id, bookDto);
 
+        //Verify
+        InOrder inOrder = inOrder(inventoryEngine, bookRepository);
+        inOrder.verify(inventoryEngine).beforeUpdate(id);
+        inOrder.verify(bookRepository).getOne(id);
+        inOrder.verify(inventoryEngine).saved(book);
     }
 
     @Test
-    public void testGetNumberOfBooksSoldByCategoryAndKeyword() {
+    public void testGetCategoryStatistics() {
         //Arrange
-        Long count = Long.valueOf(totalCount);
-        when(bookRepository.countNumberOfBooksSold(keyword.toLowerCase(), category.getValue())).thenReturn(count);
+        CategoryStatisticsDto statistics = CategoryStatisticsDto.builder().category(category).unitsSold(sold).build();
+        when(categoryStatisticsStore.getStatistics(category)).thenReturn(statistics);
 
         //Act
-        int actualCount = sut.getNumberOfBooksSoldByCategoryAndKeyword(keyword, category);
-
-        assertEquals(totalCount, actualCount);
+        CategoryStatisticsDto result = sut.getCategoryStatistics(category);
 
+        //Assert
+        assertEquals(statistics, result);
     }
 
-
+    //The inventory returns the count read from the database, like DatabaseInventory
+    private void returnStoredTotalCount() {
+        when(inventoryEngine.getTotalCount(eq(id), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
 }
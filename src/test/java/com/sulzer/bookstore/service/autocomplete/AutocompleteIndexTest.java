@@ -0,0 +1,117 @@
+package com.sulzer.bookstore.service.autocomplete;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.dto.BookSuggestionDto;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AutocompleteIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private AutocompleteIndex sut;
+
+    @Before
+    public void setup() {
+        List<Book> books = new ArrayList<>();
+        books.add(createBook(1L, "The Java Handbook", "James Gosling", Category.TECHNOLOGY, 3));
+        books.add(createBook(2L, "Java Puzzlers", "Joshua Bloch", Category.TECHNOLOGY, 8));
+        books.add(createBook(3L, "Jane Eyre", "Charlotte Bronte", Category.LITERATURE, 5));
+        books.add(createBook(4L, "Hamlet", "William Shakespeare", Category.DRAMA, 1));
+        when(bookRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(books));
+        sut = new AutocompleteIndex(bookRepository);
+        sut.rebuild();
+    }
+
+    @Test
+    public void testSuggest_MatchesStartOfTitleAndAuthorIgnoringCase() {
+        assertEquals(Arrays.asList(2L, 3L, 1L), ids(sut.suggest("JA", null, 10)));
+        assertEquals(Arrays.asList(2L, 1L), ids(sut.suggest("Ja", Category.TECHNOLOGY, 10)));
+        assertEquals(Collections.singletonList(4L), ids(sut.suggest("william", null, 10)));
+        assertTrue(sut.suggest("handbook", null, 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggest_Given_TurkishDefaultLocale_Then_MatchesIgnoringCase() {
+        //Arrange
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            sut.index(createBook(5L, "Ivanhoe", "Walter Scott", Category.LITERATURE, 2));
+
+            //Act
+            List<BookSuggestionDto> suggestions = sut.suggest("iv", null, 10);
+
+            //Assert
+            assertEquals(Collections.singletonList(5L), ids(suggestions));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testSuggest_Given_Size_Then_BestSellingOfEveryCategory() {
+        List<BookSuggestionDto> suggestions = sut.suggest("j", null, 2);
+
+        assertEquals(Arrays.asList(2L, 3L), ids(suggestions));
+        assertEquals("Java Puzzlers", suggestions.get(0).getTitle());
+        assertEquals(Category.LITERATURE, suggestions.get(1).getCategory());
+        assertEquals(5, suggestions.get(1).getSold());
+    }
+
+    @Test
+    public void testRecordSale_Then_RankedBySales() {
+        sut.recordSale(1L, 10);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(sut.suggest("j", null, 10)));
+        assertEquals(13, sut.suggest("james", null, 10).get(0).getSold());
+    }
+
+    @Test
+    public void testIndex_Given_UpdatedBook_Then_OldTitleIsRemovedAndSalesKept() {
+        sut.recordSale(2L, 1);
+
+        sut.index(createBook(2L, "Effective Java", "Joshua Bloch", Category.TECHNOLOGY, 8));
+
+        assertEquals(Arrays.asList(3L, 1L), ids(sut.suggest("ja", null, 10)));
+        assertEquals(9, sut.suggest("effective", null, 10).get(0).getSold());
+        assertEquals(4, sut.size());
+    }
+
+    @Test
+    public void testIndex_Given_OtherCategory_Then_Moved() {
+        sut.index(createBook(4L, "Hamlet", "William Shakespeare", Category.LITERATURE, 1));
+
+        assertTrue(sut.suggest("hamlet", Category.DRAMA, 10).isEmpty());
+        assertEquals(Collections.singletonList(4L), ids(sut.suggest("hamlet", Category.LITERATURE, 10)));
+    }
+
+    private List<Long> ids(List<BookSuggestionDto> suggestions) {
+        return suggestions.stream().map(BookSuggestionDto::getId).collect(Collectors.toList());
+    }
+
+    private Book createBook(Long id, String title, String author, Category category, int sold) {
+        return Book.builder().id(id).title(title).author(author).category(category).totalCount(1).sold(sold).build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.sulzer.bookstore.service.autocomplete;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.autocomplete.PrefixTree.Entry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixTreeTest {
+
+    private final PrefixTree sut = new PrefixTree();
+
+    @Test
+    public void testTop_Then_BestSellingOfPrefixOnly() {
+        //Arrange
+        sut.add("java", entry(1L, 5));
+        sut.add("javascript", entry(2L, 9));
+        sut.add("jam", entry(3L, 7));
+        sut.add("kotlin", entry(4L, 20));
+
+        //Act and Assert
+        assertEquals(Arrays.asList(2L, 3L, 1L), ids(sut.top("ja", 10)));
+        assertEquals(Arrays.asList(2L, 1L), ids(sut.top("java", 10)));
+        assertEquals(Collections.singletonList(2L), ids(sut.top("javas", 10)));
+        assertEquals(Arrays.asList(4L, 2L), ids(sut.top("", 2)));
+        assertTrue(sut.top("javax", 10).isEmpty());
+        assertTrue(sut.top("c", 10).isEmpty());
+    }
+
+    @Test
+    public void testTop_Given_TitleAndAuthorMatch_Then_EntryOnce() {
+        //Arrange
+        Entry entry = entry(1L, 5);
+        sut.add("grace", entry);
+        sut.add("grace hopper", entry);
+        sut.add("graph theory", entry(2L, 1));
+
+        //Act and Assert
+        assertEquals(Arrays.asList(1L, 2L), ids(sut.top("gra", 10)));
+    }
+
+    @Test
+    public void testRaise_Then_EntryMovesUp() {
+        //Arrange
+        Entry entry = entry(1L, 1);
+        sut.add("java", entry);
+        sut.add("java", entry(2L, 3));
+        sut.add("javascript", entry(3L, 2));
+
+        //Act
+        entry.sold = 10;
+        sut.raise("java", entry);
+
+        //Assert
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(sut.top("j", 10)));
+    }
+
+    @Test
+    public void testRemove_Then_NotFoundAndPrefixOfOthersKept() {
+        //Arrange
+        Entry entry = entry(1L, 9);
+        sut.add("javascript", entry);
+        sut.add("java", entry(2L, 1));
+
+        //Act
+        sut.remove("javascript", entry);
+
+        //Assert
+        assertEquals(Collections.singletonList(2L), ids(sut.top("j", 10)));
+        assertTrue(sut.top("javas", 10).isEmpty());
+    }
+
+    @Test
+    public void testTop_Given_RandomKeysAndSales_Then_SameAsFullScan() {
+        //Arrange
+        Random random = new Random(42);
+        String[] words = {"a", "ab", "abc", "b", "ba", "bab", "c"};
+        Map<Entry, String> keys = new HashMap<>();
+        for (long id = 0; id < 500; id++) {
+            String key = words[random.nextInt(words.length)] + words[random.nextInt(words.length)];
+            Entry entry = entry(id, random.nextInt(20));
+            keys.put(entry, key);
+            if (id % 2 == 0) {
+                sut.add(key, entry);
+            } else {
+                sut.addUnsorted(key, entry);
+            }
+        }
+        sut.sortAll();
+        List<Entry> entries = new ArrayList<>(keys.keySet());
+        for (int i = 0; i < 300; i++) {
+            Entry entry = entries.get(random.nextInt(entries.size()));
+            if (i % 10 == 0) {
+                sut.remove(keys.remove(entry), entry);
+                entries.remove(entry);
+            } else {
+                entry.sold += 1 + random.nextInt(5);
+                sut.raise(keys.get(entry), entry);
+            }
+        }
+
+        //Act and Assert
+        for (String prefix : Arrays.asList("", "a", "ab", "abca", "b", "bab", "c", "ca", "d")) {
+            //Books selling as many copies may come in any order
+            List<Integer> expected = entries.stream().filter(entry -> keys.get(entry).startsWith(prefix))
+                    .map(entry -> entry.sold).sorted(Comparator.reverseOrder()).limit(25)
+                    .collect(Collectors.toList());
+            List<Entry> actual = sut.top(prefix, 25);
+            assertEquals(prefix, expected, actual.stream().map(entry -> entry.sold).collect(Collectors.toList()));
+            assertTrue(prefix, actual.stream().allMatch(entry -> keys.get(entry).startsWith(prefix)));
+            assertEquals(prefix, actual.size(), actual.stream().distinct().count());
+        }
+    }
+
+    private Entry entry(long id, int sold) {
+        return new Entry(id, "title " + id, "author " + id, Category.TECHNOLOGY, sold);
+    }
+
+    private List<Long> ids(List<Entry> entries) {
+        return entries.stream().map(entry -> entry.id).collect(Collectors.toList());
+    }
+}
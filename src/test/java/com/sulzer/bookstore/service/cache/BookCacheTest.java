@@ -0,0 +1,180 @@
+package com.sulzer.bookstore.service.cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class BookCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final BookCache sut = new BookCache(2, 1_000, ticker);
+
+    @Test
+    public void testGet_Then_LoadedOnceAndCounted() {
+        sut.get(1L, this::load);
+        sut.get(1L, this::load);
+
+        CacheStatisticsDto statistics = sut.getStatistics();
+        assertEquals(1, loads.get());
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(0.5, statistics.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testGet_Given_MissingBook_Then_NotCached() {
+        assertNull(sut.get(1L, id -> null));
+        assertEquals(0, sut.getStatistics().getSize());
+    }
+
+    @Test
+    public void testGet_Given_Expired_Then_LoadedAgain() {
+        sut.get(1L, this::load);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_001));
+
+        sut.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGet_Given_MaximumSizeIsReached_Then_Evicted() {
+        for (long id = 1; id <= 10; id++) {
+            sut.get(id, this::load);
+        }
+        sut.cleanUp();
+
+        CacheStatisticsDto statistics = sut.getStatistics();
+        assertEquals(2, statistics.getSize());
+        assertEquals(8, statistics.getEvictionCount());
+    }
+
+    @Test
+    public void testGetAll_Then_OnlyMissingBooksAreLoadedAndMissingBooksNotCached() {
+        sut.get(1L, this::load);
+        List<List<Long>> loadedIds = new ArrayList<>();
+
+        Map<Long, BookDto> bookById = sut.getAll(Arrays.asList(1L, 2L, 3L), ids -> {
+            loadedIds.add(ids);
+            return Collections.singletonMap(2L, load(2L));
+        });
+
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(new TreeMap<>(bookById).keySet()));
+        assertEquals(Collections.singletonList(Arrays.asList(2L, 3L)), loadedIds);
+        assertEquals(2, sut.getStatistics().getSize());
+    }
+
+    @Test
+    public void testEvictAll() {
+        sut.get(1L, this::load);
+        sut.get(2L, this::load);
+
+        sut.evictAll(Arrays.asList(1L, 2L));
+        sut.get(1L, this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testEvictAll_Then_VersionsOfEvictedBooksAndCatalogAreChanged() {
+        String version1 = sut.getBookVersion(1L);
+        String version2 = sut.getBookVersion(2L);
+        String catalogVersion = sut.getCatalogVersion();
+
+        sut.evictAll(Arrays.asList(1L, 3L));
+
+        assertNotEquals(version1, sut.getBookVersion(1L));
+        assertEquals(version2, sut.getBookVersion(2L));
+        assertNotEquals(catalogVersion, sut.getCatalogVersion());
+    }
+
+    @Test(timeout = 10_000)
+    public void testEvictAll_Given_BookBeingLoaded_Then_NotWaitingForTheLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        Thread reader = new Thread(() -> sut.get(1L, id -> {
+            loading.countDown();
+            try {
+                evicted.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(id);
+        }));
+        reader.start();
+        loading.await();
+
+        sut.evictAll(Arrays.asList(1L, 2L));
+        evicted.countDown();
+        reader.join();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testGet_Given_EvictedWhileLoading_Then_LoadedBookNotCached() {
+        //Arrange
+        sut.get(1L, id -> {
+            //A sale of the book completes after it was read
+            BookDto stale = load(id);
+            sut.evict(id);
+            return stale;
+        });
+
+        //Act
+        sut.get(1L, this::load);
+
+        //Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGetAll_Given_EvictedWhileLoading_Then_OnlyOtherBooksCached() {
+        //Arrange
+        sut.getAll(Arrays.asList(1L, 2L), ids -> {
+            Map<Long, BookDto> stale = new TreeMap<>();
+            ids.forEach(id -> stale.put(id, load(id)));
+            sut.evict(1L);
+            return stale;
+        });
+
+        //Act
+        sut.getAll(Arrays.asList(1L, 2L), ids -> {
+            Map<Long, BookDto> loaded = new TreeMap<>();
+            ids.forEach(id -> loaded.put(id, load(id)));
+            return loaded;
+        });
+
+        //Assert
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testVersions_Given_AnotherStart_Then_Different() {
+        assertNotEquals(sut.getBookVersion(1L), new BookCache(2, 1_000, ticker).getBookVersion(1L));
+    }
+
+    private BookDto load(Long id) {
+        loads.incrementAndGet();
+        return BookDto.builder().id(id).totalCount(1).build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.sulzer.bookstore.service.cache;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CacheStatisticsDto;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final SearchCache sut = new SearchCache(10, 1_000, ticker);
+
+    @Test
+    public void testGet_Then_LoadedOnceAndCounted() {
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+
+        CacheStatisticsDto statistics = sut.getStatistics();
+        assertEquals(2, loads.get());
+        assertEquals("search", statistics.getName());
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(2, statistics.getMissCount());
+    }
+
+    @Test
+    public void testEvictAll_Then_OnlyResultsOfCategoriesAreLoadedAgain() {
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+        sut.getBooks("java", Category.DRAMA, () -> books(1));
+
+        sut.evictAll(Collections.singletonList(Category.TECHNOLOGY));
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+        sut.getBooks("java", Category.DRAMA, () -> books(1));
+
+        assertEquals(5, loads.get());
+        //The results of the old generation stay until they are evicted by weight or expiry
+        assertEquals(5, sut.getStatistics().getSize());
+    }
+
+    @Test
+    public void testEvictAll_Given_NoCategory_Then_EveryResultIsLoadedAgain() {
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getBooks("java", Category.DRAMA, () -> books(1));
+
+        sut.evictAll();
+        sut.getBooks("java", Category.TECHNOLOGY, () -> books(1));
+        sut.getBooks("java", Category.DRAMA, () -> books(1));
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testGet_Given_Expired_Then_LoadedAgain() {
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_001));
+
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testGet_Given_MaximumWeightIsReached_Then_Evicted() {
+        //Each result weighs its books and one
+        for (int i = 0; i < 5; i++) {
+            sut.getBooks("keyword" + i, Category.TECHNOLOGY, () -> books(3));
+        }
+        sut.cleanUp();
+
+        CacheStatisticsDto statistics = sut.getStatistics();
+        assertEquals(2, statistics.getSize());
+        assertEquals(3, statistics.getEvictionCount());
+    }
+
+    @Test(timeout = 10_000)
+    public void testEvictAll_Given_SearchBeingLoaded_Then_NotWaitingForTheLoadAndResultNotServed() throws Exception {
+        //Arrange
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        Thread reader = new Thread(() -> sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, () -> {
+            loading.countDown();
+            try {
+                evicted.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return count();
+        }));
+        reader.start();
+        loading.await();
+
+        //Act
+        sut.evictAll(Collections.singletonList(Category.TECHNOLOGY));
+        sut.evictAll();
+        evicted.countDown();
+        reader.join();
+        sut.getNumberOfBooksSold("java", Category.TECHNOLOGY, this::count);
+
+        //Assert
+        assertEquals(2, loads.get());
+        assertEquals(1, sut.getStatistics().getSize());
+    }
+
+    private List<BookDto> books(int size) {
+        loads.incrementAndGet();
+        List<BookDto> books = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            books.add(BookDto.builder().id(id).build());
+        }
+        return books;
+    }
+
+    private int count() {
+        loads.incrementAndGet();
+        return 7;
+    }
+}
@@ -0,0 +1,209 @@
+package com.sulzer.bookstore.service.history;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.constants.SalesResolution;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.domain.BookSalesRollupRepository;
+import com.sulzer.bookstore.domain.CategorySalesRollupRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.SalesBucketDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The buckets are written to an embedded database at times after the start of the test,
+ * so the purge of the application, which runs with the system clock, does not delete them.
+ */
+public class SalesHistoryTest {
+
+    private static final Instant DAY = Instant.parse("2030-01-01T00:00:00Z");
+
+    private static EmbeddedBookstore bookstore;
+    private static BookStoreService bookStoreService;
+
+    private final MutableClock clock = new MutableClock();
+
+    //Day of the sales of a test, the other tests sell at other hours of DAY
+    private Instant day = DAY;
+
+    private SalesHistory sut;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookStoreService.addNewBook(book(1L, Category.POETRY, 10));
+        bookStoreService.addNewBook(book(2L, Category.POETRY, 20));
+        bookStoreService.addNewBook(book(3L, Category.DRAMA, 5));
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Before
+    public void setup() {
+        sut = new SalesHistory(bookstore.getBean(BookRepository.class),
+                bookstore.getBean(BookSalesRollupRepository.class),
+                bookstore.getBean(CategorySalesRollupRepository.class), bookstore.getBean(JdbcTemplate.class),
+                bookstore.getBean(PlatformTransactionManager.class), 1_000, 48, clock);
+    }
+
+    @Test
+    public void testFlush_Then_SalesAddedToBucketsOfEveryResolution() {
+        //Arrange
+        day = DAY.plus(1, ChronoUnit.DAYS);
+        sellAt("10:00:30", 1L, 1);
+        sellAt("10:01:10", 1L, 2);
+        sellAt("10:59:59", 2L, 1);
+        sellAt("11:00:00", 3L, 4);
+
+        //Act
+        sut.flush();
+
+        //Assert
+        Instant from = time("00:00:00");
+        Instant to = day.plus(1, ChronoUnit.DAYS);
+        assertEquals(Arrays.asList(bucket("10:00:00", 1, 10), bucket("10:01:00", 2, 20)),
+                sut.getBookSales(1L, SalesResolution.MINUTE, from, to));
+        assertEquals(Collections.singletonList(bucket("10:00:00", 3, 30)),
+                sut.getBookSales(1L, SalesResolution.HOUR, from, to));
+        assertEquals(Collections.singletonList(bucket("10:00:00", 4, 50)),
+                sut.getCategorySales(Category.POETRY, SalesResolution.HOUR, from, to));
+        assertEquals(Collections.singletonList(bucket("11:00:00", 4, 20)),
+                sut.getCategorySales(Category.DRAMA, SalesResolution.HOUR, from, to));
+        assertEquals(Arrays.asList(bucket("10:00:00", 4, 50), bucket("11:00:00", 4, 20)),
+                sut.getCategorySales(null, SalesResolution.HOUR, from, to));
+        assertEquals(Collections.singletonList(bucket("00:00:00", 8, 70)),
+                sut.getCategorySales(null, SalesResolution.DAY, from, to));
+        //The bucket of from is included, buckets starting at to are not
+        assertEquals(Collections.singletonList(bucket("10:01:00", 2, 20)),
+                sut.getBookSales(1L, SalesResolution.MINUTE, time("10:01:59"), time("10:02:00")));
+        assertTrue(sut.getBookSales(1L, SalesResolution.MINUTE, time("10:02:00"), to).isEmpty());
+    }
+
+    @Test
+    public void testFlush_Given_BucketAlreadyWritten_Then_SalesAdded() {
+        //Arrange
+        sellAt("12:00:10", 2L, 1);
+        sut.flush();
+        sellAt("12:00:20", 2L, 2);
+        sellAt("12:00:30", 2L, 1);
+
+        //Act
+        sut.flush();
+
+        //Assert
+        assertEquals(Collections.singletonList(bucket("12:00:00", 4, 80)),
+                sut.getBookSales(2L, SalesResolution.MINUTE, time("12:00:00"), time("12:01:00")));
+    }
+
+    @Test
+    public void testFlush_Given_UnknownBook_Then_SaleLeftOut() {
+        //Arrange
+        sellAt("13:00:00", 99L, 1);
+        sellAt("13:00:00", 3L, 1);
+
+        //Act
+        sut.flush();
+
+        //Assert
+        assertTrue(sut.getBookSales(99L, SalesResolution.MINUTE, time("13:00:00"), time("14:00:00")).isEmpty());
+        assertEquals(Collections.singletonList(bucket("13:00:00", 1, 5)),
+                sut.getCategorySales(null, SalesResolution.MINUTE, time("13:00:00"), time("14:00:00")));
+    }
+
+    @Test
+    public void testPurge_Then_OldMinuteBucketsDeletedAndHourBucketsKept() {
+        //Arrange
+        sellAt("14:00:00", 3L, 2);
+        sut.flush();
+        clock.now = time("14:00:00").plus(49, ChronoUnit.HOURS);
+
+        //Act
+        sut.purge();
+
+        //Assert
+        assertTrue(sut.getBookSales(3L, SalesResolution.MINUTE, time("14:00:00"), time("15:00:00")).isEmpty());
+        assertTrue(sut.getCategorySales(Category.DRAMA, SalesResolution.MINUTE, time("14:00:00"), time("15:00:00"))
+                .isEmpty());
+        assertEquals(Collections.singletonList(bucket("14:00:00", 2, 10)),
+                sut.getBookSales(3L, SalesResolution.HOUR, time("14:00:00"), time("15:00:00")));
+    }
+
+    @Test
+    public void testGetSalesHistory_Given_SalesThroughService_Then_InHistoryAfterFlush() {
+        //Arrange
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        bookStoreService.sellBook(1L);
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(1L, 2), new SellDto(3L, 1)));
+
+        //Act
+        bookstore.getBean(SalesHistory.class).flush();
+
+        //Assert
+        Instant after = Instant.now().plus(1, ChronoUnit.MINUTES);
+        List<SalesBucketDto> book = bookStoreService.getSalesHistory(SalesResolution.DAY, before, after, null, 1L);
+        assertEquals(3, book.stream().mapToLong(SalesBucketDto::getUnitsSold).sum());
+        List<SalesBucketDto> drama = bookStoreService.getSalesHistory(SalesResolution.MINUTE, before, after,
+                Category.DRAMA, null);
+        assertEquals(1, drama.stream().mapToLong(SalesBucketDto::getUnitsSold).sum());
+    }
+
+    private void sellAt(String time, Long id, int quantity) {
+        clock.now = time(time);
+        sut.recordSale(id, quantity);
+    }
+
+    private Instant time(String time) {
+        return Instant.parse(day.toString().substring(0, 11) + time + "Z");
+    }
+
+    private SalesBucketDto bucket(String start, long unitsSold, double revenue) {
+        return SalesBucketDto.builder().start(time(start)).unitsSold(unitsSold).revenue(revenue).build();
+    }
+
+    private static BookDto book(Long id, Category category, float price) {
+        return BookDto.builder().id(id).title("title " + id).author("author " + id).category(category)
+                .price(price).totalCount(100).build();
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant now = DAY;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sulzer.bookstore.service.importer;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.ImportErrorDto;
+import com.sulzer.bookstore.service.dto.ImportReportDto;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Imports on an in-memory database in chunks of 2 rows, so rows of one file are registered in several chunks.
+ */
+public class BookImporterTest {
+
+    private static EmbeddedBookstore bookstore;
+    private static BookStoreService bookStoreService;
+    private static BookRepository bookRepository;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start("bookstore.import.chunk-size=2");
+        bookstore.seed(10, 5);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookRepository = bookstore.getBean(BookRepository.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testImportCsv_Given_ValidAndInvalidRows_Then_ValidRowsRegisteredAndOthersReported() throws Exception {
+        //Arrange
+        String csv = "Title,ID,author,Category,price,total_count\r\n" +
+                "\"Java, the \"\"good\"\" parts\",101,ada lovelace,technology,12.5,4\r\n" +
+                "Duplicate,101,someone,DRAMA,1,1\r\n" +
+                "Poems,102,mary shelley,POETRY,,\r\n" +
+                "Registered,5,someone,DRAMA,1,1\r\n" +
+                "Cheap,103,someone,DRAMA,-1,1\r\n" +
+                "Unknown,104,someone,FANTASY,1,1\r\n" +
+                "\"Two\nlines\",105,someone,MEDIA,3,2\r\n" +
+                "Price,106,someone,MEDIA,abc,2\r\n" +
+                "\r\n" +
+                "Last,107,someone,ACTION,7,1";
+
+        //Act
+        ImportReportDto report = bookStoreService.importBooks(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+
+        //Assert
+        assertEquals(4, report.getImported());
+        assertEquals(5, report.getFailed());
+        assertError(report.getErrors(), 3, 101L, "Book with same id is at line 2.");
+        assertError(report.getErrors(), 5, 5L, "Book with same id present.");
+        assertError(report.getErrors(), 6, 103L, "price: Price should be positive value.");
+        assertError(report.getErrors(), 7, null, "Unknown category: FANTASY");
+        assertError(report.getErrors(), 10, null, "Invalid number: For input string: \"abc\"");
+        assertEquals("Java, the \"good\" parts", bookRepository.findById(101L).get().getTitle());
+        assertEquals(Category.TECHNOLOGY, bookRepository.findById(101L).get().getCategory());
+        assertEquals(0, bookRepository.findById(102L).get().getTotalCount());
+        assertEquals("Two\nlines", bookRepository.findById(105L).get().getTitle());
+        assertEquals(1, bookStoreService.getNumberOfBooksById(107L));
+        assertEquals(bookStoreService.getAllCategoryStatistics(), fullScan());
+    }
+
+    @Test
+    public void testImportNdjson_Given_ValidAndInvalidLines_Then_ValidLinesRegisteredAndOthersReported() throws Exception {
+        //Arrange
+        String ndjson = "{\"id\":201,\"title\":\"first\",\"author\":\"a\",\"category\":\"DRAMA\",\"price\":2,\"totalCount\":3}\n" +
+                "{\"id\":202,\"title\":\"broken\"\n" +
+                "\n" +
+                "{\"title\":\"no id\",\"totalCount\":3}\n" +
+                "{\"id\":203,\"author\":\"no title\",\"totalCount\":3}\n" +
+                "{\"id\":204,\"title\":\"last\",\"category\":\"MEDIA\",\"price\":4,\"totalCount\":1}\n";
+
+        //Act
+        ImportReportDto report = bookStoreService.importBooks(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+
+        //Assert
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertError(report.getErrors(), 4, null, "Id is required.");
+        assertError(report.getErrors(), 5, 203L, "title: must not be null");
+        BookDto first = bookStoreService.getBookById(201L);
+        assertEquals("first", first.getTitle());
+        assertEquals(3, first.getTotalCount());
+        assertEquals("last", bookStoreService.getBookById(204L).getTitle());
+    }
+
+    private void assertError(List<ImportErrorDto> errors, long line, Long id, String message) {
+        ImportErrorDto error = errors.stream().filter(e -> e.getLine() == line).findFirst()
+                .orElseThrow(() -> new AssertionError("No error at line " + line + " in " + errors));
+        if (id == null) {
+            assertNull(error.getId());
+        } else {
+            assertEquals(id, error.getId());
+        }
+        assertEquals(message, error.getMessage());
+    }
+
+    private List<CategoryStatisticsDto> fullScan() {
+        List<CategoryStatisticsDto> statistics = new java.util.ArrayList<>();
+        for (Category category : Category.values()) {
+            CategoryStatisticsDto expected = CategoryStatisticsDto.builder().category(category).build();
+            for (Book book : bookRepository.findAll()) {
+                if (book.getCategory() == category) {
+                    expected.setBooks(expected.getBooks() + 1);
+                    expected.setUnitsInStock(expected.getUnitsInStock() + book.getTotalCount());
+                    expected.setUnitsSold(expected.getUnitsSold() + book.getSold());
+                    expected.setRevenue(expected.getRevenue() + (double) book.getPrice() * book.getSold());
+                }
+            }
+            statistics.add(expected);
+        }
+        return statistics;
+    }
+}
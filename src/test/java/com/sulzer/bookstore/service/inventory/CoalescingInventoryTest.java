@@ -0,0 +1,102 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CoalescingInventoryTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final CategoryStatisticsStore categoryStatisticsStore = mock(CategoryStatisticsStore.class);
+    private final OptimisticRetry optimisticRetry = new OptimisticRetry(mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), 3, 0, 0);
+
+    @Test
+    public void testSell_Given_ConcurrentSellsOfOneBook_Then_SoldInOneUpdateInArrivalOrder() throws Exception {
+        //Arrange
+        //The batch is closed by the third sale, long before the end of the window
+        CoalescingInventory sut = new CoalescingInventory(bookRepository, categoryStatisticsStore, optimisticRetry,
+                new SimpleMeterRegistry(), TimeUnit.SECONDS.toMicros(10), 3);
+        when(bookRepository.findTotalCountById(1L)).thenReturn(Optional.of(5));
+        when(bookRepository.sell(1L, 5)).thenReturn(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        //Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int quantity : new int[]{3, 3, 2}) {
+            results.add(executor.submit(() -> {
+                try {
+                    sut.sell(1L, quantity);
+                    return "sold";
+                } catch (BadRequestException e) {
+                    return "not enough";
+                }
+            }));
+            //Sellers arrive one after the other
+            Thread.sleep(100);
+        }
+
+        //Assert
+        assertEquals("sold", results.get(0).get(5, TimeUnit.SECONDS));
+        assertEquals("not enough", results.get(1).get(5, TimeUnit.SECONDS));
+        assertEquals("sold", results.get(2).get(5, TimeUnit.SECONDS));
+        verify(bookRepository, times(1)).sell(1L, 5);
+        verify(categoryStatisticsStore, times(1)).recordSale(1L, 5);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSell_Given_StockSoldConcurrently_Then_BatchIsSoldAgain() {
+        //Arrange
+        CoalescingInventory sut = new CoalescingInventory(bookRepository, categoryStatisticsStore, optimisticRetry,
+                new SimpleMeterRegistry(), 0, 256);
+        when(bookRepository.findTotalCountById(1L)).thenReturn(Optional.of(1)).thenReturn(Optional.of(0));
+        when(bookRepository.sell(1L, 1)).thenReturn(0);
+
+        //Act
+        try {
+            sut.sell(1L, 1);
+            fail();
+        } catch (BadRequestException e) {
+            //expected
+        }
+
+        //Assert
+        verify(bookRepository, times(2)).findTotalCountById(1L);
+        verify(categoryStatisticsStore, never()).recordSale(anyLong(), anyInt());
+    }
+
+    @Test(expected = BookNotFoundException.class)
+    public void testSell_Given_BookIsNotPresent_Then_ThrowsBookNotFoundException() {
+        //Arrange
+        CoalescingInventory sut = new CoalescingInventory(bookRepository, categoryStatisticsStore, optimisticRetry,
+                new SimpleMeterRegistry(), 0, 256);
+        when(bookRepository.findTotalCountById(1L)).thenReturn(Optional.empty());
+
+        //Act
+        sut.sell(1L, 1);
+    }
+}
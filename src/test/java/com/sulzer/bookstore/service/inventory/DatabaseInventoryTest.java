@@ -0,0 +1,217 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.BookNotFoundException;
+import com.sulzer.bookstore.service.retry.OptimisticRetry;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatabaseInventoryTest {
+    private final Long id = 1234L;
+    private final int totalCount = 2;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private CategoryStatisticsStore categoryStatisticsStore;
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(mock(PlatformTransactionManager.class),
+            new SimpleMeterRegistry(), 3, 0, 0);
+
+    @InjectMocks
+    private DatabaseInventory sut;
+
+    @Test
+    public void testAddStock() {
+        //Arrange
+        Book book = mock(Book.class);
+        when(bookRepository.findById(id)).thenReturn(Optional.ofNullable(book));
+        when(book.getTotalCount()).thenReturn(totalCount);
+
+        //Act
+        sut.addStock(id, 1);
+
+        //Verify
+        verify(bookRepository).save(book);
+        verify(categoryStatisticsStore).recordStockAdded(book, 1);
+    }
+
+    @Test
+    public void testAddStock_Given_NoBookIsFoundById_Then_ThrowsBookNotFoundException() {
+        thrown.expect(BookNotFoundException.class);
+        thrown.expectMessage("Book with id:" + id + " is not registered.");
+        //Arrange
+        when(bookRepository.findById(id)).thenReturn(Optional.empty());
+
+        //Act
+        sut.addStock(id, 1);
+
+    }
+
+    @Test
+    public void testSell() {
+        //Arrange
+        when(bookRepository.sell(id, 1)).thenReturn(1);
+
+        //Act
+        sut.sell(id, 1);
+
+        //Verify
+        verify(bookRepository).sell(id, 1);
+        verify(bookRepository, never()).findById(id);
+        verify(categoryStatisticsStore).recordSale(id, 1);
+    }
+
+    @Test
+    public void testSell_Given_NoBookIsPresent_Then_ThrowsBookNotFoundException() {
+        thrown.expect(BookNotFoundException.class);
+        thrown.expectMessage("Book with id: " + id + " is not found.");
+
+        //Arrange
+        when(bookRepository.sell(id, 1)).thenReturn(0);
+        when(bookRepository.existsById(id)).thenReturn(false);
+
+        //Act
+        sut.sell(id, 1);
+
+    }
+
+    @Test
+    public void testSell_Given_NotSufficientBook_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("TotalCount cannot be negative. Not enough book in store to sell.");
+
+        //Arrange
+        when(bookRepository.sell(id, 1)).thenReturn(0);
+        when(bookRepository.existsById(id)).thenReturn(true);
+
+        //Act
+        sut.sell(id, 1);
+
+    }
+
+    @Test
+    public void testSellAll() {
+        //Arrange
+        long bookId1 = 12L;
+        long bookId2 = 14L;
+        Book book1 = Book.builder().id(bookId1).totalCount(12).sold(2).build();
+        Book book2 = Book.builder().id(bookId2).totalCount(11).sold(3).build();
+        Map<Long, Integer> quantityById = new TreeMap<>();
+        quantityById.put(bookId1, 1);
+        quantityById.put(bookId2, 5);
+
+        when(bookRepository.findAllById(Arrays.asList(bookId1, bookId2)))
+                .thenReturn(Arrays.asList(book1, book2));
+
+        //Act
+        sut.sellAll(quantityById);
+
+        //Verify
+        verify(bookRepository).findAllById(Arrays.asList(bookId1, bookId2));
+        verify(bookRepository).saveAll(Arrays.asList(book1, book2));
+        verify(categoryStatisticsStore).recordSales(eq(Arrays.asList(book1, book2)), anyMap());
+        verify(bookRepository, never()).findById(anyLong());
+        assertEquals(11, book1.getTotalCount());
+        assertEquals(3, book1.getSold());
+        assertEquals(6, book2.getTotalCount());
+        assertEquals(8, book2.getSold());
+    }
+
+    @Test
+    public void testSellAll_Given_BookIsChangedBeforeCommit_Then_OrderIsSoldAgain() {
+        //Arrange
+        Map<Long, Integer> quantityById = Collections.singletonMap(id, 1);
+        when(bookRepository.findAllById(Collections.singletonList(id)))
+                .thenReturn(Collections.singletonList(Book.builder().id(id).totalCount(totalCount).sold(0).build()))
+                .thenReturn(Collections.singletonList(Book.builder().id(id).totalCount(totalCount + 5).sold(4).build()));
+        when(bookRepository.saveAll(anyList()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Book.class, id))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        //Act
+        sut.sellAll(quantityById);
+
+        //Verify
+        verify(bookRepository, times(2)).saveAll(anyList());
+        verify(categoryStatisticsStore, times(1)).recordSales(
+                eq(Collections.singletonList(Book.builder().id(id).totalCount(totalCount + 4).sold(5).build())),
+                eq(quantityById));
+    }
+
+    @Test
+    public void testSellAll_Given_BookIsNotPresent_Then_ThrowsBookNotFoundException() {
+        thrown.expect(BookNotFoundException.class);
+        thrown.expectMessage("Book with id: " + id + " is not found.");
+
+        //Arrange
+        Map<Long, Integer> quantityById = Collections.singletonMap(id, 1);
+        when(bookRepository.findAllById(Collections.singletonList(id))).thenReturn(new ArrayList<>());
+
+        //Act
+        sut.sellAll(quantityById);
+    }
+
+    @Test
+    public void testSellAll_Given_NotSufficientBook_Then_ThrowsBadRequestException() {
+        thrown.expect(BadRequestException.class);
+        thrown.expectMessage("TotalCount cannot be negative. Not enough book in store to sell.");
+
+        //Arrange
+        Book book = Book.builder().id(id).totalCount(totalCount).build();
+        Map<Long, Integer> quantityById = Collections.singletonMap(id, 4);
+        when(bookRepository.findAllById(Collections.singletonList(id)))
+                .thenReturn(Collections.singletonList(book));
+
+        //Act
+        sut.sellAll(quantityById);
+    }
+
+    @Test
+    public void testSellAll_Given_QuantityExceedsStock_Then_NothingIsSaved() {
+        //Arrange
+        Book book = Book.builder().id(id).totalCount(totalCount).build();
+        Map<Long, Integer> quantityById = Collections.singletonMap(id, totalCount + 1);
+        when(bookRepository.findAllById(Collections.singletonList(id)))
+                .thenReturn(Collections.singletonList(book));
+
+        //Act
+        try {
+            sut.sellAll(quantityById);
+        } catch (BadRequestException e) {
+            //expected
+        }
+
+        //Verify
+        verify(bookRepository, never()).saveAll(anyList());
+        assertEquals(totalCount, book.getTotalCount());
+    }
+}
@@ -0,0 +1,198 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Memory mode on an in-memory database: no oversell under contention,
+ * and after a flush the book table and the statistics hold the counts sold in memory.
+ */
+public class InMemoryInventoryTest {
+
+    private static final int THREADS = 16;
+    private static final int STOCK = 500;
+
+    private static EmbeddedBookstore bookstore;
+    private static BookStoreService bookStoreService;
+    private static BookRepository bookRepository;
+    private static InMemoryInventory sut;
+
+    @BeforeClass
+    public static void start() {
+        //Flushed only by the test
+        bookstore = EmbeddedBookstore.start("bookstore.inventory.mode=memory",
+                "bookstore.inventory.flush-interval=3600000");
+        bookstore.seed(20, STOCK);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookRepository = bookstore.getBean(BookRepository.class);
+        sut = bookstore.getBean(InMemoryInventory.class);
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testSellBook_Given_ConcurrentBuyers_Then_NoOversellAndFlushedToDatabase() throws Exception {
+        //Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Integer>> buyers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            buyers.add(() -> {
+                int sold = 0;
+                for (int attempt = 0; attempt < STOCK; attempt++) {
+                    try {
+                        bookStoreService.sellBook(1L);
+                        sold++;
+                    } catch (BadRequestException e) {
+                        //sold out
+                    }
+                }
+                return sold;
+            });
+        }
+
+        //Act
+        int sold = 0;
+        for (Future<Integer> result : executor.invokeAll(buyers)) {
+            sold += result.get();
+        }
+        executor.shutdown();
+        int totalCountBeforeFlush = bookRepository.findById(1L).get().getTotalCount();
+        sut.flush();
+
+        //Assert
+        assertEquals(STOCK, sold);
+        assertEquals(0, bookStoreService.getNumberOfBooksById(1L));
+        assertEquals(STOCK, totalCountBeforeFlush);
+        Book book = bookRepository.findById(1L).get();
+        assertEquals(0, book.getTotalCount());
+        assertEquals(STOCK, book.getSold());
+        assertStatisticsEqualToFullScan();
+    }
+
+    @Test
+    public void testSellBooks_Given_OneLineShort_Then_NothingIsSold() {
+        //Act
+        try {
+            bookStoreService.sellBooks(Arrays.asList(new SellDto(2L, 1), new SellDto(3L, STOCK + 1)));
+            fail();
+        } catch (BadRequestException e) {
+            //expected
+        }
+
+        //Assert
+        assertEquals(STOCK, bookStoreService.getNumberOfBooksById(2L));
+        assertEquals(STOCK, bookStoreService.getNumberOfBooksById(3L));
+    }
+
+    @Test
+    public void testUpdateBook_Given_UnflushedSales_Then_SalesAreKept() {
+        //Arrange
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(4L, 2), new SellDto(5L, 1)));
+        Book stored = bookRepository.findById(4L).get();
+
+        //Act
+        bookStoreService.updateBook(4L, BookDto.builder().title("updated").author(stored.getAuthor())
+                .category(Category.DRAMA).price(stored.getPrice()).totalCount(100).build());
+        bookStoreService.sellBook(4L);
+        bookStoreService.addBook(5L, 10);
+        sut.flush();
+
+        //Assert
+        Book book = bookRepository.findById(4L).get();
+        assertEquals(99, book.getTotalCount());
+        assertEquals(3, book.getSold());
+        assertEquals(STOCK + 9, bookRepository.findById(5L).get().getTotalCount());
+        assertStatisticsEqualToFullScan();
+    }
+
+    @Test
+    public void testFlush_Given_UpdateCommittedBeforeSaved_Then_UpdateIsNotOverwritten() {
+        //Arrange
+        Book stored = bookRepository.findById(6L).get();
+        BookDto update = BookDto.builder().title("updated").author(stored.getAuthor())
+                .category(stored.getCategory()).price(stored.getPrice()).totalCount(100).build();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                bookstore.getBean(PlatformTransactionManager.class));
+
+        //Act
+        transactionTemplate.execute(status -> {
+            //Runs after the commit of the update and before the service passes it to the inventory
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    sut.flush();
+                }
+            });
+            bookStoreService.updateBook(6L, update);
+            bookStoreService.sellBook(6L);
+            return null;
+        });
+        sut.flush();
+
+        //Assert
+        Book book = bookRepository.findById(6L).get();
+        assertEquals(99, book.getTotalCount());
+        assertEquals(1, book.getSold());
+        assertEquals(99, bookStoreService.getNumberOfBooksById(6L));
+        assertStatisticsEqualToFullScan();
+    }
+
+    @Test
+    public void testAddNewBook_Then_BookCanBeSold() {
+        //Arrange
+        bookStoreService.addNewBook(BookDto.builder().id(1000L).title("new book").author("author")
+                .category(Category.POETRY).price(12.5f).totalCount(3).build());
+
+        //Act
+        bookStoreService.sellBook(1000L);
+        sut.flush();
+
+        //Assert
+        assertEquals(2, bookRepository.findById(1000L).get().getTotalCount());
+        assertStatisticsEqualToFullScan();
+    }
+
+    private void assertStatisticsEqualToFullScan() {
+        for (CategoryStatisticsDto actual : bookstore.getBean(CategoryStatisticsStore.class).getAllStatistics()) {
+            long unitsInStock = 0;
+            long unitsSold = 0;
+            for (Book book : bookRepository.findAll()) {
+                if (book.getCategory() == actual.getCategory()) {
+                    unitsInStock += book.getTotalCount();
+                    unitsSold += book.getSold();
+                }
+            }
+            assertEquals(unitsInStock, actual.getUnitsInStock());
+            assertEquals(unitsSold, actual.getUnitsSold());
+        }
+    }
+}
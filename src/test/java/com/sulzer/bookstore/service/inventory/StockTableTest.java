@@ -0,0 +1,72 @@
+package com.sulzer.bookstore.service.inventory;
+
+import com.sulzer.bookstore.service.inventory.StockTable.Cell;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StockTableTest {
+
+    private final StockTable sut = new StockTable();
+
+    @Test
+    public void testPutIfAbsent_Given_ManyBooks_Then_EveryBookIsFound() {
+        //Act
+        for (long id = -5_000; id < 5_000; id++) {
+            sut.putIfAbsent(id * 31, (int) Math.abs(id), 0);
+        }
+
+        //Assert
+        assertEquals(10_000, sut.size());
+        for (long id = -5_000; id < 5_000; id++) {
+            assertEquals(Math.abs(id), Cell.totalCount(sut.get(id * 31).get()));
+        }
+        assertNull(sut.get(1));
+    }
+
+    @Test
+    public void testPutIfAbsent_Given_BookIsPresent_Then_CountsAreKept() {
+        //Arrange
+        Cell cell = sut.putIfAbsent(7L, 3, 1);
+
+        //Act
+        Cell actual = sut.putIfAbsent(7L, 10, 10);
+
+        //Assert
+        assertSame(cell, actual);
+        assertEquals(Cell.pack(3, 1), actual.get());
+    }
+
+    @Test
+    public void testTrySell_Given_NotEnoughBooks_Then_CountsAreUnchanged() {
+        //Arrange
+        Cell cell = sut.putIfAbsent(7L, 3, 1);
+
+        //Act
+        boolean sold = cell.trySell(2);
+        boolean soldAgain = cell.trySell(2);
+
+        //Assert
+        assertTrue(sold);
+        assertFalse(soldAgain);
+        assertEquals(1, Cell.totalCount(cell.get()));
+        assertEquals(3, Cell.sold(cell.get()));
+    }
+
+    @Test
+    public void testUnsell_Then_SaleIsReverted() {
+        //Arrange
+        Cell cell = sut.putIfAbsent(7L, 3, 1);
+        cell.trySell(2);
+
+        //Act
+        cell.unsell(2);
+
+        //Assert
+        assertEquals(Cell.pack(3, 1), cell.get());
+    }
+}
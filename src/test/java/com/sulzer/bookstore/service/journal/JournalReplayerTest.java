@@ -0,0 +1,137 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import com.sulzer.bookstore.service.statistics.CategoryStatisticsStore;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Book table rebuilt from the sales journal, after it lost its counts or after a crash of the memory inventory.
+ */
+public class JournalReplayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EmbeddedBookstore bookstore;
+
+    @After
+    public void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testRebuildBooks_Given_CountsAreLost_Then_CountsAreRestored() {
+        //Arrange
+        start("database");
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookStoreService.addNewBook(BookDto.builder().id(1000L).title("new book").author("author")
+                .category(Category.POETRY).price(12.5f).totalCount(3).build());
+        bookStoreService.addBook(1000L, 4);
+        bookStoreService.sellBook(1000L);
+        bookStoreService.sellBook(17L);
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(3L, 2), new SellDto(15L, 1), new SellDto(3L, 1)));
+        bookStoreService.updateBook(15L, BookDto.builder().title("moved").author("author")
+                .category(Category.DRAMA).price(99f).totalCount(8).build());
+        bookStoreService.sellBook(15L);
+        List<String> expected = counts();
+        bookstore.getBean(JdbcTemplate.class).update("update book set total_count = 0, sold = 0");
+
+        //Act
+        bookstore.getBean(JournalReplayer.class).rebuildBooks();
+
+        //Assert
+        assertEquals(expected, counts());
+        assertStatisticsEqualToFullScan();
+    }
+
+    @Test
+    public void testRebuildBooks_Given_MemoryInventoryIsNotFlushed_Then_SalesAreRecovered() {
+        //Arrange
+        start("memory");
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookStoreService.sellBook(1L);
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(1L, 2), new SellDto(2L, 3)));
+
+        //Act
+        bookstore.getBean(JournalReplayer.class).rebuildBooks();
+
+        //Assert
+        BookRepository bookRepository = bookstore.getBean(BookRepository.class);
+        assertEquals(2, bookRepository.findById(1L).get().getTotalCount());
+        assertEquals(3, bookRepository.findById(1L).get().getSold());
+        assertEquals(2, bookRepository.findById(2L).get().getTotalCount());
+        assertEquals(2, bookStoreService.getNumberOfBooksById(1L));
+        assertStatisticsEqualToFullScan();
+    }
+
+    @Test
+    public void testRebuildBooks_Given_SaleCommittedButNotJournaled_Then_BookTableIsKept() {
+        //Arrange
+        start("database");
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookStoreService.sellBook(1L);
+        List<String> expected = counts();
+        JdbcTemplate jdbcTemplate = bookstore.getBean(JdbcTemplate.class);
+        //Crash between the commit of the sale and its append to the journal
+        jdbcTemplate.update("update book set total_count = total_count - 1, sold = sold + 1 where id = 2");
+        expected.replaceAll(counts -> counts.startsWith("2:") ? "2:4:1" : counts);
+
+        //Act
+        int written = bookstore.getBean(JournalReplayer.class).rebuildBooks();
+
+        //Assert
+        assertEquals(expected, counts());
+        assertEquals(19, written);
+        assertStatisticsEqualToFullScan();
+    }
+
+    private void start(String inventoryMode) {
+        //The memory inventory is flushed only by the test, which stands for a crash before the flush
+        bookstore = EmbeddedBookstore.start("bookstore.journal.mode=mapped",
+                "bookstore.journal.directory=" + folder.getRoot().getPath(),
+                "bookstore.journal.segment-size=65536",
+                "bookstore.inventory.mode=" + inventoryMode,
+                "bookstore.inventory.flush-interval=3600000");
+        bookstore.seed(20, 5);
+    }
+
+    private List<String> counts() {
+        return bookstore.getBean(BookRepository.class).findAll().stream()
+                .map(book -> book.getId() + ":" + book.getTotalCount() + ":" + book.getSold())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private void assertStatisticsEqualToFullScan() {
+        List<Book> books = bookstore.getBean(BookRepository.class).findAll();
+        for (CategoryStatisticsDto actual : bookstore.getBean(CategoryStatisticsStore.class).getAllStatistics()) {
+            long unitsInStock = 0;
+            long unitsSold = 0;
+            for (Book book : books) {
+                if (book.getCategory() == actual.getCategory()) {
+                    unitsInStock += book.getTotalCount();
+                    unitsSold += book.getSold();
+                }
+            }
+            assertEquals(unitsInStock, actual.getUnitsInStock());
+            assertEquals(unitsSold, actual.getUnitsSold());
+        }
+    }
+}
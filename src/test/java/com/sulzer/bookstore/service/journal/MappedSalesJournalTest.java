@@ -0,0 +1,213 @@
+package com.sulzer.bookstore.service.journal;
+
+import com.sulzer.bookstore.domain.Book;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSalesJournalTest {
+
+    private static final int THREADS = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<MappedSalesJournal> opened = new ArrayList<>();
+
+    @After
+    public void closeAll() throws InterruptedException {
+        for (MappedSalesJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testRecordSale_Given_ConcurrentSellers_Then_EverySaleIsReplayedAfterReopen() throws Exception {
+        //Arrange
+        MappedSalesJournal sut = open(1 << 20, true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Void>> sellers = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            long bookId = thread % 4;
+            sellers.add(() -> {
+                for (int sale = 0; sale < 1_000; sale++) {
+                    sut.recordSale(bookId, 1);
+                }
+                return null;
+            });
+        }
+
+        //Act
+        for (Future<Void> result : executor.invokeAll(sellers)) {
+            result.get();
+        }
+        executor.shutdown();
+        sut.close();
+        opened.remove(sut);
+        Map<Long, Integer> soldById = soldById(open(1 << 20, true));
+
+        //Assert
+        assertEquals(4, soldById.size());
+        soldById.values().forEach(sold -> assertEquals(Integer.valueOf(4_000), sold));
+    }
+
+    @Test
+    public void testReplay_Given_RecordsSpanSegments_Then_AllRecordsAreReplayedInOrder() {
+        //Arrange
+        MappedSalesJournal sut = open(10 * MappedSalesJournal.RECORD_SIZE, false);
+        Map<Long, Integer> order = new TreeMap<>();
+        order.put(1L, 2);
+        order.put(2L, 3);
+        order.put(3L, 4);
+
+        //Act
+        sut.recordSaved(Book.builder().id(1L).totalCount(50).sold(7).build());
+        for (int sale = 0; sale < 30; sale++) {
+            sut.recordSales(order);
+        }
+        sut.recordStockAdded(1L, 5);
+        List<String> records = records(sut);
+
+        //Assert
+        assertEquals(92, records.size());
+        assertEquals("saved 1 50 7", records.get(0));
+        assertEquals("sold 1 2", records.get(1));
+        assertEquals("sold 3 4", records.get(90));
+        assertEquals("stock 1 5", records.get(91));
+        assertEquals(15, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testOpen_Given_TornLastGroup_Then_NoRecordOfTheGroupIsReplayedBeforeOrAfterAppend() throws Exception {
+        //Arrange
+        MappedSalesJournal sut = open(1 << 16, true);
+        sut.recordSale(1L, 1);
+        Map<Long, Integer> order = new TreeMap<>();
+        order.put(2L, 1);
+        order.put(3L, 1);
+        order.put(4L, 1);
+        sut.recordSales(order);
+        sut.close();
+        opened.remove(sut);
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            //Last record of the group is lost, the header and the other records are written
+            file.seek(4L * MappedSalesJournal.RECORD_SIZE);
+            file.write(new byte[MappedSalesJournal.RECORD_SIZE]);
+        }
+
+        //Act
+        MappedSalesJournal reopened = open(1 << 16, true);
+        List<String> beforeAppend = records(reopened);
+        reopened.recordSale(5L, 1);
+
+        //Assert
+        assertEquals(Collections.singletonList("sold 1 1"), beforeAppend);
+        assertEquals(Arrays.asList("sold 1 1", "sold 5 1"), records(reopened));
+    }
+
+    @Test
+    public void testOpen_Given_TornLastRecord_Then_ReplayStopsAndAppendContinuesBeforeIt() throws Exception {
+        //Arrange
+        MappedSalesJournal sut = open(1 << 16, true);
+        sut.recordSale(1L, 1);
+        sut.recordSale(2L, 1);
+        sut.close();
+        opened.remove(sut);
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            //Half written second record
+            file.seek(MappedSalesJournal.RECORD_SIZE + 12);
+            file.writeInt(99);
+        }
+
+        //Act
+        MappedSalesJournal reopened = open(1 << 16, true);
+        List<String> beforeAppend = records(reopened);
+        reopened.recordSale(3L, 1);
+
+        //Assert
+        assertEquals(Collections.singletonList("sold 1 1"), beforeAppend);
+        assertEquals(2, records(reopened).size());
+        assertEquals("sold 3 1", records(reopened).get(1));
+    }
+
+    @Test
+    public void testIsEmpty() {
+        //Arrange
+        MappedSalesJournal sut = open(1 << 16, true);
+        boolean emptyBeforeAppend = sut.isEmpty();
+
+        //Act
+        sut.recordSale(1L, 1);
+
+        //Assert
+        assertTrue(emptyBeforeAppend);
+        assertFalse(sut.isEmpty());
+    }
+
+    private MappedSalesJournal open(int segmentSize, boolean groupCommit) {
+        MappedSalesJournal journal = new MappedSalesJournal(folder.getRoot().getPath(), segmentSize, groupCommit);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private static Map<Long, Integer> soldById(MappedSalesJournal journal) {
+        Map<Long, Integer> soldById = new TreeMap<>();
+        journal.replay(new MappedSalesJournal.JournalVisitor() {
+            @Override
+            public void sold(long bookId, int quantity) {
+                soldById.merge(bookId, quantity, Integer::sum);
+            }
+
+            @Override
+            public void stockAdded(long bookId, int quantity) {
+            }
+
+            @Override
+            public void saved(long bookId, int totalCount, int sold) {
+            }
+        });
+        return soldById;
+    }
+
+    private static List<String> records(MappedSalesJournal journal) {
+        List<String> records = new ArrayList<>();
+        journal.replay(new MappedSalesJournal.JournalVisitor() {
+            @Override
+            public void sold(long bookId, int quantity) {
+                records.add("sold " + bookId + " " + quantity);
+            }
+
+            @Override
+            public void stockAdded(long bookId, int quantity) {
+                records.add("stock " + bookId + " " + quantity);
+            }
+
+            @Override
+            public void saved(long bookId, int totalCount, int sold) {
+                records.add("saved " + bookId + " " + totalCount + " " + sold);
+            }
+        });
+        return records;
+    }
+}
@@ -0,0 +1,143 @@
+package com.sulzer.bookstore.service.leaderboard;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BestsellerDto;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BestsellerLeaderboardTest {
+
+    private static final int TOP = 20;
+
+    private BestsellerLeaderboard sut;
+
+    @Before
+    public void setup() {
+        List<Book> books = new ArrayList<>();
+        books.add(createBook(1L, Category.TECHNOLOGY, 3));
+        books.add(createBook(2L, Category.TECHNOLOGY, 8));
+        books.add(createBook(3L, Category.LITERATURE, 5));
+        books.add(createBook(4L, Category.DRAMA, 5));
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(books));
+        sut = new BestsellerLeaderboard(bookRepository);
+        sut.rebuild();
+    }
+
+    @Test
+    public void testTop_Then_OrderedBySoldThenById() {
+        List<BestsellerDto> bestsellers = sut.top(null, 3);
+
+        assertEquals(Arrays.asList(2L, 3L, 4L), ids(bestsellers));
+        assertEquals(Arrays.asList(1, 2, 3), bestsellers.stream().map(BestsellerDto::getRank)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(2L, 1L), ids(sut.top(Category.TECHNOLOGY, 10)));
+        assertTrue(sut.top(Category.POETRY, 10).isEmpty());
+    }
+
+    @Test
+    public void testRecordSale_Then_RankedBySales() {
+        sut.recordSale(1L, 10);
+        sut.recordSale(99L, 1);
+
+        assertEquals(Arrays.asList(1L, 2L), ids(sut.top(Category.TECHNOLOGY, 10)));
+        assertEquals(13, sut.top(null, 1).get(0).getSold());
+        assertEquals(4, sut.size());
+    }
+
+    @Test
+    public void testIndex_Given_OtherCategory_Then_MovedAndSalesKept() {
+        sut.recordSale(2L, 1);
+
+        sut.index(createBook(2L, Category.DRAMA, 8));
+
+        assertEquals(Collections.singletonList(1L), ids(sut.top(Category.TECHNOLOGY, 10)));
+        assertEquals(Arrays.asList(2L, 4L), ids(sut.top(Category.DRAMA, 10)));
+        assertEquals(9, sut.top(Category.DRAMA, 1).get(0).getSold());
+        assertEquals(4, sut.size());
+    }
+
+    @Test
+    public void testTop_Given_SalesAndUpdates_Then_EqualToFullScan() {
+        //Arrange
+        try (EmbeddedBookstore bookstore = EmbeddedBookstore.start()) {
+            bookstore.seed(500, 1_000);
+            BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+            BookRepository bookRepository = bookstore.getBean(BookRepository.class);
+            BestsellerLeaderboard leaderboard = bookstore.getBean(BestsellerLeaderboard.class);
+            Random random = new Random(42);
+
+            //Act
+            for (int i = 0; i < 300; i++) {
+                //A few books sell most of the copies, so the first ranks change
+                long id = 1 + (long) Math.min(random.nextInt(500), random.nextInt(500));
+                if (i % 3 == 0) {
+                    bookStoreService.sellBooks(Arrays.asList(new SellDto(id, 1 + random.nextInt(5)),
+                            new SellDto(1 + (long) random.nextInt(500), 1)));
+                } else {
+                    bookStoreService.sellBook(id);
+                }
+            }
+            BookDto book = bookStoreService.getBookById(1L);
+            bookStoreService.updateBook(1L, BookDto.builder().title(book.getTitle()).author(book.getAuthor())
+                    .category(book.getCategory() == Category.POETRY ? Category.DRAMA : Category.POETRY)
+                    .price(book.getPrice()).totalCount(book.getTotalCount()).build());
+
+            //Assert
+            assertEqualToFullScan(leaderboard, bookRepository);
+            leaderboard.rebuild();
+            assertEqualToFullScan(leaderboard, bookRepository);
+        }
+    }
+
+    private static void assertEqualToFullScan(BestsellerLeaderboard leaderboard, BookRepository bookRepository) {
+        List<Book> books = bookRepository.findAll();
+        books.sort(Comparator.comparingInt(Book::getSold).reversed().thenComparing(Book::getId));
+        assertEquals(expected(books, null), actual(leaderboard.top(null, TOP)));
+        for (Category category : Category.values()) {
+            assertEquals(expected(books, category), actual(leaderboard.top(category, TOP)));
+        }
+    }
+
+    //Id and copies sold of the first books of the category in the ranking of the full scan
+    private static List<String> expected(List<Book> ranking, Category category) {
+        return ranking.stream().filter(book -> category == null || book.getCategory() == category).limit(TOP)
+                .map(book -> book.getId() + ":" + book.getSold()).collect(Collectors.toList());
+    }
+
+    private static List<String> actual(List<BestsellerDto> bestsellers) {
+        return bestsellers.stream().map(bestseller -> bestseller.getId() + ":" + bestseller.getSold())
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> ids(List<BestsellerDto> bestsellers) {
+        return bestsellers.stream().map(BestsellerDto::getId).collect(Collectors.toList());
+    }
+
+    private Book createBook(Long id, Category category, int sold) {
+        return Book.builder().id(id).title("title " + id).author("author " + id).category(category)
+                .totalCount(1).sold(sold).build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.sulzer.bookstore.service.mapper;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.service.dto.BookDto;
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * BookMapper must give the same result as the ModelMapper it replaces.
+ */
+public class BookMapperTest {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private final BookMapper sut = new BookMapper();
+
+    @Test
+    public void testToDto_Then_SameAsModelMapper() {
+        for (Book book : books()) {
+            assertEquals(modelMapper.map(book, BookDto.class), sut.toDto(book));
+        }
+    }
+
+    @Test
+    public void testToBook_Then_SameAsModelMapper() {
+        for (Book book : books()) {
+            BookDto bookDto = modelMapper.map(book, BookDto.class);
+            assertEquals(modelMapper.map(bookDto, Book.class), sut.toBook(bookDto));
+        }
+    }
+
+    @Test
+    public void testToBook_Given_EmptyDto_Then_SameAsModelMapper() {
+        assertEquals(modelMapper.map(new BookDto(), Book.class), sut.toBook(new BookDto()));
+    }
+
+    @Test
+    public void testToDtoList() {
+        List<Book> books = books();
+        List<BookDto> bookDtos = sut.toDtoList(books);
+
+        assertEquals(books.size(), bookDtos.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(modelMapper.map(books.get(i), BookDto.class), bookDtos.get(i));
+        }
+    }
+
+    @Test
+    public void testFields_Then_AllFieldsAreMapped() {
+        //A new field must be added to BookMapper and to this list
+        assertEquals(Arrays.asList("id", "title", "author", "category", "price", "totalCount", "sold", "version"),
+                fieldNames(Book.class));
+        assertEquals(Arrays.asList("id", "title", "author", "category", "price", "totalCount"),
+                fieldNames(BookDto.class));
+    }
+
+    private List<String> fieldNames(Class<?> type) {
+        List<String> names = new ArrayList<>();
+        Arrays.stream(type.getDeclaredFields())
+                .filter(field -> !field.isSynthetic())
+                .forEach(field -> names.add(field.getName()));
+        return names;
+    }
+
+    private List<Book> books() {
+        Random random = new Random(3);
+        List<Book> books = new ArrayList<>();
+        books.add(new Book());
+        books.add(Book.builder().id(1L).title("title").build());
+        for (int i = 0; i < 100; i++) {
+            books.add(Book.builder()
+                    .id(random.nextLong())
+                    .title(random.nextBoolean() ? "title " + i : null)
+                    .author(random.nextBoolean() ? "author " + i : null)
+                    .category(random.nextBoolean() ? Category.valueOf(random.nextInt(9)) : null)
+                    .price(random.nextFloat() * 100)
+                    .totalCount(random.nextInt(1_000))
+                    .sold(random.nextInt(1_000))
+                    .build());
+        }
+        return books;
+    }
+}
@@ -0,0 +1,83 @@
+package com.sulzer.bookstore.service.retry;
+
+import com.sulzer.bookstore.service.exceptions.BadRequestException;
+import com.sulzer.bookstore.service.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class OptimisticRetryTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OptimisticRetry sut = new OptimisticRetry(mock(PlatformTransactionManager.class), meterRegistry,
+            3, 1, 4);
+
+    @Test
+    public void testInTransaction_Given_Conflicts_Then_RetriedAndConflictsCounted() {
+        //Arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        //Act
+        int result = sut.inTransaction("sellBooks", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+            return 42;
+        });
+
+        //Assert
+        assertEquals(42, result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get(OptimisticRetry.CONFLICTS).tag("operation", "sellBooks").counter().count(), 0);
+    }
+
+    @Test
+    public void testInTransaction_Given_ConflictOnEveryAttempt_Then_ThrowsConcurrentUpdateException() {
+        //Arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        //Act
+        try {
+            sut.inTransaction("updateBook", () -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            });
+            fail();
+        } catch (ConcurrentUpdateException e) {
+            //expected
+        }
+
+        //Assert
+        assertEquals(3, attempts.get());
+        assertEquals(3, meterRegistry.get(OptimisticRetry.CONFLICTS).tag("operation", "updateBook").counter().count(), 0);
+        assertEquals(1, meterRegistry.get(OptimisticRetry.FAILURES).tag("operation", "updateBook").counter().count(), 0);
+    }
+
+    @Test
+    public void testInTransaction_Given_OtherException_Then_NotRetried() {
+        //Arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        //Act
+        try {
+            sut.inTransaction("addBook", () -> {
+                attempts.incrementAndGet();
+                throw new BadRequestException("bad");
+            });
+            fail();
+        } catch (BadRequestException e) {
+            //expected
+        }
+
+        //Assert
+        assertEquals(1, attempts.get());
+    }
+}
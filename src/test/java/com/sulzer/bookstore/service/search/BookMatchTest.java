@@ -0,0 +1,94 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Matches of every category of both engines compared to the search of one category.
+ */
+public class BookMatchTest {
+
+    private static EmbeddedBookstore bookstore;
+    private static DatabaseSearchEngine databaseSearchEngine;
+    private static InvertedIndexSearchEngine indexSearchEngine;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start("bookstore.search.engine=database");
+        bookstore.seed(500, 5);
+        BookStoreService bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookStoreService.addNewBook(BookDto.builder().id(1000L).title("100% pure_java").author("author")
+                .category(Category.TECHNOLOGY).price(12.5f).totalCount(3).build());
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(42L, 2), new SellDto(142L, 1), new SellDto(420L, 3)));
+        for (long id = 1; id <= 500; id += 7) {
+            bookStoreService.sellBook(id);
+        }
+        databaseSearchEngine = bookstore.getBean(DatabaseSearchEngine.class);
+        indexSearchEngine = new InvertedIndexSearchEngine(bookstore.getBean(BookRepository.class));
+        indexSearchEngine.rebuild();
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testMatch_Then_SameAsSearchOfEveryCategory() {
+        for (String keyword : Arrays.asList("java", "42", "", "%", "_")) {
+            //Act
+            List<BookMatch> matches = databaseSearchEngine.match(keyword);
+
+            //Assert
+            assertFalse(matches.isEmpty());
+            assertEquals(describe(matches), describe(indexSearchEngine.match(keyword)));
+            for (Category category : Category.values()) {
+                List<BookMatch> categoryMatches = matches.stream()
+                        .filter(match -> match.getCategory() == category).collect(Collectors.toList());
+                List<Book> books = databaseSearchEngine.search(keyword, category);
+                assertEquals(books.stream().map(Book::getId).collect(Collectors.toList()), ids(categoryMatches));
+                //Sum of countNumberOfBooksSold, which uses a MySQL function
+                assertEquals(books.stream().mapToLong(Book::getSold).sum(),
+                        categoryMatches.stream().mapToLong(BookMatch::getSold).sum());
+            }
+        }
+    }
+
+    @Test
+    public void testSearch_Given_LikeWildcards_Then_MatchedLiterally() {
+        for (String keyword : Arrays.asList("%", "_", "0% p", "e_j")) {
+            //Act
+            List<Book> books = databaseSearchEngine.search(keyword, Category.TECHNOLOGY);
+
+            //Assert
+            assertEquals(Collections.singletonList(1000L), books.stream().map(Book::getId).collect(Collectors.toList()));
+            assertEquals(Collections.singletonList(1000L), indexSearchEngine.search(keyword, Category.TECHNOLOGY).stream()
+                    .map(Book::getId).collect(Collectors.toList()));
+        }
+    }
+
+    private List<Long> ids(List<BookMatch> matches) {
+        return matches.stream().map(BookMatch::getId).collect(Collectors.toList());
+    }
+
+    private List<String> describe(List<BookMatch> matches) {
+        return matches.stream().map(match -> match.getId() + " " + match.getCategory() + " " + match.getSold())
+                .collect(Collectors.toList());
+    }
+}
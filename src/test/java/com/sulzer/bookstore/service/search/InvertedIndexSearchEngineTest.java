@@ -0,0 +1,164 @@
+package com.sulzer.bookstore.service.search;
+
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InvertedIndexSearchEngineTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private final List<Book> books = new ArrayList<>();
+
+    private InvertedIndexSearchEngine sut;
+
+    @Before
+    public void setup() {
+        books.add(createBook(1L, "The Java Handbook", "James Gosling", Category.TECHNOLOGY));
+        books.add(createBook(2L, "Effective Java", "Joshua Bloch", Category.TECHNOLOGY));
+        books.add(createBook(3L, "Hamlet", "William Shakespeare", Category.DRAMA));
+        books.add(createBook(1234L, "Clean Code", null, Category.TECHNOLOGY));
+        when(bookRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(new ArrayList<>(books)));
+        when(bookRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return books.stream().filter(book -> ids.contains(book.getId())).collect(Collectors.toList());
+        });
+        sut = new InvertedIndexSearchEngine(bookRepository);
+        sut.rebuild();
+    }
+
+    @Test
+    public void testSearch_MatchesTitleAuthorAndId() {
+        assertEquals(Arrays.asList(1L, 2L), ids(sut.search("java", Category.TECHNOLOGY)));
+        assertEquals(Collections.singletonList(2L), ids(sut.search("bloch", Category.TECHNOLOGY)));
+        assertEquals(Collections.singletonList(1234L), ids(sut.search("23", Category.TECHNOLOGY)));
+        assertEquals(Collections.singletonList(3L), ids(sut.search("", Category.DRAMA)));
+    }
+
+    @Test
+    public void testSearch_Given_OtherCategory_Then_NoMatch() {
+        assertTrue(sut.search("java", Category.DRAMA).isEmpty());
+    }
+
+    @Test
+    public void testSearch_Given_KeywordSpansTwoFields_Then_NoMatch() {
+        assertTrue(sut.search("book1", Category.TECHNOLOGY).isEmpty());
+        assertTrue(sut.search("handbook james", Category.TECHNOLOGY).isEmpty());
+    }
+
+    @Test
+    public void testMatch_Given_FewMatches_Then_SoldCountsAreLookedUp() {
+        //Arrange
+        for (long id = 100; id < 140; id++) {
+            sut.index(createBook(id, "Poems " + id, "Anonymous", Category.POETRY));
+        }
+        when(bookRepository.findAllMatchesById(anyCollection())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>(invocation.getArgument(0));
+            return books.stream().filter(book -> ids.contains(book.getId()))
+                    .map(book -> new Object[]{book.getId(), book.getCategory().getValue(), 30})
+                    .collect(Collectors.toList());
+        });
+
+        //Act
+        List<BookMatch> matches = sut.match("hamlet");
+
+        //Assert
+        assertEquals(1, matches.size());
+        assertEquals(3L, matches.get(0).getId());
+        assertEquals(Category.DRAMA, matches.get(0).getCategory());
+        assertEquals(30, matches.get(0).getSold());
+        verify(bookRepository, never()).findAllMatchesByKeyword(any());
+    }
+
+    @Test
+    public void testMatch_Given_ManyMatches_Then_DatabaseIsScanned() {
+        //Arrange
+        when(bookRepository.findAllMatchesByKeyword("a")).thenReturn(Arrays.asList(
+                new Object[]{1L, Category.TECHNOLOGY.getValue(), 0}, new Object[]{3L, Category.DRAMA.getValue(), 5}));
+
+        //Act
+        List<BookMatch> matches = sut.match("a");
+
+        //Assert
+        assertEquals(Arrays.asList(1L, 3L), matches.stream().map(BookMatch::getId).collect(Collectors.toList()));
+        assertEquals(5, matches.get(1).getSold());
+        verify(bookRepository, never()).findAllMatchesById(any());
+    }
+
+    @Test
+    public void testMatch_Given_ManyMatchesOfLikeWildcard_Then_DatabaseIsScannedWithEscapedKeyword() {
+        //Arrange
+        for (long id = 100; id < 140; id++) {
+            sut.index(createBook(id, "Poems_" + id, "Anonymous", Category.POETRY));
+        }
+
+        //Act
+        sut.match("_");
+
+        //Assert
+        verify(bookRepository).findAllMatchesByKeyword("\\_");
+    }
+
+    @Test
+    public void testIndex_Given_UpdatedBook_Then_OldTextIsRemoved() {
+        Book book = createBook(2L, "Java Concurrency in Practice", "Brian Goetz", Category.LITERATURE);
+        books.set(1, book);
+
+        sut.index(book);
+
+        assertEquals(Collections.singletonList(1L), ids(sut.search("java", Category.TECHNOLOGY)));
+        assertEquals(Collections.singletonList(2L), ids(sut.search("goetz", Category.LITERATURE)));
+        assertEquals(4, sut.size());
+    }
+
+    @Test
+    public void testRemove() {
+        sut.remove(1L);
+
+        assertEquals(Collections.singletonList(2L), ids(sut.search("java", Category.TECHNOLOGY)));
+        assertEquals(3, sut.size());
+    }
+
+    @Test
+    public void testIndex_Given_ManyUpdates_Then_CompactedIndexKeepsResults() {
+        for (int i = 0; i < 5_000; i++) {
+            sut.index(createBook(2L, "Effective Java " + i, "Joshua Bloch", Category.TECHNOLOGY));
+        }
+
+        assertEquals(Arrays.asList(1L, 2L), ids(sut.search("java", Category.TECHNOLOGY)));
+        assertEquals(4, sut.size());
+    }
+
+    private List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toList());
+    }
+
+    private Book createBook(Long id, String title, String author, Category category) {
+        return Book.builder().id(id).title(title).author(author).category(category).totalCount(1).build();
+    }
+}
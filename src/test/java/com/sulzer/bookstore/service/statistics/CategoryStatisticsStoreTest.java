@@ -0,0 +1,91 @@
+package com.sulzer.bookstore.service.statistics;
+
+import com.sulzer.bookstore.benchmark.EmbeddedBookstore;
+import com.sulzer.bookstore.constants.Category;
+import com.sulzer.bookstore.domain.Book;
+import com.sulzer.bookstore.domain.BookRepository;
+import com.sulzer.bookstore.service.BookStoreService;
+import com.sulzer.bookstore.service.dto.BookDto;
+import com.sulzer.bookstore.service.dto.CategoryStatisticsDto;
+import com.sulzer.bookstore.service.dto.SellDto;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Statistics maintained by the service compared to the totals computed from the book table.
+ */
+public class CategoryStatisticsStoreTest {
+
+    private static EmbeddedBookstore bookstore;
+    private static BookStoreService bookStoreService;
+    private static BookRepository bookRepository;
+    private static CategoryStatisticsStore sut;
+
+    @BeforeClass
+    public static void start() {
+        bookstore = EmbeddedBookstore.start();
+        bookstore.seed(200, 5);
+        bookStoreService = bookstore.getBean(BookStoreService.class);
+        bookRepository = bookstore.getBean(BookRepository.class);
+        sut = bookstore.getBean(CategoryStatisticsStore.class);
+        sut.rebuild();
+    }
+
+    @AfterClass
+    public static void stop() {
+        bookstore.close();
+    }
+
+    @Test
+    public void testStatistics_Given_Writes_Then_EqualToFullScan() {
+        //Act
+        bookStoreService.addNewBook(BookDto.builder().id(1000L).title("new book").author("author")
+                .category(Category.POETRY).price(12.5f).totalCount(3).build());
+        bookStoreService.addBook(1000L, 4);
+        bookStoreService.sellBook(1000L);
+        bookStoreService.sellBook(17L);
+        bookStoreService.sellBooks(Arrays.asList(new SellDto(3L, 2), new SellDto(150L, 1), new SellDto(3L, 1)));
+        bookStoreService.updateBook(150L, BookDto.builder().title("moved").author("author")
+                .category(otherCategory(150L)).price(99f).totalCount(8).build());
+
+        //Assert
+        List<CategoryStatisticsDto> statistics = sut.getAllStatistics();
+        assertEquals(Category.values().length, statistics.size());
+        statistics.forEach(expected -> assertStatistics(fullScan(expected.getCategory()), expected));
+        assertStatistics(fullScan(Category.POETRY), sut.getStatistics(Category.POETRY));
+    }
+
+    private Category otherCategory(Long id) {
+        Category category = bookRepository.findById(id).get().getCategory();
+        return Category.valueOf((category.getValue() + 1) % Category.values().length);
+    }
+
+    private CategoryStatisticsDto fullScan(Category category) {
+        CategoryStatisticsDto statistics = CategoryStatisticsDto.builder().category(category).build();
+        bookRepository.findAll().stream().filter(book -> book.getCategory() == category).forEach(book -> {
+            statistics.setBooks(statistics.getBooks() + 1);
+            statistics.setUnitsInStock(statistics.getUnitsInStock() + book.getTotalCount());
+            statistics.setUnitsSold(statistics.getUnitsSold() + book.getSold());
+            statistics.setRevenue(statistics.getRevenue() + revenue(book));
+        });
+        return statistics;
+    }
+
+    private double revenue(Book book) {
+        return (double) book.getPrice() * book.getSold();
+    }
+
+    private void assertStatistics(CategoryStatisticsDto expected, CategoryStatisticsDto actual) {
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getBooks(), actual.getBooks());
+        assertEquals(expected.getUnitsInStock(), actual.getUnitsInStock());
+        assertEquals(expected.getUnitsSold(), actual.getUnitsSold());
+        assertEquals(expected.getRevenue(), actual.getRevenue(), 0.01);
+    }
+}
@@ -0,0 +1,42 @@
+-- Tables of the entities, for an embedded database started without ddl-auto
+create table if not exists book (
+    id bigint not null,
+    author varchar(255),
+    category integer,
+    price float not null check (price >= 0),
+    sold integer not null check (sold >= 0),
+    title varchar(255) not null,
+    total_count integer not null check (total_count >= 0),
+    version bigint default 0 not null,
+    primary key (id)
+);
+create table if not exists category_statistics (
+    id integer not null,
+    books bigint not null,
+    category integer,
+    revenue double not null,
+    units_in_stock bigint not null,
+    units_sold bigint not null,
+    primary key (id)
+);
+create table if not exists book_sales_rollup (
+    id bigint auto_increment not null,
+    book_id bigint not null,
+    bucket_start bigint not null,
+    resolution integer not null,
+    revenue double not null,
+    units_sold bigint not null,
+    primary key (id),
+    constraint uk_book_sales_rollup unique (resolution, book_id, bucket_start)
+);
+create table if not exists category_sales_rollup (
+    id bigint auto_increment not null,
+    bucket_start bigint not null,
+    category integer not null,
+    resolution integer not null,
+    revenue double not null,
+    units_sold bigint not null,
+    primary key (id),
+    constraint uk_category_sales_rollup unique (resolution, category, bucket_start)
+);
+create index if not exists idx_category_sales_rollup_bucket on category_sales_rollup (resolution, bucket_start);